@@ -0,0 +1,27 @@
+import static com.github.forax.pro.Pro.*;
+import static com.github.forax.pro.builder.Builders.*;
+
+// run the JMH benchmarks of the test module (the classes *Benchmark)
+//   ./pro/bin/pro build bench.pro
+// to get the results as JSON, run the class com.github.forax.pratt_parser.Benchmarks instead
+
+resolver.
+    dependencies(
+        "org.junit.jupiter.api:5.2.0",
+        "org.junit.platform.commons:1.2.0",
+        "org.apiguardian.api:1.0.0",
+        "org.opentest4j:1.0.0",
+        
+        "org.openjdk.jmh=org.openjdk.jmh:jmh-core:1.21",
+        "org.apache.commons.math3=org.apache.commons:commons-math3:3.6.1",
+        "net.sf.jopt-simple=net.sf.jopt-simple:jopt-simple:5.0.4",
+        "org.openjdk.jmh.generator=org.openjdk.jmh:jmh-generator-annprocess:1.21"
+    )
+
+compiler.
+    release(11).
+    processorModuleTestPath(path("deps"))   // enable JMH annotation processor
+
+run(resolver, modulefixer, compiler, perfer)
+
+/exit
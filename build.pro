@@ -6,11 +6,18 @@ resolver.
         "org.junit.jupiter.api:5.2.0",
         "org.junit.platform.commons:1.2.0",
         "org.apiguardian.api:1.0.0",
-        "org.opentest4j:1.0.0"
+        "org.opentest4j:1.0.0",
+        
+        // JMH, see bench.pro
+        "org.openjdk.jmh=org.openjdk.jmh:jmh-core:1.21",
+        "org.apache.commons.math3=org.apache.commons:commons-math3:3.6.1",
+        "net.sf.jopt-simple=net.sf.jopt-simple:jopt-simple:5.0.4",
+        "org.openjdk.jmh.generator=org.openjdk.jmh:jmh-generator-annprocess:1.21"
     )
 
 compiler.
-    release(11)
+    release(11).
+    processorModuleTestPath(path("deps"))   // enable JMH annotation processor
 
 docer.
     quiet(true).
@@ -19,6 +26,6 @@ docer.
 packager.
     modules("com.github.forax.pratt_parser@1.0.1")   
     
-run(resolver, compiler, tester, docer, packager)
+run(resolver, modulefixer, compiler, tester, docer, packager)
 
 /exit
@@ -0,0 +1,664 @@
+package com.github.forax.pratt_parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A deterministic finite automaton (DFA) that recognizes several regexes at once.
+ *
+ * The regexes are compiled into a non deterministic automaton (Thompson's construction)
+ * which is then determinized (subset construction), the characters are grouped into classes
+ * of characters that always have the same transitions, so the transitions are stored in a dense
+ * table indexed by state and class.
+ *
+ * Only the regular subset of the {@link java.util.regex.Pattern} syntax is supported,
+ * literals, escaped characters, character classes ({@code [a-z]}, {@code [^0-9]}, {@code \d}, {@code \w},
+ * {@code \s} and their negations, {@code .}), groups ({@code (...)} and {@code (?:...)}), alternations
+ * and the greedy quantifiers ({@code *}, {@code +}, {@code ?}, <code>{n}</code>, <code>{n,}</code>,
+ * <code>{n,m}</code>). Anchors, back references, look-arounds, flags, lazy and possessive quantifiers
+ * are rejected.
+ *
+ * This class is immutable and thread safe.
+ */
+final class Automaton {
+  private static final int MAX_STATES = 1 << 14;
+  private static final int MAX_NFA_STATES = 1 << 20;
+  private static final int MAX_REPETITION = 1_000;
+
+  private final int[] classStarts;
+  private final int[] asciiClasses;
+  private final int classCount;
+  private final int[] transitions;
+  private final int[] firstAccepts;
+  private final BitSet[] accepts;
+
+  private Automaton(int[] classStarts, int[] transitions, int[] firstAccepts, BitSet[] accepts) {
+    this.classStarts = classStarts;
+    this.classCount = classStarts.length;
+    this.transitions = transitions;
+    this.firstAccepts = firstAccepts;
+    this.accepts = accepts;
+    var asciiClasses = new int[128];
+    for(var c = 0; c < asciiClasses.length; c++) {
+      asciiClasses[c] = findClass(classStarts, c);
+    }
+    this.asciiClasses = asciiClasses;
+  }
+
+  private static int findClass(int[] classStarts, int c) {
+    var index = Arrays.binarySearch(classStarts, c);
+    return index >= 0? index: -index - 2;
+  }
+
+  private int classOf(char c) {
+    return c < 128? asciiClasses[c]: findClass(classStarts, c);
+  }
+
+  /**
+   * Returns the number of states of the automaton.
+   * @return the number of states of the automaton.
+   */
+  int stateCount() {
+    return firstAccepts.length;
+  }
+
+  /**
+   * Value returned by {@link #match(CharSequence, int, int, boolean)} if more characters are needed
+   * to decide which regex matches.
+   */
+  static final long NEED_MORE = -2;
+
+  /**
+   * Try to match the regexes at the position {@code start} of the text, the text is scanned only once.
+   *
+   * The first regex (in declaration order) that matches wins, if this regex can match several
+   * sequences of characters, the longest one is selected. Empty matches are ignored.
+   *
+   * @param text the text.
+   * @param start the start position.
+   * @return a value encoding the index of the regex and the end of the match,
+   *         see {@link #entry(long)} and {@link #end(long)}, or {@code -1} if no regex matches.
+   */
+  long match(CharSequence text, int start) {
+    return match(text, start, text.length(), true);
+  }
+
+  /**
+   * Try to match the regexes at the position {@code start} of a part of a text,
+   * the text is scanned only once.
+   *
+   * @param text the text.
+   * @param start the start position.
+   * @param end the end position of the characters available.
+   * @param endOfInput true if there is no character after the end position.
+   * @return a value encoding the index of the regex and the end of the match,
+   *         see {@link #entry(long)} and {@link #end(long)}, {@code -1} if no regex matches or
+   *         {@link #NEED_MORE} if the characters after the end position may change the result.
+   * @see #match(CharSequence, int)
+   */
+  long match(CharSequence text, int start, int end, boolean endOfInput) {
+    var transitions = this.transitions;
+    var classCount = this.classCount;
+    var bestEntry = Integer.MAX_VALUE;
+    var bestEnd = -1;
+    var state = 0;
+    for(var i = start; i < end; i++) {
+      state = transitions[state * classCount + classOf(text.charAt(i))];
+      if (state == -1) {
+        return bestEnd == -1? -1: ((long)bestEntry) << 32 | bestEnd;
+      }
+      var first = firstAccepts[state];
+      if (first != -1) {
+        if (first < bestEntry) {
+          bestEntry = first;
+          bestEnd = i + 1;
+        } else if (first == bestEntry || accepts[state].get(bestEntry)) {
+          bestEnd = i + 1;
+        }
+      }
+    }
+    if (!endOfInput) {
+      return NEED_MORE;
+    }
+    return bestEnd == -1? -1: ((long)bestEntry) << 32 | bestEnd;
+  }
+
+  /**
+   * Returns the index of the regex that matches.
+   * @param match a value returned by {@link #match(CharSequence, int)}.
+   * @return the index of the regex that matches.
+   */
+  static int entry(long match) {
+    return (int)(match >>> 32);
+  }
+
+  /**
+   * Returns the position after the last matched character.
+   * @param match a value returned by {@link #match(CharSequence, int)}.
+   * @return the position after the last matched character.
+   */
+  static int end(long match) {
+    return (int)match;
+  }
+
+  /**
+   * Compiles several regexes into a DFA.
+   *
+   * @param regexes the regexes, their index is used to identify them.
+   * @return a new automaton.
+   * @throws IllegalArgumentException if a regex is not valid or not supported or
+   *         if the automaton is too big.
+   */
+  static Automaton compile(String... regexes) {
+    var nodes = new Node[regexes.length];
+    for(var i = 0; i < regexes.length; i++) {
+      nodes[i] = new RegexParser(regexes[i]).parse();
+    }
+
+    // partition the characters into classes
+    var boundaries = new TreeSet<Integer>();
+    boundaries.add(0);
+    for(var node: nodes) {
+      node.collectBoundaries(boundaries);
+    }
+    boundaries.remove(0x10000);
+    var classStarts = boundaries.stream().mapToInt(Integer::intValue).toArray();
+    var classCount = classStarts.length;
+
+    // Thompson's construction
+    var nfaStates = new ArrayList<NfaState>();
+    var starts = new ArrayList<NfaState>();
+    for(var i = 0; i < nodes.length; i++) {
+      var accept = new NfaState(nfaStates);
+      accept.accept = i;
+      starts.add(nodes[i].build(accept, nfaStates));
+    }
+
+    // subset construction
+    var stateMap = new HashMap<BitSet, Integer>();
+    var stateSets = new ArrayList<BitSet>();
+    var work = new ArrayDeque<BitSet>();
+    var initial = closure(starts, nfaStates);
+    stateMap.put(initial, 0);
+    stateSets.add(initial);
+    work.add(initial);
+    var transitionList = new ArrayList<int[]>();
+    while(!work.isEmpty()) {
+      var set = work.poll();
+      var row = new int[classCount];
+      for(var c = 0; c < classCount; c++) {
+        var representative = classStarts[c];
+        var targets = new ArrayList<NfaState>();
+        for(var id = set.nextSetBit(0); id != -1; id = set.nextSetBit(id + 1)) {
+          var nfaState = nfaStates.get(id);
+          if (nfaState.ranges != null && CharSet.contains(nfaState.ranges, representative)) {
+            targets.add(nfaState.next);
+          }
+        }
+        if (targets.isEmpty()) {
+          row[c] = -1;
+          continue;
+        }
+        var target = closure(targets, nfaStates);
+        var targetIndex = stateMap.get(target);
+        if (targetIndex == null) {
+          targetIndex = stateSets.size();
+          if (targetIndex == MAX_STATES) {
+            throw new IllegalArgumentException("regexes too complex, more than " + MAX_STATES + " states");
+          }
+          stateMap.put(target, targetIndex);
+          stateSets.add(target);
+          work.add(target);
+        }
+        row[c] = targetIndex;
+      }
+      transitionList.add(row);
+    }
+
+    var stateCount = stateSets.size();
+    var transitions = new int[stateCount * classCount];
+    var firstAccepts = new int[stateCount];
+    var accepts = new BitSet[stateCount];
+    for(var state = 0; state < stateCount; state++) {
+      System.arraycopy(transitionList.get(state), 0, transitions, state * classCount, classCount);
+      var accept = new BitSet();
+      var set = stateSets.get(state);
+      for(var id = set.nextSetBit(0); id != -1; id = set.nextSetBit(id + 1)) {
+        var nfaState = nfaStates.get(id);
+        if (nfaState.accept != -1) {
+          accept.set(nfaState.accept);
+        }
+      }
+      accepts[state] = accept;
+      firstAccepts[state] = accept.nextSetBit(0);
+    }
+    return new Automaton(classStarts, transitions, firstAccepts, accepts);
+  }
+
+  private static BitSet closure(List<NfaState> states, List<NfaState> nfaStates) {
+    var set = new BitSet(nfaStates.size());
+    var stack = new ArrayDeque<NfaState>(states);
+    while(!stack.isEmpty()) {
+      var state = stack.pop();
+      if (set.get(state.id)) {
+        continue;
+      }
+      set.set(state.id);
+      stack.addAll(state.epsilons);
+    }
+    return set;
+  }
+
+  private static final class NfaState {
+    final int id;
+    final ArrayList<NfaState> epsilons = new ArrayList<>();
+    int[] ranges;     // null if there is no transition on a character
+    NfaState next;
+    int accept = -1;
+
+    NfaState(List<NfaState> nfaStates) {
+      if (nfaStates.size() == MAX_NFA_STATES) {
+        throw new IllegalArgumentException("regexes too complex, more than " + MAX_NFA_STATES + " states");
+      }
+      this.id = nfaStates.size();
+      nfaStates.add(this);
+    }
+  }
+
+  /**
+   * Set of characters represented as a sorted array of disjoint ranges, each range is a pair of
+   * inclusive bounds.
+   */
+  static final class CharSet {
+    private CharSet() {
+      throw new AssertionError();
+    }
+
+    static final int[] DIGITS = { '0', '9' };
+    static final int[] WORDS = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+    static final int[] SPACES = { '\t', '\r', ' ', ' ' };
+    static final int[] DOT = complement(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 });
+
+    static int[] of(int c) {
+      return new int[] { c, c };
+    }
+
+    static boolean contains(int[] ranges, int c) {
+      for(var i = 0; i < ranges.length; i += 2) {
+        if (c < ranges[i]) {
+          return false;
+        }
+        if (c <= ranges[i + 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    static int[] union(int[] ranges1, int[] ranges2) {
+      var all = new int[ranges1.length + ranges2.length];
+      System.arraycopy(ranges1, 0, all, 0, ranges1.length);
+      System.arraycopy(ranges2, 0, all, ranges1.length, ranges2.length);
+      var pairs = new long[all.length / 2];
+      for(var i = 0; i < pairs.length; i++) {
+        pairs[i] = ((long)all[2 * i]) << 32 | all[2 * i + 1];
+      }
+      Arrays.sort(pairs);
+      var result = new int[all.length];
+      var size = 0;
+      for(var pair: pairs) {
+        var lo = (int)(pair >>> 32);
+        var hi = (int)pair;
+        if (size != 0 && lo <= result[size - 1] + 1) {
+          result[size - 1] = Math.max(result[size - 1], hi);
+          continue;
+        }
+        result[size++] = lo;
+        result[size++] = hi;
+      }
+      return Arrays.copyOf(result, size);
+    }
+
+    static int[] complement(int[] ranges) {
+      var result = new int[ranges.length + 2];
+      var size = 0;
+      var lo = 0;
+      for(var i = 0; i < ranges.length; i += 2) {
+        if (ranges[i] > lo) {
+          result[size++] = lo;
+          result[size++] = ranges[i] - 1;
+        }
+        lo = ranges[i + 1] + 1;
+      }
+      if (lo <= 0xFFFF) {
+        result[size++] = lo;
+        result[size++] = 0xFFFF;
+      }
+      return Arrays.copyOf(result, size);
+    }
+  }
+
+  private interface Node {
+    NfaState build(NfaState end, List<NfaState> nfaStates);
+    void collectBoundaries(TreeSet<Integer> boundaries);
+  }
+
+  private static final class CharSetNode implements Node {
+    private final int[] ranges;
+
+    CharSetNode(int[] ranges) {
+      this.ranges = ranges;
+    }
+
+    @Override
+    public NfaState build(NfaState end, List<NfaState> nfaStates) {
+      var state = new NfaState(nfaStates);
+      state.ranges = ranges;
+      state.next = end;
+      return state;
+    }
+    @Override
+    public void collectBoundaries(TreeSet<Integer> boundaries) {
+      for(var i = 0; i < ranges.length; i += 2) {
+        boundaries.add(ranges[i]);
+        boundaries.add(ranges[i + 1] + 1);
+      }
+    }
+  }
+
+  private static final class ConcatNode implements Node {
+    private final List<Node> nodes;
+
+    ConcatNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    public NfaState build(NfaState end, List<NfaState> nfaStates) {
+      var state = end;
+      for(var i = nodes.size(); --i >= 0;) {
+        state = nodes.get(i).build(state, nfaStates);
+      }
+      return state;
+    }
+    @Override
+    public void collectBoundaries(TreeSet<Integer> boundaries) {
+      nodes.forEach(node -> node.collectBoundaries(boundaries));
+    }
+  }
+
+  private static final class AltNode implements Node {
+    private final List<Node> nodes;
+
+    AltNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    public NfaState build(NfaState end, List<NfaState> nfaStates) {
+      var state = new NfaState(nfaStates);
+      for(var node: nodes) {
+        state.epsilons.add(node.build(end, nfaStates));
+      }
+      return state;
+    }
+    @Override
+    public void collectBoundaries(TreeSet<Integer> boundaries) {
+      nodes.forEach(node -> node.collectBoundaries(boundaries));
+    }
+  }
+
+  private static final class RepeatNode implements Node {
+    private final Node node;
+    private final int min;
+    private final int max;  // -1 means infinity
+
+    RepeatNode(Node node, int min, int max) {
+      this.node = node;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public NfaState build(NfaState end, List<NfaState> nfaStates) {
+      NfaState state;
+      if (max == -1) {
+        state = new NfaState(nfaStates);
+        state.epsilons.add(node.build(state, nfaStates));
+        state.epsilons.add(end);
+      } else {
+        state = end;
+        for(var i = min; i < max; i++) {
+          var optional = new NfaState(nfaStates);
+          optional.epsilons.add(node.build(state, nfaStates));
+          optional.epsilons.add(end);
+          state = optional;
+        }
+      }
+      for(var i = 0; i < min; i++) {
+        state = node.build(state, nfaStates);
+      }
+      return state;
+    }
+    @Override
+    public void collectBoundaries(TreeSet<Integer> boundaries) {
+      node.collectBoundaries(boundaries);
+    }
+  }
+
+  private static final class RegexParser {
+    private final String regex;
+    private int index;
+
+    RegexParser(String regex) {
+      this.regex = regex;
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at index " + index + " in regex " + regex);
+    }
+
+    private boolean hasNext() {
+      return index < regex.length();
+    }
+
+    private char peek() {
+      return regex.charAt(index);
+    }
+
+    private char next() {
+      if (!hasNext()) {
+        throw error("unexpected end of regex");
+      }
+      return regex.charAt(index++);
+    }
+
+    Node parse() {
+      var node = alternation();
+      if (hasNext()) {
+        throw error("unbalanced ')'");
+      }
+      return node;
+    }
+
+    private Node alternation() {
+      var nodes = new ArrayList<Node>();
+      nodes.add(concatenation());
+      while(hasNext() && peek() == '|') {
+        index++;
+        nodes.add(concatenation());
+      }
+      return nodes.size() == 1? nodes.get(0): new AltNode(nodes);
+    }
+
+    private Node concatenation() {
+      var nodes = new ArrayList<Node>();
+      while(hasNext() && peek() != '|' && peek() != ')') {
+        nodes.add(repetition());
+      }
+      return nodes.size() == 1? nodes.get(0): new ConcatNode(nodes);
+    }
+
+    private Node repetition() {
+      var node = atom();
+      while(hasNext()) {
+        int min, max;
+        switch(peek()) {
+        case '*':
+          min = 0; max = -1;
+          index++;
+          break;
+        case '+':
+          min = 1; max = -1;
+          index++;
+          break;
+        case '?':
+          min = 0; max = 1;
+          index++;
+          break;
+        case '{':
+          index++;
+          min = number();
+          max = min;
+          if (hasNext() && peek() == ',') {
+            index++;
+            max = !hasNext() || peek() == '}'? -1: number();
+          }
+          if (!hasNext() || next() != '}') {
+            throw error("invalid repetition");
+          }
+          if ((max != -1 && max < min) || Math.max(min, max) > MAX_REPETITION) {
+            throw error("invalid repetition bounds");
+          }
+          break;
+        default:
+          return node;
+        }
+        if (hasNext() && (peek() == '?' || peek() == '+')) {
+          throw error("lazy and possessive quantifiers are not supported");
+        }
+        node = new RepeatNode(node, min, max);
+      }
+      return node;
+    }
+
+    private int number() {
+      var start = index;
+      while(hasNext() && peek() >= '0' && peek() <= '9') {
+        index++;
+      }
+      if (start == index) {
+        throw error("number expected");
+      }
+      return Integer.parseInt(regex, start, index, 10);
+    }
+
+    private Node atom() {
+      var c = next();
+      switch(c) {
+      case '(':
+        if (hasNext() && peek() == '?') {
+          index++;
+          if (next() != ':') {
+            throw error("only non capturing groups (?:...) are supported");
+          }
+        }
+        var node = alternation();
+        if (next() != ')') {
+          throw error("')' expected");
+        }
+        return node;
+      case '[':
+        return new CharSetNode(characterClass());
+      case '.':
+        return new CharSetNode(CharSet.DOT);
+      case '\\':
+        return new CharSetNode(escape());
+      case '^': case '$':
+        throw error("anchors are not supported");
+      case '*': case '+': case '?': case '{':
+        throw error("dangling meta character '" + c + "'");
+      default:
+        return new CharSetNode(CharSet.of(c));
+      }
+    }
+
+    private int[] characterClass() {
+      var negate = hasNext() && peek() == '^';
+      if (negate) {
+        index++;
+      }
+      var ranges = new int[0];
+      var first = true;
+      for(;;) {
+        var c = next();
+        if (c == ']' && !first) {
+          break;
+        }
+        first = false;
+        if (c == '[' || (c == '&' && hasNext() && peek() == '&')) {
+          throw error("nested character classes are not supported");
+        }
+        int[] item;
+        if (c == '\\') {
+          item = escape();
+        } else {
+          item = CharSet.of(c);
+        }
+        if (item.length == 2 && item[0] == item[1] && hasNext() && peek() == '-'
+            && index + 1 < regex.length() && regex.charAt(index + 1) != ']') {
+          index++;
+          var d = next();
+          int[] upper = (d == '\\')? escape(): CharSet.of(d);
+          if (upper.length != 2 || upper[0] != upper[1] || upper[0] < item[0]) {
+            throw error("illegal character range");
+          }
+          item = new int[] { item[0], upper[0] };
+        }
+        ranges = CharSet.union(ranges, item);
+      }
+      return negate? CharSet.complement(ranges): ranges;
+    }
+
+    private int[] escape() {
+      var c = next();
+      switch(c) {
+      case 'd': return CharSet.DIGITS;
+      case 'D': return CharSet.complement(CharSet.DIGITS);
+      case 'w': return CharSet.WORDS;
+      case 'W': return CharSet.complement(CharSet.WORDS);
+      case 's': return CharSet.SPACES;
+      case 'S': return CharSet.complement(CharSet.SPACES);
+      case 't': return CharSet.of('\t');
+      case 'n': return CharSet.of('\n');
+      case 'r': return CharSet.of('\r');
+      case 'f': return CharSet.of('\f');
+      case 'a': return CharSet.of('\u0007');
+      case 'e': return CharSet.of('\u001B');
+      case 'x': return CharSet.of(hexa(2));
+      case 'u': return CharSet.of(hexa(4));
+      default:
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+          throw error("escape sequence \\" + c + " is not supported");
+        }
+        return CharSet.of(c);
+      }
+    }
+
+    private int hexa(int digits) {
+      if (index + digits > regex.length()) {
+        throw error("illegal hexadecimal escape sequence");
+      }
+      try {
+        return Integer.parseInt(regex, index, index += digits, 16);
+      } catch(NumberFormatException e) {
+        throw error("illegal hexadecimal escape sequence");
+      }
+    }
+  }
+}
@@ -0,0 +1,291 @@
+package com.github.forax.pratt_parser;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Parse many independent inputs in parallel.
+ *
+ * The inputs are split in chunks that are parsed by the threads of an {@link Executor},
+ * each thread uses its own parse function (created by a supplier the first time the thread parses
+ * an input), so the parse function can keep a lexer and a parser and reuse them.
+ * The results are returned in the order of the inputs, if the parsing of an input fails,
+ * the failure is recorded in the corresponding {@link Result} and the other inputs are still parsed.
+ *
+ * @param <E> type of the expressions.
+ */
+public interface BatchParser<E> {
+  /**
+   * The result of the parsing of one input, either an expression or a failure.
+   *
+   * @param <E> type of the expression.
+   */
+  interface Result<E> {
+    /**
+     * Returns true if the input was parsed successfully.
+     * @return true if the input was parsed successfully.
+     */
+    boolean isSuccess();
+
+    /**
+     * Returns the expression parsed from the input.
+     * @return the expression parsed from the input.
+     * @throws IllegalStateException if the parsing has failed, the failure is the cause of the exception.
+     */
+    E value();
+
+    /**
+     * Returns the exception raised when parsing the input.
+     * @return the exception raised when parsing the input or {@code null} if the parsing succeeded.
+     */
+    Throwable failure();
+
+    /**
+     * Creates a successful result.
+     * @param <E> type of the expression.
+     * @param value the expression.
+     * @return a new successful result.
+     */
+    static <E> Result<E> success(E value) {
+      return new Result<>() {
+        @Override
+        public boolean isSuccess() { return true; }
+        @Override
+        public E value() { return value; }
+        @Override
+        public Throwable failure() { return null; }
+        @Override
+        public String toString() { return "success " + value; }
+      };
+    }
+
+    /**
+     * Creates a failed result.
+     * @param <E> type of the expression.
+     * @param failure the exception raised when parsing the input.
+     * @return a new failed result.
+     */
+    static <E> Result<E> failure(Throwable failure) {
+      Objects.requireNonNull(failure);
+      return new Result<>() {
+        @Override
+        public boolean isSuccess() { return false; }
+        @Override
+        public E value() { throw new IllegalStateException("parsing has failed", failure); }
+        @Override
+        public Throwable failure() { return failure; }
+        @Override
+        public String toString() { return "failure " + failure; }
+      };
+    }
+  }
+
+  /**
+   * Parse all the inputs in parallel.
+   *
+   * @param inputs the inputs.
+   * @return the results of the parsing in the order of the inputs.
+   */
+  List<Result<E>> parseAll(Collection<? extends CharSequence> inputs);
+
+  /**
+   * Parse all the inputs of a stream in parallel.
+   * The stream is fully consumed before the parsing starts.
+   *
+   * @param inputs a stream of inputs.
+   * @return the results of the parsing in the order of the inputs.
+   */
+  default List<Result<E>> parseAll(Stream<? extends CharSequence> inputs) {
+    return parseAll(inputs.collect(toList()));
+  }
+
+  /**
+   * Creates a batch parser that uses the threads of the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @param <E> type of the expressions.
+   * @param parseFunctionFactory a supplier of parse function called once per thread.
+   * @return a new batch parser.
+   * @see #create(Supplier, Executor)
+   */
+  static <E> BatchParser<E> create(Supplier<? extends Function<? super CharSequence, ? extends E>> parseFunctionFactory) {
+    return create(parseFunctionFactory, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a batch parser that uses the threads of an executor.
+   *
+   * The executor can be a {@link ForkJoinPool} or on a JDK that supports them, an executor that
+   * starts a virtual thread per task, in that case the parse function is not reused between tasks.
+   *
+   * A parse function typically owns a lexer and a parser created by a {@link Grammar}
+   * and {@link Lexer#reset(CharSequence) resets} the lexer for each input, by example
+   * <pre>
+   *   BatchParser.create(() -&gt; {
+   *       var lexer = lexerFactory.apply("");
+   *       var parser = grammar.parser(lexer);
+   *       return text -&gt; { lexer.reset(text); return parser.parseExpr(P_NONE); };
+   *     }, executor)
+   * </pre>
+   *
+   * @param <E> type of the expressions.
+   * @param parseFunctionFactory a supplier of parse function called once per thread.
+   * @param executor the executor used to parse the inputs.
+   * @return a new batch parser.
+   */
+  static <E> BatchParser<E> create(Supplier<? extends Function<? super CharSequence, ? extends E>> parseFunctionFactory,
+                                   Executor executor) {
+    Objects.requireNonNull(parseFunctionFactory);
+    Objects.requireNonNull(executor);
+    var parseFunctions = ThreadLocal.<Function<? super CharSequence, ? extends E>>withInitial(parseFunctionFactory);
+    var chunkCount = Runtime.getRuntime().availableProcessors() * 4;
+    return inputs -> {
+      var texts = inputs.toArray(new CharSequence[0]);
+      @SuppressWarnings("unchecked")
+      var results = (Result<E>[]) new Result<?>[texts.length];
+      var chunkSize = Math.max(1, (texts.length + chunkCount - 1) / chunkCount);
+      var futures = new CompletableFuture<?>[(texts.length + chunkSize - 1) / chunkSize];
+      for(var i = 0; i < futures.length; i++) {
+        var from = i * chunkSize;
+        var to = Math.min(texts.length, from + chunkSize);
+        futures[i] = CompletableFuture.runAsync(() -> {
+          var parseFunction = parseFunctions.get();
+          for(var j = from; j < to; j++) {
+            Result<E> result;
+            try {
+              result = Result.success(parseFunction.apply(texts[j]));
+            } catch(RuntimeException | StackOverflowError e) {
+              result = Result.failure(e);
+            }
+            results[j] = result;
+          }
+        }, executor);
+      }
+      CompletableFuture.allOf(futures).join();
+      return Arrays.asList(results);
+    };
+  }
+
+  /**
+   * Parse the expressions of a text separated by a separator in parallel using the threads
+   * of the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param tokens the tokens of the text.
+   * @param separator the token that separates the expressions.
+   * @param brackets a map from the opening tokens to the closing tokens.
+   * @param parseFunction a function that parses one expression from a lexer.
+   * @return the results of the parsing in the order of the expressions in the text.
+   * @throws IllegalArgumentException if the buffer was not created by {@link TokenBuffer#of(Lexer, Object)}
+   *         or {@link TokenBuffer#pipelined(Lexer, Object, java.util.concurrent.Executor)}.
+   * @see #parseSplit(TokenBuffer, Object, Map, Function, ForkJoinPool)
+   */
+  static <E, T> List<Result<E>> parseSplit(TokenBuffer<T> tokens, T separator, Map<? extends T, ? extends T> brackets,
+                                           Function<? super Lexer<T>, ? extends E> parseFunction) {
+    return parseSplit(tokens, separator, brackets, parseFunction, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parse the expressions of a text separated by a separator in parallel using the threads of a pool.
+   *
+   * The tokens are first scanned to find the separators that are not between an opening token
+   * and its closing token, then each expression between two separators is parsed by calling
+   * the parse function with a lexer that only reads the tokens of that expression,
+   * the expressions are split in chunks of similar sizes that are parsed in parallel.
+   * The empty expressions are skipped like with {@link IntParser#stream(Lexer, int, Object, Object)}.
+   *
+   * The offsets of the tokens returned by the lexers are offsets in the whole text,
+   * so the offsets reported by the parse function, by example in a {@link Diagnostics},
+   * are correct. If the parse function throws an exception or doesn't consume all the tokens
+   * of an expression, the failure of the result is an {@link IllegalStateException} with
+   * the offset of the token where the parsing stopped in its message.
+   * <pre>
+   *   var tokens = TokenBuffer.of(lexerFactory.apply(text), EOF);
+   *   var results = BatchParser.parseSplit(tokens, SEMICOLON, Map.of(LPAR, RPAR),
+   *       lexer -&gt; grammar.parser(lexer).parseExpr(P_NONE));
+   * </pre>
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param tokens the tokens of the text.
+   * @param separator the token that separates the expressions.
+   * @param brackets a map from the opening tokens to the closing tokens.
+   * @param parseFunction a function that parses one expression from a lexer.
+   * @param pool the pool used to parse the expressions.
+   * @return the results of the parsing in the order of the expressions in the text.
+   * @throws IllegalArgumentException if the buffer was not created by {@link TokenBuffer#of(Lexer, Object)}
+   *         or {@link TokenBuffer#pipelined(Lexer, Object, java.util.concurrent.Executor)}.
+   */
+  static <E, T> List<Result<E>> parseSplit(TokenBuffer<T> tokens, T separator, Map<? extends T, ? extends T> brackets,
+                                           Function<? super Lexer<T>, ? extends E> parseFunction, ForkJoinPool pool) {
+    var buffer = ColumnarTokenBuffer.of(tokens);
+    Objects.requireNonNull(separator);
+    Objects.requireNonNull(parseFunction);
+    Objects.requireNonNull(pool);
+    var splitter = new ExprSplitter<>(separator, brackets);
+
+    // find the expressions, the range of the tokens of an expression is stored as two ints
+    var size = buffer.size();
+    var ranges = new int[16];
+    var count = 0;
+    var from = 0;
+    for(var i = 0; i <= size; i++) {
+      if (i != size && !splitter.isSeparator(buffer.token(i))) {
+        continue;
+      }
+      if (from != i) {
+        if (count == ranges.length) {
+          ranges = Arrays.copyOf(ranges, count << 1);
+        }
+        ranges[count++] = from;
+        ranges[count++] = i;
+      }
+      from = i + 1;
+    }
+
+    var eof = buffer.token(size);
+    var exprRanges = ranges;
+    @SuppressWarnings("unchecked")
+    var results = (Result<E>[]) new Result<?>[count >> 1];
+    var threshold = Math.max(1, size / (pool.getParallelism() * 8));
+    pool.invoke(ForkJoinTask.adapt(() ->
+        parseRange(buffer, exprRanges, 0, results.length, threshold, splitter, eof, parseFunction, results)));
+    return Arrays.asList(results);
+  }
+
+  // parse the expressions between lo and hi, split the expressions in two if there are too many tokens
+  private static <E, T> void parseRange(ColumnarTokenBuffer<T> buffer, int[] ranges, int lo, int hi, int threshold,
+                                        ExprSplitter<T> splitter, T eof, Function<? super Lexer<T>, ? extends E> parseFunction,
+                                        Result<E>[] results) {
+    if (hi - lo > 1 && ranges[(hi << 1) - 1] - ranges[lo << 1] > threshold) {
+      var middle = (lo + hi) >>> 1;
+      ForkJoinTask.invokeAll(
+          ForkJoinTask.adapt(() -> parseRange(buffer, ranges, lo, middle, threshold, splitter, eof, parseFunction, results)),
+          ForkJoinTask.adapt(() -> parseRange(buffer, ranges, middle, hi, threshold, splitter, eof, parseFunction, results)));
+      return;
+    }
+    for(var i = lo; i < hi; i++) {
+      var to = ranges[(i << 1) + 1];
+      var lexer = buffer.lexer(ranges[i << 1], to);
+      Result<E> result;
+      try {
+        result = Result.success(splitter.parse(lexer, eof, buffer.end(to - 1), parseFunction));
+      } catch(IllegalStateException e) {
+        result = Result.failure(e);
+      }
+      results[i] = result;
+    }
+  }
+}
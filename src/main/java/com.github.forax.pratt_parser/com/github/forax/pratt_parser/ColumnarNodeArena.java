@@ -0,0 +1,204 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * The implementation of {@link NodeArena}.
+ *
+ * Each column is an array of {@code int} that doubles its size when it's full.
+ * The trees that have no parent yet are stored in a stack, adding a node pops its children
+ * from the stack and pushes the node.
+ *
+ * @param <T> type of the tokens used as kind of the nodes.
+ */
+final class ColumnarNodeArena<T> implements NodeArena<T> {
+  // the token of each kind, the enum constants or the tokens in the order of discovery
+  private Object[] tokens = new Object[0];
+  private Class<?> enumType;
+  private final HashMap<Object, Integer> kindMap = new HashMap<>();
+
+  private int[] kinds;
+  private int[] starts;
+  private int[] ends;
+  private int[] childCounts;
+  private int[] firstChilds;
+  private int[] nextSiblings;
+  private int[] parents;
+  private int size;
+
+  private int[] roots = new int[16];
+  private int rootCount;
+
+  ColumnarNodeArena(int capacity) {
+    kinds = new int[capacity];
+    starts = new int[capacity];
+    ends = new int[capacity];
+    childCounts = new int[capacity];
+    firstChilds = new int[capacity];
+    nextSiblings = new int[capacity];
+    parents = new int[capacity];
+  }
+
+  private int kind(T token) {
+    if (enumType == null && tokens.length == 0 && token instanceof Enum) {
+      enumType = ((Enum<?>) token).getDeclaringClass();
+      tokens = enumType.getEnumConstants();
+    }
+    if (enumType != null && enumType.isInstance(token)) {
+      return ((Enum<?>) token).ordinal();
+    }
+    var kind = kindMap.get(token);
+    if (kind != null) {
+      return kind;
+    }
+    var newKind = tokens.length;
+    tokens = Arrays.copyOf(tokens, newKind + 1);
+    tokens[newKind] = token;
+    kindMap.put(token, newKind);
+    return newKind;
+  }
+
+  private void grow() {
+    var capacity = Math.max(16, kinds.length << 1);
+    kinds = Arrays.copyOf(kinds, capacity);
+    starts = Arrays.copyOf(starts, capacity);
+    ends = Arrays.copyOf(ends, capacity);
+    childCounts = Arrays.copyOf(childCounts, capacity);
+    firstChilds = Arrays.copyOf(firstChilds, capacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+  }
+
+  @Override
+  public NodeArena<T> node(T kind, int start, int end, int arity) {
+    Objects.requireNonNull(kind);
+    if (arity < 0) {
+      throw new IllegalArgumentException("invalid arity " + arity);
+    }
+    if (arity > rootCount) {
+      throw new IllegalStateException("node " + kind + " needs " + arity + " children but only " + rootCount + " are available");
+    }
+    var node = size;
+    if (node == kinds.length) {
+      grow();
+    }
+    kinds[node] = kind(kind);
+    starts[node] = start;
+    ends[node] = end;
+    childCounts[node] = arity;
+    parents[node] = -1;
+    nextSiblings[node] = -1;
+    var first = rootCount - arity;
+    firstChilds[node] = arity == 0? -1: roots[first];
+    for(var i = first; i < rootCount; i++) {
+      var child = roots[i];
+      parents[child] = node;
+      nextSiblings[child] = i + 1 == rootCount? -1: roots[i + 1];
+    }
+    rootCount = first;
+    if (rootCount == roots.length) {
+      roots = Arrays.copyOf(roots, rootCount << 1);
+    }
+    roots[rootCount++] = node;
+    size = node + 1;
+    return this;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int root() {
+    return rootCount == 0? -1: roots[rootCount - 1];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T kind(int node) {
+    return (T) tokens[kinds[Objects.checkIndex(node, size)]];
+  }
+  @Override
+  public int start(int node) {
+    return starts[Objects.checkIndex(node, size)];
+  }
+  @Override
+  public int end(int node) {
+    return ends[Objects.checkIndex(node, size)];
+  }
+  @Override
+  public int childCount(int node) {
+    return childCounts[Objects.checkIndex(node, size)];
+  }
+  @Override
+  public int firstChild(int node) {
+    return firstChilds[Objects.checkIndex(node, size)];
+  }
+  @Override
+  public int nextSibling(int node) {
+    return nextSiblings[Objects.checkIndex(node, size)];
+  }
+  @Override
+  public int parent(int node) {
+    return parents[Objects.checkIndex(node, size)];
+  }
+
+  @Override
+  public Cursor<T> cursor(int node) {
+    Objects.checkIndex(node, size);
+    return new Cursor<>() {
+      private int current = node;
+
+      @Override
+      public int node() {
+        return current;
+      }
+      @Override
+      public T kind() {
+        return ColumnarNodeArena.this.kind(current);
+      }
+      @Override
+      public int start() {
+        return ColumnarNodeArena.this.start(current);
+      }
+      @Override
+      public int end() {
+        return ColumnarNodeArena.this.end(current);
+      }
+      @Override
+      public int childCount() {
+        return ColumnarNodeArena.this.childCount(current);
+      }
+
+      private boolean moveTo(int node) {
+        if (node == -1) {
+          return false;
+        }
+        current = node;
+        return true;
+      }
+
+      @Override
+      public boolean firstChild() {
+        return moveTo(ColumnarNodeArena.this.firstChild(current));
+      }
+      @Override
+      public boolean nextSibling() {
+        return moveTo(ColumnarNodeArena.this.nextSibling(current));
+      }
+      @Override
+      public boolean parent() {
+        return moveTo(ColumnarNodeArena.this.parent(current));
+      }
+    };
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    rootCount = 0;
+  }
+}
@@ -0,0 +1,311 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * The implementation of {@link TokenBuffer}.
+ *
+ * The columns are split in chunks of {@link #CHUNK_SIZE} tokens, so the chunks already filled are never
+ * copied when the buffer grows. The buffer is filled by one thread, the writer, and read by any number
+ * of threads, the readers.
+ * The directories of the chunks and the table of the kinds of token are stored in an immutable
+ * {@link Columns} that the writer replaces, by writing the volatile field {@link #columns}, when the buffer
+ * grows or when a new kind of token is found. The writer publishes the tokens by writing the volatile field
+ * {@link #size} after {@link #columns}, so a reader that reads {@link #size} then {@link #columns} sees
+ * the chunks, the kinds of token and the values of the chunks written before.
+ *
+ * @param <T> type of the tokens.
+ */
+final class ColumnarTokenBuffer<T> implements TokenBuffer<T> {
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int PUBLISH_MASK = 63;  // publish every 64 tokens
+  private static final int SPIN_COUNT = Runtime.getRuntime().availableProcessors() > 1? 1 << 10: 0;
+
+  private final CharSequence text;
+  private final T eof;
+
+  private final Class<?> enumType;
+  private final HashMap<Object, Integer> kindMap = new HashMap<>();  // only accessed by the writer
+
+  // the directories of the chunks and the token of each kind, the enum constants
+  // or the tokens in the order of discovery, never modified once published
+  private static final class Columns {
+    private final Object[] tokens;
+    private final int[][] kinds;
+    private final int[][] starts;
+    private final int[][] ends;
+
+    private Columns(Object[] tokens, int[][] kinds, int[][] starts, int[][] ends) {
+      this.tokens = tokens;
+      this.kinds = kinds;
+      this.starts = starts;
+      this.ends = ends;
+    }
+
+    // the same columns with one more chunk
+    Columns grow() {
+      var chunk = kinds.length;
+      var kinds = Arrays.copyOf(this.kinds, chunk + 1);
+      var starts = Arrays.copyOf(this.starts, chunk + 1);
+      var ends = Arrays.copyOf(this.ends, chunk + 1);
+      kinds[chunk] = new int[CHUNK_SIZE];
+      starts[chunk] = new int[CHUNK_SIZE];
+      ends[chunk] = new int[CHUNK_SIZE];
+      return new Columns(tokens, kinds, starts, ends);
+    }
+
+    // the same columns with a new kind of token
+    Columns withToken(Object token) {
+      var tokens = Arrays.copyOf(this.tokens, this.tokens.length + 1);
+      tokens[this.tokens.length] = token;
+      return new Columns(tokens, kinds, starts, ends);
+    }
+  }
+
+  private volatile Columns columns;
+  private volatile int size;
+  private volatile boolean done;
+  private volatile int waiters;
+  private Throwable failure;  // published by done
+  private final Object lock = new Object();
+
+  ColumnarTokenBuffer(CharSequence text, T eof) {
+    this.text = text;
+    this.eof = eof;
+    Object[] tokens;
+    if (eof instanceof Enum) {
+      enumType = ((Enum<?>) eof).getDeclaringClass();
+      tokens = enumType.getEnumConstants();
+    } else {
+      enumType = null;
+      tokens = new Object[0];
+    }
+    columns = new Columns(tokens, new int[0][], new int[0][], new int[0][]);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> ColumnarTokenBuffer<T> of(TokenBuffer<T> tokens) {
+    Objects.requireNonNull(tokens);
+    if (!(tokens instanceof ColumnarTokenBuffer)) {
+      throw new IllegalArgumentException("unknown token buffer implementation " + tokens.getClass().getName());
+    }
+    return (ColumnarTokenBuffer<T>) tokens;
+  }
+
+  // returns the kind of a token, newKind if the token is not yet known
+  private int kind(T token, int newKind) {
+    if (enumType != null && enumType.isInstance(token)) {
+      return ((Enum<?>) token).ordinal();
+    }
+    var kind = kindMap.putIfAbsent(token, newKind);
+    return kind == null? newKind: kind;
+  }
+
+  /**
+   * Reads all the tokens of the lexer, called by the writer before {@link #finish(Throwable)}.
+   * @param lexer the lexer.
+   */
+  void fill(Lexer<T> lexer) {
+    var index = 0;
+    var columns = this.columns;
+    try {
+      T token;
+      while(!eof.equals(token = lexer.consume())) {
+        var chunk = index >>> CHUNK_SHIFT;
+        if (chunk == columns.kinds.length) {
+          this.columns = columns = columns.grow();
+        }
+        var kind = kind(token, columns.tokens.length);
+        if (kind == columns.tokens.length) {
+          this.columns = columns = columns.withToken(token);
+        }
+        var offset = index & CHUNK_MASK;
+        columns.kinds[chunk][offset] = kind;
+        columns.starts[chunk][offset] = lexer.start();
+        columns.ends[chunk][offset] = lexer.end();
+        index++;
+        if ((index & PUBLISH_MASK) == 0) {
+          publish(index);
+        }
+      }
+    } finally {
+      publish(index);
+    }
+  }
+
+  /**
+   * Marks the buffer as filled, called by the writer.
+   * @param failure the exception thrown by the writer or null.
+   */
+  void finish(Throwable failure) {
+    synchronized(lock) {
+      this.failure = failure;
+      done = true;
+      lock.notifyAll();
+    }
+  }
+
+  // the columns must be written before the size
+  private void publish(int newSize) {
+    size = newSize;
+    if (waiters != 0) {
+      synchronized(lock) {
+        lock.notifyAll();
+      }
+    }
+  }
+
+  // wait until the token at index is available or the buffer is done, returns the size
+  private int await(int index) {
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("index " + index);
+    }
+    var size = this.size;
+    if (index < size) {
+      return size;
+    }
+    // the writer publishes the tokens often, so spin a little before blocking
+    for(var i = 0; i < SPIN_COUNT && !done; i++) {
+      Thread.onSpinWait();
+      if (index < (size = this.size)) {
+        return size;
+      }
+    }
+    synchronized(lock) {
+      waiters++;
+      try {
+        while(index >= (size = this.size) && !done) {
+          lock.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("interrupted while waiting for the token " + index, e);
+      } finally {
+        waiters--;
+      }
+      // done may be set after the last publish, so re-read the size
+      size = this.size;
+      if (index >= size && failure != null) {
+        throw new IllegalStateException("lexing has failed", failure);
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public int size() {
+    return await(Integer.MAX_VALUE);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T token(int index) {
+    if (index >= await(index)) {
+      return eof;
+    }
+    var columns = this.columns;  // read after the size
+    return (T) columns.tokens[columns.kinds[index >>> CHUNK_SHIFT][index & CHUNK_MASK]];
+  }
+
+  @Override
+  public int start(int index) {
+    if (index >= await(index)) {
+      return -1;
+    }
+    return columns.starts[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  @Override
+  public int end(int index) {
+    if (index >= await(index)) {
+      return -1;
+    }
+    return columns.ends[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+  }
+
+  @Override
+  public Lexer<T> lexer() {
+    return lexer(0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a new lexer that reads the tokens of this buffer between two indexes,
+   * the lexer returns the end of file token after the token at index {@code to - 1}.
+   * The offsets of the tokens are still offsets in the whole text.
+   *
+   * @param from the index of the first token.
+   * @param to the index after the last token.
+   * @return a new lexer that reads the tokens between {@code from} and {@code to}.
+   * @throws IndexOutOfBoundsException if {@code from} is negative or greater than {@code to}.
+   */
+  Lexer<T> lexer(int from, int to) {
+    if (from < 0 || from > to) {
+      throw new IndexOutOfBoundsException("range " + from + " " + to);
+    }
+    return new Lexer<>() {
+      private int position = from;  // index of the next token to consume
+      private int matched = -1;  // index of the last matched token
+      private String value;
+
+      @Override
+      public T token() {
+        return matched == -1? null: token(matched);
+      }
+      @Override
+      public String value() {
+        if (value == null && matched != -1) {
+          var start = start();
+          if (start != -1) {
+            value = text.subSequence(start, end()).toString();
+          }
+        }
+        return value;
+      }
+      @Override
+      public CharSequence text() { return text; }
+      @Override
+      public int start() { return matched == -1 || matched >= to? -1: ColumnarTokenBuffer.this.start(matched); }
+      @Override
+      public int end() { return matched == -1 || matched >= to? -1: ColumnarTokenBuffer.this.end(matched); }
+
+      // the tokens after the range are not read, so a pipelined buffer is not awaited
+      private T token(int index) {
+        return index >= to? eof: ColumnarTokenBuffer.this.token(index);
+      }
+
+      @Override
+      public T consume() {
+        value = null;
+        matched = position;
+        var token = token(position);
+        if (token != eof) {
+          position++;
+        }
+        return token;
+      }
+
+      @Override
+      public T lookhead() {
+        value = null;
+        matched = position;
+        return token(position);
+      }
+
+      @Override
+      public T lookahead(int k) {
+        if (k <= 0) {
+          throw new IllegalArgumentException("invalid lookahead " + k);
+        }
+        if (k == 1) {
+          return lookhead();
+        }
+        var index = position + k - 1;
+        return token(index < 0? Integer.MAX_VALUE: index);  // overflow
+      }
+    };
+  }
+}
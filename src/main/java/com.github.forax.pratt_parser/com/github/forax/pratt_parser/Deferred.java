@@ -0,0 +1,145 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An expression between brackets that is parsed only when its value is {@link #get() requested}.
+ *
+ * A prefix parselet of an opening token can {@link #skip(Lexer, Object, Object, Object, Function, Function) skip}
+ * the tokens until the matching closing token by only counting the brackets, and return a node that
+ * contains a deferred expression, the tokens between the brackets are lexed and parsed again
+ * the first time the expression is requested, by example
+ * <pre>
+ *   LPAR, (p, lexer) -&gt; new Group(Deferred.skip(lexer, LPAR, RPAR, EOF, lexerFactory,
+ *                                                l -&gt; grammar.parser(l).parseExpr(P_NONE)))
+ * </pre>
+ * A deferred expression only stores the offsets of the brackets, so parsing a text costs only
+ * the time and the memory of the expressions that are requested.
+ * The syntax errors between the brackets are only reported when the expression is requested,
+ * only a missing closing token is reported when the tokens are skipped.
+ *
+ * A deferred expression is thread safe, the expression is parsed once and memoized,
+ * if the parsing fails, the exception is propagated and the expression is parsed again
+ * the next time it is requested.
+ *
+ * @param <E> type of the expression.
+ */
+public interface Deferred<E> extends Supplier<E> {
+  /**
+   * Returns the expression between the brackets, parsing it if it was not parsed before.
+   *
+   * @return the expression between the brackets.
+   * @throws IllegalStateException if the tokens between the brackets are not an expression.
+   */
+  @Override
+  E get();
+
+  /**
+   * Returns true if the expression has already been parsed.
+   * @return true if the expression has already been parsed.
+   */
+  boolean isParsed();
+
+  /**
+   * Returns the offset in the text after the opening token.
+   * @return the offset in the text after the opening token.
+   */
+  int start();
+
+  /**
+   * Returns the offset in the text of the closing token.
+   * @return the offset in the text of the closing token.
+   */
+  int end();
+
+  /**
+   * Skips the tokens until the closing token that matches an opening token already consumed and returns
+   * an expression that parses the tokens between the brackets when requested.
+   * The closing token is consumed.
+   *
+   * The tokens between the brackets are lexed by a lexer created on the characters between
+   * the brackets, the offsets of the tokens are still offsets in the {@link Lexer#text() text}
+   * of the lexer, so the text must stay valid, the lexers that read their input from a stream
+   * are not supported.
+   *
+   * @param <E> type of the expression.
+   * @param <T> type of the tokens.
+   * @param lexer the lexer, the last consumed token is the opening token.
+   * @param open the opening token.
+   * @param close the closing token.
+   * @param eof the end of file token of the lexers.
+   * @param lexerFactory the lexer factory used to lex the tokens between the brackets.
+   * @param parseFunction a function that parses one expression from a lexer.
+   * @return a deferred expression.
+   * @throws IllegalStateException if there is no closing token that matches the opening token.
+   */
+  static <E, T> Deferred<E> skip(Lexer<T> lexer, T open, T close, T eof,
+                                 Function<? super CharSequence, ? extends Lexer<T>> lexerFactory,
+                                 Function<? super Lexer<T>, ? extends E> parseFunction) {
+    Objects.requireNonNull(lexer);
+    Objects.requireNonNull(open);
+    Objects.requireNonNull(close);
+    Objects.requireNonNull(eof);
+    Objects.requireNonNull(lexerFactory);
+    Objects.requireNonNull(parseFunction);
+    var text = lexer.text();
+    var start = lexer.end();
+    var depth = 1;
+    for(;;) {
+      var token = lexer.consume();
+      if (eof.equals(token)) {
+        throw new IllegalStateException("parsing error " + token + " but should be " + close);
+      }
+      if (open.equals(token)) {
+        depth++;
+      } else if (close.equals(token) && --depth == 0) {
+        break;
+      }
+    }
+    var end = lexer.start();
+    return new Deferred<>() {
+      private volatile E expr;
+
+      @Override
+      public E get() {
+        var expr = this.expr;
+        if (expr != null) {
+          return expr;
+        }
+        synchronized(this) {
+          expr = this.expr;
+          if (expr == null) {
+            var lexer = ForwardingLexer.shift(lexerFactory.apply(text.subSequence(start, end)), text, start);
+            expr = Objects.requireNonNull(parseFunction.apply(lexer), "the parse function returns null");
+            var token = lexer.lookhead();
+            if (!eof.equals(token)) {
+              throw new IllegalStateException("parsing error " + token + " at offset " + lexer.start() + " but should be " + close);
+            }
+            this.expr = expr;
+          }
+          return expr;
+        }
+      }
+
+      @Override
+      public boolean isParsed() {
+        return expr != null;
+      }
+      @Override
+      public int start() {
+        return start;
+      }
+      @Override
+      public int end() {
+        return end;
+      }
+
+      @Override
+      public String toString() {
+        return isParsed()? "Deferred " + expr: "Deferred " + text.subSequence(start, end);
+      }
+    };
+  }
+}
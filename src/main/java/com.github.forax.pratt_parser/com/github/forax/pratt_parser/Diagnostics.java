@@ -0,0 +1,146 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A sink of the parsing errors reported by a {@link IntGrammar#parser(Lexer, java.util.Set, Object, Diagnostics)
+ * recovering parser} instead of throwing an exception.
+ *
+ * A diagnostic is the position of the token found, the token expected or null if an expression was expected
+ * and the token found. The diagnostics are stored in arrays allocated when the sink is created,
+ * so reporting a diagnostic doesn't allocate, when the sink is full the diagnostics are only counted.
+ * A sink can be {@link #clear() cleared} and reused for another text.
+ *
+ * A sink is not thread safe, it should be used by one parser at a time.
+ *
+ * @param <T> type of the tokens.
+ */
+public interface Diagnostics<T> {
+  /**
+   * Records a diagnostic, if the sink is full, the diagnostic is only counted.
+   *
+   * @param start the start offset of the token found or -1.
+   * @param end the end offset of the token found or -1.
+   * @param expected the token expected or null if an expression was expected.
+   * @param found the token found.
+   */
+  void report(int start, int end, T expected, T found);
+
+  /**
+   * Returns the number of diagnostics recorded, at most the capacity of the sink.
+   * @return the number of diagnostics recorded.
+   */
+  int size();
+
+  /**
+   * Returns the number of diagnostics reported, including the ones not recorded because the sink was full.
+   * @return the number of diagnostics reported.
+   */
+  int reportCount();
+
+  /**
+   * Returns the start offset of the token found of a diagnostic.
+   * @param index the index of the diagnostic.
+   * @return the start offset of the token found.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int start(int index);
+
+  /**
+   * Returns the end offset of the token found of a diagnostic.
+   * @param index the index of the diagnostic.
+   * @return the end offset of the token found.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int end(int index);
+
+  /**
+   * Returns the token expected of a diagnostic.
+   * @param index the index of the diagnostic.
+   * @return the token expected or null if an expression was expected.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  T expected(int index);
+
+  /**
+   * Returns the token found of a diagnostic.
+   * @param index the index of the diagnostic.
+   * @return the token found.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  T found(int index);
+
+  /**
+   * Removes all the diagnostics.
+   */
+  void clear();
+
+  /**
+   * Creates a sink that can record a fixed number of diagnostics.
+   *
+   * @param <T> type of the tokens.
+   * @param capacity the maximum number of diagnostics recorded.
+   * @return a new sink.
+   * @throws IllegalArgumentException if the capacity is negative.
+   */
+  static <T> Diagnostics<T> create(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("invalid capacity " + capacity);
+    }
+    var starts = new int[capacity];
+    var ends = new int[capacity];
+    var expecteds = new Object[capacity];
+    var founds = new Object[capacity];
+    return new Diagnostics<>() {
+      private int reportCount;
+
+      @Override
+      public void report(int start, int end, T expected, T found) {
+        var index = reportCount;
+        if (index < capacity) {
+          starts[index] = start;
+          ends[index] = end;
+          expecteds[index] = expected;
+          founds[index] = found;
+        }
+        reportCount = index + 1;
+      }
+
+      @Override
+      public int size() {
+        return Math.min(reportCount, capacity);
+      }
+      @Override
+      public int reportCount() {
+        return reportCount;
+      }
+
+      @Override
+      public int start(int index) {
+        return starts[Objects.checkIndex(index, size())];
+      }
+      @Override
+      public int end(int index) {
+        return ends[Objects.checkIndex(index, size())];
+      }
+      @Override
+      @SuppressWarnings("unchecked")
+      public T expected(int index) {
+        return (T) expecteds[Objects.checkIndex(index, size())];
+      }
+      @Override
+      @SuppressWarnings("unchecked")
+      public T found(int index) {
+        return (T) founds[Objects.checkIndex(index, size())];
+      }
+
+      @Override
+      public void clear() {
+        Arrays.fill(expecteds, 0, size(), null);
+        Arrays.fill(founds, 0, size(), null);
+        reportCount = 0;
+      }
+    };
+  }
+}
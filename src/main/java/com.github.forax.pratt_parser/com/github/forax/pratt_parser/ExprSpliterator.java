@@ -0,0 +1,61 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The spliterator of the streams of expressions separated by a separator token,
+ * see {@link Parser#stream(Lexer, Object, Object, Object)} and {@link IntParser#stream(Lexer, int, Object, Object)},
+ * an expression is parsed each time the stream asks for the next element.
+ *
+ * @param <E> type of the expressions.
+ * @param <T> type of the tokens.
+ */
+class ExprSpliterator<E, T> extends AbstractSpliterator<E> {
+  private final Lexer<? extends T> lexer;
+  private final T separator;
+  private final T eof;
+  private final Supplier<? extends E> parseExpr;
+
+  ExprSpliterator(Lexer<? extends T> lexer, T separator, T eof, Supplier<? extends E> parseExpr) {
+    super(Long.MAX_VALUE, Spliterator.ORDERED);
+    this.lexer = Objects.requireNonNull(lexer);
+    this.separator = Objects.requireNonNull(separator);
+    this.eof = Objects.requireNonNull(eof);
+    this.parseExpr = parseExpr;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super E> action) {
+    T token;
+    while(separator.equals(token = lexer.lookhead())) {
+      lexer.consume();
+    }
+    if (eof.equals(token)) {
+      return false;
+    }
+    var expr = parseExpr.get();
+    token = lexer.lookhead();
+    if (!separator.equals(token) && !eof.equals(token)) {
+      notSeparated(token);
+      while(!separator.equals(token = lexer.lookhead()) && !eof.equals(token)) {
+        lexer.consume();
+      }
+    }
+    action.accept(expr);
+    return true;
+  }
+
+  /**
+   * Called when an expression is followed by a token that is neither the separator nor the end of the text,
+   * if this method returns, the tokens are skipped until the next separator.
+   * @param token the token after the expression.
+   * @throws IllegalStateException by default.
+   */
+  void notSeparated(T token) {
+    throw new IllegalStateException("parsing error " + token + " but should be " + separator);
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Splits a sequence of tokens into expressions separated by a separator token and parses them,
+ * the code shared by {@link BatchParser#parseSplit(TokenBuffer, Object, Map, Function)}
+ * and {@link FlowParser}.
+ *
+ * The separators between an opening token and its closing token don't split the expressions,
+ * an unbalanced closing token doesn't hide the next separators.
+ * The depth of the brackets is the only mutable state, so {@link #parse(Lexer, Object, int, Function)}
+ * can be called by several threads.
+ *
+ * @param <T> type of the tokens.
+ */
+final class ExprSplitter<T> {
+  private final T separator;
+  private final Set<? extends T> opens;
+  private final Set<? extends T> closes;
+  private int depth;
+
+  ExprSplitter(T separator, Map<? extends T, ? extends T> brackets) {
+    this.separator = separator;
+    this.opens = Set.copyOf(brackets.keySet());
+    this.closes = Set.copyOf(brackets.values());
+  }
+
+  /**
+   * Returns true if a token is a separator that is not between brackets,
+   * must be called on all the tokens in order.
+   * @param token the next token.
+   * @return true if the token ends an expression.
+   */
+  boolean isSeparator(T token) {
+    if (opens.contains(token)) {
+      depth++;
+      return false;
+    }
+    if (closes.contains(token)) {
+      depth = Math.max(0, depth - 1);
+      return false;
+    }
+    return depth == 0 && separator.equals(token);
+  }
+
+  /**
+   * Parses one expression with a lexer that returns the end of file token after the expression.
+   *
+   * @param <E> type of the expressions.
+   * @param lexer a lexer that returns the offsets of the tokens in the whole text.
+   * @param eof the end of file token of the lexer.
+   * @param end the offset of the end of the expression, reported if the lexer is at the end.
+   * @param parseFunction a function that parses one expression from a lexer.
+   * @return the expression returned by the parse function.
+   * @throws IllegalStateException if the parse function throws an exception or doesn't consume
+   *         all the tokens, with the offset of the token where the parsing stopped in its message.
+   */
+  <E> E parse(Lexer<T> lexer, T eof, int end, Function<? super Lexer<T>, ? extends E> parseFunction) {
+    E expr;
+    T token;
+    try {
+      expr = parseFunction.apply(lexer);
+      token = lexer.lookhead();
+    } catch(RuntimeException | StackOverflowError e) {
+      var start = lexer.start();  // -1 if the error is at the end of the expression
+      throw new IllegalStateException("parsing error at offset " + (start == -1? end: start), e);
+    }
+    if (!eof.equals(token)) {
+      throw new IllegalStateException("parsing error " + token + " at offset " + lexer.start() + " but should be " + separator);
+    }
+    return expr;
+  }
+}
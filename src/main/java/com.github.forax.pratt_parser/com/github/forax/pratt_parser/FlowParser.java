@@ -0,0 +1,61 @@
+package com.github.forax.pratt_parser;
+
+import java.nio.CharBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * Parse expressions from a text that arrives in chunks, without blocking a thread while waiting
+ * for the next chunk.
+ *
+ * A parser is a {@link Flow.Processor} that subscribes to a publisher of chunks of text
+ * and publishes the expressions separated by a separator token, so the text can be read from
+ * an asynchronous source like a network connection.
+ *
+ * @see BatchParser#parseSplit(TokenBuffer, Object, Map, Function)
+ */
+public interface FlowParser {
+  /**
+   * Creates a processor that parses the expressions of the chunks of text it receives.
+   *
+   * The chunks are appended to the text not yet parsed, the tokens are lexed as the chunks arrive,
+   * an expression is parsed by calling the parse function when a separator that is not between
+   * an opening token and its closing token is found, or when the publisher of the chunks completes.
+   * A token that ends at the end of a chunk is lexed again with the next chunk, so a token
+   * or an expression can span several chunks, the lexer should recognize a token by looking at most
+   * one character after the token, like for the usual numbers, identifiers and operators.
+   * The empty expressions are skipped like with {@link IntParser#stream(Lexer, int, Object, Object)}.
+   *
+   * The processor has only one subscriber, a new chunk is only requested when all the expressions
+   * of the previous chunks have been requested by the subscriber, so the number of expressions
+   * not yet delivered is bounded by the number of expressions of a chunk.
+   *
+   * The lexer passed to the parse function only reads the tokens of one expression but its offsets
+   * are offsets in the whole text, like with {@link BatchParser#parseSplit(TokenBuffer, Object, Map, Function)},
+   * its {@link Lexer#text() text} only contains the characters of the expression, the characters before
+   * have already been discarded. The offsets are ints, so a text of more than 2 GB is reported as a failure.
+   * If the parse function throws an exception or doesn't consume all the tokens of an expression,
+   * the subscriber receives an {@link IllegalStateException} with the offset of the token where
+   * the parsing stopped in its message and the subscription to the publisher of chunks is cancelled.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param lexerFactory a lexer factory, the lexers are created on the text not yet parsed.
+   * @param eof the end of file token of the lexers.
+   * @param separator the token that separates the expressions.
+   * @param brackets a map from the opening tokens to the closing tokens.
+   * @param parseFunction a function that parses one expression from a lexer.
+   * @return a new processor.
+   */
+  static <E, T> Flow.Processor<CharBuffer, E> create(Function<? super CharSequence, ? extends Lexer<T>> lexerFactory,
+                                                     T eof, T separator, Map<? extends T, ? extends T> brackets,
+                                                     Function<? super Lexer<T>, ? extends E> parseFunction) {
+    Objects.requireNonNull(lexerFactory);
+    Objects.requireNonNull(eof);
+    Objects.requireNonNull(separator);
+    Objects.requireNonNull(parseFunction);
+    return new FlowProcessor<E, T>(lexerFactory, eof, new ExprSplitter<>(separator, brackets), parseFunction);
+  }
+}
@@ -0,0 +1,328 @@
+package com.github.forax.pratt_parser;
+
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * The implementation of {@link FlowParser#create(Function, Object, Object, java.util.Map, Function)}.
+ *
+ * The state of the processor is guarded by its lock, but the signals to the subscriber and to
+ * the subscription of the publisher are sent without holding the lock, so a subscriber or a publisher
+ * that waits for another thread that calls the processor can not deadlock.
+ * The signals are sent by {@link #drain()} that is not reentrant, only one thread drains at a time
+ * and a subscriber that requests more expressions in {@link Flow.Subscriber#onNext(Object)}
+ * doesn't grow the stack.
+ *
+ * The text not yet parsed is stored in {@link #pending}, the offsets of the scan are offsets in
+ * {@link #pending}, {@link #consumed} is the number of characters removed from the start of the text.
+ *
+ * @param <E> type of the expressions.
+ * @param <T> type of the tokens.
+ */
+final class FlowProcessor<E, T> implements Flow.Processor<CharBuffer, E> {
+  private final Function<? super CharSequence, ? extends Lexer<T>> lexerFactory;
+  private final T eof;
+  private final ExprSplitter<T> splitter;
+  private final Function<? super Lexer<T>, ? extends E> parseFunction;
+
+  // the text
+  private final StringBuilder pending = new StringBuilder();
+  private long consumed;
+  private int exprStart;      // start of the current expression
+  private boolean exprEmpty = true;
+  private int scanned;        // end of the last token scanned
+
+  // the signals
+  private Flow.Subscription upstream;
+  private Flow.Subscriber<? super E> downstream;
+  private final ArrayDeque<E> ready = new ArrayDeque<>();
+  private long demand;
+  private boolean requested;  // a chunk was requested but not yet received
+  private boolean completed;
+  private Throwable failure;
+  private boolean cancelling; // the subscription to the publisher should be cancelled
+  private boolean done;       // the subscriber has received onComplete or onError or has cancelled
+  private boolean draining;
+
+  FlowProcessor(Function<? super CharSequence, ? extends Lexer<T>> lexerFactory, T eof, ExprSplitter<T> splitter,
+                Function<? super Lexer<T>, ? extends E> parseFunction) {
+    this.lexerFactory = lexerFactory;
+    this.eof = eof;
+    this.splitter = splitter;
+    this.parseFunction = parseFunction;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super E> subscriber) {
+    Objects.requireNonNull(subscriber);
+    boolean accepted;
+    synchronized(this) {
+      accepted = downstream == null;
+      if (accepted) {
+        downstream = subscriber;
+        draining = true;  // no signal before onSubscribe
+      }
+    }
+    if (!accepted) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) { /* empty */ }
+        @Override
+        public void cancel() { /* empty */ }
+      });
+      subscriber.onError(new IllegalStateException("only one subscriber is supported"));
+      return;
+    }
+    try {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          synchronized(FlowProcessor.this) {
+            if (n <= 0) {
+              fail(new IllegalArgumentException("invalid request " + n));
+            } else {
+              demand = demand + n < 0? Long.MAX_VALUE: demand + n;  // overflow
+            }
+          }
+          drain();
+        }
+
+        @Override
+        public void cancel() {
+          synchronized(FlowProcessor.this) {
+            if (done) {
+              return;
+            }
+            done = true;
+            ready.clear();
+            cancelling = true;
+          }
+          drain();
+        }
+      });
+    } finally {
+      synchronized(this) {
+        draining = false;
+      }
+    }
+    drain();
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    Objects.requireNonNull(subscription);
+    boolean accepted;
+    synchronized(this) {
+      accepted = upstream == null && !done;
+      if (accepted) {
+        upstream = subscription;
+      }
+    }
+    if (!accepted) {
+      subscription.cancel();
+      return;
+    }
+    drain();
+  }
+
+  @Override
+  public void onNext(CharBuffer chunk) {
+    Objects.requireNonNull(chunk);
+    synchronized(this) {
+      requested = false;
+      if (done || failure != null) {
+        return;
+      }
+      pending.append(chunk);
+      scan(false);
+    }
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    Objects.requireNonNull(throwable);
+    synchronized(this) {
+      if (failure == null) {
+        failure = throwable;
+      }
+      completed = true;
+    }
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    synchronized(this) {
+      if (!completed && failure == null) {
+        scan(true);
+      }
+      completed = true;
+    }
+    drain();
+  }
+
+  // called with the lock held, the subscription to the publisher is cancelled by drain()
+  private void fail(Throwable throwable) {
+    if (failure == null) {
+      failure = throwable;
+      cancelling = true;
+    }
+  }
+
+  // lex the tokens after the last token scanned, parse the expressions followed by a separator
+  // and all the remaining tokens at the end of the text
+  private void scan(boolean last) {
+    var length = pending.length();
+    var base = scanned;
+    var lexer = lexerFactory.apply(pending.subSequence(base, length));
+    T token;
+    while(!eof.equals(token = lexer.consume())) {
+      var start = base + lexer.start();
+      var end = base + lexer.end();
+      if (end == length && !last) {
+        break;  // the token may continue in the next chunk
+      }
+      scanned = end;
+      if (splitter.isSeparator(token)) {
+        if (!exprEmpty && !parse(exprStart, start)) {
+          return;
+        }
+        exprStart = end;
+        exprEmpty = true;
+        continue;
+      }
+      exprEmpty = false;
+    }
+    if (last && !exprEmpty && !parse(exprStart, length)) {
+      return;
+    }
+    // remove the text already parsed
+    pending.delete(0, exprStart);
+    consumed += exprStart;
+    scanned -= exprStart;
+    exprStart = 0;
+  }
+
+  // parse an expression, returns false if the parsing has failed
+  private boolean parse(int from, int to) {
+    if (consumed + to > Integer.MAX_VALUE) {
+      fail(new IllegalStateException("the offset " + (consumed + to) + " is not an int"));
+      return false;
+    }
+    var offset = (int) (consumed + from);
+    var text = pending.substring(from, to);
+    var lexer = ForwardingLexer.shift(lexerFactory.apply(text), new ExprText(text, offset), offset);
+    try {
+      var expr = splitter.parse(lexer, eof, offset + text.length(), parseFunction);
+      ready.add(Objects.requireNonNull(expr, "the parse function returns null"));
+      return true;
+    } catch(RuntimeException e) {
+      fail(e);
+      return false;
+    }
+  }
+
+  // send the signals without holding the lock, the state is re-read under the lock before each signal
+  private void drain() {
+    Flow.Subscriber<? super E> subscriber;
+    Flow.Subscription subscription;
+    synchronized(this) {
+      if (draining || downstream == null) {
+        return;
+      }
+      draining = true;
+      subscriber = downstream;
+    }
+    for(;;) {
+      E item = null;
+      Throwable error = null;
+      var complete = false;
+      var cancel = false;
+      synchronized(this) {
+        subscription = upstream;
+        if (cancelling && subscription != null) {
+          cancelling = false;
+          cancel = true;
+        } else if (done) {
+          draining = false;
+          return;
+        } else if (!ready.isEmpty()) {
+          if (demand == 0) {
+            draining = false;
+            return;
+          }
+          demand--;
+          item = ready.poll();
+        } else if (failure != null) {
+          done = true;
+          error = failure;
+        } else if (completed) {
+          done = true;
+          complete = true;
+        } else if (demand == 0 || requested || subscription == null) {
+          draining = false;
+          return;
+        } else {
+          requested = true;
+        }
+      }
+      if (cancel) {
+        subscription.cancel();
+      } else if (item != null) {
+        subscriber.onNext(item);
+      } else if (error != null) {
+        subscriber.onError(error);
+      } else if (complete) {
+        subscriber.onComplete();
+      } else {
+        subscription.request(1);  // may call onNext() synchronously
+      }
+    }
+  }
+
+  /**
+   * The text of an expression seen at its offset in the whole text, the characters before
+   * the expression have already been removed so they are not available, like the window of a lexer
+   * that reads its input from a stream.
+   */
+  private static final class ExprText implements CharSequence {
+    private final String text;
+    private final int offset;
+
+    private ExprText(String text, int offset) {
+      this.text = text;
+      this.offset = offset;
+    }
+
+    @Override
+    public int length() {
+      return offset + text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < offset) {
+        throw new IndexOutOfBoundsException("index " + index + " is before the expression");
+      }
+      return text.charAt(index - offset);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      Objects.checkFromToIndex(start, end, length());
+      if (start < offset) {
+        throw new IndexOutOfBoundsException("index " + start + " is before the expression");
+      }
+      return text.substring(start - offset, end - offset);
+    }
+
+    @Override
+    public String toString() {
+      return text;  // only the characters of the expression
+    }
+  }
+}
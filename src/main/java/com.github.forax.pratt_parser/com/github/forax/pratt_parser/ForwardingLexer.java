@@ -0,0 +1,87 @@
+package com.github.forax.pratt_parser;
+
+/**
+ * A lexer that forwards all the calls to another lexer, a subclass only overrides the methods
+ * that differ from the lexer it wraps.
+ *
+ * {@link #consume(Object)} is not forwarded, the default implementation calls {@link #consume()},
+ * so it sees the {@link #consume()} of the subclass.
+ *
+ * @param <T> type of the tokens.
+ */
+abstract class ForwardingLexer<T> implements Lexer<T> {
+  final Lexer<T> lexer;
+
+  ForwardingLexer(Lexer<T> lexer) {
+    this.lexer = lexer;
+  }
+
+  @Override
+  public T token() {
+    return lexer.token();
+  }
+  @Override
+  public String value() {
+    return lexer.value();
+  }
+  @Override
+  public CharSequence text() {
+    return lexer.text();
+  }
+  @Override
+  public int start() {
+    return lexer.start();
+  }
+  @Override
+  public int end() {
+    return lexer.end();
+  }
+  @Override
+  public T consume() {
+    return lexer.consume();
+  }
+  @Override
+  public T lookhead() {
+    return lexer.lookhead();
+  }
+  @Override
+  public T lookahead(int k) {
+    return lexer.lookahead(k);
+  }
+  @Override
+  public void reset(CharSequence text) {
+    lexer.reset(text);
+  }
+
+  /**
+   * Returns a lexer on a part of a text that returns the offsets in the whole text.
+   *
+   * @param <T> type of the tokens.
+   * @param lexer a lexer on the part of the text.
+   * @param text the whole text.
+   * @param offset the offset of the part in the whole text.
+   * @return a lexer that returns the offsets in the whole text.
+   */
+  static <T> Lexer<T> shift(Lexer<T> lexer, CharSequence text, int offset) {
+    return new ForwardingLexer<>(lexer) {
+      @Override
+      public CharSequence text() {
+        return text;
+      }
+      @Override
+      public int start() {
+        var start = lexer.start();
+        return start == -1? -1: start + offset;
+      }
+      @Override
+      public int end() {
+        var end = lexer.end();
+        return end == -1? -1: end + offset;
+      }
+      @Override
+      public void reset(CharSequence text) {
+        throw new UnsupportedOperationException();  // the offsets are only valid in the whole text
+      }
+    };
+  }
+}
@@ -0,0 +1,199 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An immutable description of the parselets and the precedences of a language that can be shared
+ * between threads and used to create a cheap {@link Parser} for each input.
+ *
+ * When created, the tokens are mapped to dense indexes, the ordinal if the tokens are enum values,
+ * so finding the parselet or the precedence of a token is an array access.
+ *
+ * Because a grammar is not bound to a lexer, the parselets take the lexer of the current parser
+ * as parameter.
+ *
+ * @param <E> type of the expressions.
+ * @param <T> type of the tokens.
+ * @param <P> type of the precedences.
+ */
+public interface Grammar<E, T, P> {
+  /**
+   * An object that knows how to parse a prefix expression.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param <P> type of the precedences.
+   */
+  interface PrefixParselet<E, T, P> {
+    /**
+     * Parse a prefix expression.
+     *
+     * @param parser the parser to ask to parse the expression recursively.
+     * @param lexer the lexer of the parser.
+     * @return return the value of the parsed expression.
+     */
+    E parse(Parser<E, P> parser, Lexer<T> lexer);
+  }
+
+  /**
+   * An object that knows how to parse a suffix expression.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param <P> type of the precedences.
+   */
+  interface SuffixParselet<E, T, P> {
+    /**
+     * Parse a suffix expression.
+     *
+     * @param parser the parser to ask to parse the expression recursively.
+     * @param lexer the lexer of the parser.
+     * @param left left part of the expression.
+     * @return return the value of the parsed expression.
+     */
+    E parse(Parser<E, P> parser, Lexer<T> lexer, E left);
+  }
+
+  /**
+   * Creates a new parser that parses the tokens of a lexer using the parselets of this grammar.
+   * Creating a parser is cheap, it's just a wrapper around the lexer.
+   * If the lexer is {@link Lexer#reset(CharSequence) reset} with a new text, the parser can be reused
+   * to parse the new text.
+   *
+   * @param lexer a lexer.
+   * @return a new parser.
+   */
+  Parser<E, P> parser(Lexer<T> lexer);
+
+  /**
+   * Creates a grammar from the function that associate a precedence to a token and
+   * two {@link java.util.Map}s that associate a token to a parselet.
+   *
+   * If the tokens are enum values, the function {@code precedenceFun} is called once per enum value
+   * when creating the grammar, otherwise it is called once per token of the maps when creating
+   * the grammar and each time the precedence of another token is needed.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param <P> type of the precedences.
+   * @param precedenceFun a function that returns the precedence of a token when used in suffix position.
+   * @param comparator a comparator of precedence.
+   * @param prefixMap a map that associate a token in prefix position and the code to execute to parse
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the code to execute to parse
+   *                  the corresponding suffix expression.
+   * @return a new grammar.
+   */
+  static <E, T, P>
+    Grammar<E, T, P> create(Function<? super T, ? extends P> precedenceFun, Comparator<? super P> comparator,
+                            Map<T, ? extends PrefixParselet<E, T, P>> prefixMap,
+                            Map<T, ? extends SuffixParselet<E, T, P>> suffixMap) {
+    Objects.requireNonNull(precedenceFun);
+    Objects.requireNonNull(comparator);
+    Objects.requireNonNull(prefixMap);
+    Objects.requireNonNull(suffixMap);
+
+    var tokenIndex = TokenIndex.create(prefixMap, suffixMap);
+    @SuppressWarnings("unchecked")
+    var prefixes = tokenIndex.table(prefixMap, size -> (PrefixParselet<E, T, P>[]) new PrefixParselet<?, ?, ?>[size]);
+    @SuppressWarnings("unchecked")
+    var suffixes = tokenIndex.table(suffixMap, size -> (SuffixParselet<E, T, P>[]) new SuffixParselet<?, ?, ?>[size]);
+    var precedences = new Object[tokenIndex.size()];
+    for(var i = 0; i < precedences.length; i++) {
+      precedences[i] = precedenceFun.apply(tokenIndex.token(i));
+    }
+
+    return lexer -> {
+      Objects.requireNonNull(lexer);
+      return new Parser<>() {
+        @SuppressWarnings("unchecked")
+        private P precedence(T token) {
+          var index = tokenIndex.index(token);
+          return index == -1? precedenceFun.apply(token): (P) precedences[index];
+        }
+
+        @Override
+        public E parseExpr(P precedence) {
+          Objects.requireNonNull(precedence);
+
+          var token = lexer.consume();
+          var index = tokenIndex.index(token);
+          var prefix = index == -1? null: prefixes[index];
+          if (prefix == null) {
+            throw new IllegalStateException("Could not parse token " +  token + " of value " + lexer.value());
+          }
+          var left = prefix.parse(this, lexer);
+
+          while (comparator.compare(precedence, precedence(lexer.lookhead())) < 0) {
+            token = lexer.consume();
+            index = tokenIndex.index(token);
+            var suffix = index == -1? null: suffixes[index];
+            if (suffix == null) {
+              throw new IllegalStateException("Could not parse token " +  token + " of value " + lexer.value() + " in suffix position");
+            }
+            left = suffix.parse(this, lexer, left);
+          }
+          return left;
+        }
+      };
+    };
+  }
+
+  /**
+   * Creates a grammar like {@link #create(Function, Comparator, Map, Map)} with parsers
+   * monitored by a {@link ParserMonitor}.
+   *
+   * If neither the monitor nor the Flight Recorder event are enabled, a call to {@link Parser#parseExpr(Object)}
+   * runs the same code as a parser of a grammar created without a monitor.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param <P> type of the precedences.
+   * @param precedenceFun a function that returns the precedence of a token when used in suffix position.
+   * @param comparator a comparator of precedence.
+   * @param prefixMap a map that associate a token in prefix position and the code to execute to parse
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the code to execute to parse
+   *                  the corresponding suffix expression.
+   * @param monitor a monitor created by {@link ParserMonitor#create()}.
+   * @return a new grammar.
+   * @throws IllegalArgumentException if the monitor was not created by {@link ParserMonitor#create()}.
+   */
+  static <E, T, P>
+    Grammar<E, T, P> create(Function<? super T, ? extends P> precedenceFun, Comparator<? super P> comparator,
+                            Map<T, ? extends PrefixParselet<E, T, P>> prefixMap,
+                            Map<T, ? extends SuffixParselet<E, T, P>> suffixMap,
+                            ParserMonitor<T> monitor) {
+    var monitorImpl = Monitor.of(monitor);
+    var grammar = create(precedenceFun, comparator, prefixMap, suffixMap);
+    var monitoredGrammar = create(precedenceFun, comparator,
+        monitorImpl.<PrefixParselet<E, T, P>>monitoredParselets(prefixMap, (prefix, counter) -> (parser, lexer) -> {
+          var session = Monitor.session(lexer);
+          session.enter(counter);
+          try {
+            return prefix.parse(parser, lexer);
+          } finally {
+            session.exit();
+          }
+        }),
+        monitorImpl.<SuffixParselet<E, T, P>>monitoredParselets(suffixMap, (suffix, counter) -> (parser, lexer, left) -> {
+          var session = Monitor.session(lexer);
+          session.enter(counter);
+          try {
+            return suffix.parse(parser, lexer, left);
+          } finally {
+            session.exit();
+          }
+        }));
+
+    return lexer -> {
+      var session = new Monitor.Session<>(lexer);
+      var parser = grammar.parser(lexer);
+      var monitoredParser = monitoredGrammar.parser(session);
+      return precedence -> monitorImpl.parseExpr(session, parser, monitoredParser, precedence, Parser<E, P>::parseExpr);
+    };
+  }
+}
@@ -0,0 +1,345 @@
+package com.github.forax.pratt_parser;
+
+import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.filterReturnValue;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.permuteArguments;
+import static java.lang.invoke.MethodHandles.whileLoop;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import com.github.forax.pratt_parser.IntGrammar.PrefixParselet;
+import com.github.forax.pratt_parser.IntGrammar.SuffixParselet;
+
+/**
+ * Compiles the parselets and the precedences of an {@link IntGrammar} whose tokens are enum values
+ * to a tree of method handles, and generates a parser class that calls this tree through
+ * a constant {@code invokedynamic} call site.
+ *
+ * Because the call site is constant, the JIT sees the parselets and the precedences as constants,
+ * the dispatch on the ordinal of a token is a balanced tree of tests on constant values
+ * and the parselets are inlined.
+ *
+ * A class is generated per compiled grammar and is never unloaded, the tree of method handles
+ * is stored in a static field of the generated class, so a compiled grammar should be
+ * created once, typically stored in a static final field.
+ */
+final class GrammarCompiler {
+  private GrammarCompiler() {
+    throw new AssertionError();
+  }
+
+  private static final Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodHandle INDEX, LESS_THAN, NO_PREFIX, NO_SUFFIX, PRECEDENCE_FALLBACK,
+      CONSUME, LOOKHEAD, PREFIX_PARSE, SUFFIX_PARSE;
+  static {
+    try {
+      INDEX = LOOKUP.findStatic(GrammarCompiler.class, "index", methodType(int.class, Class.class, Object.class));
+      LESS_THAN = LOOKUP.findStatic(GrammarCompiler.class, "lessThan", methodType(boolean.class, int.class, int.class));
+      NO_PREFIX = LOOKUP.findStatic(GrammarCompiler.class, "noPrefix", methodType(Object.class, IntParser.class, Lexer.class));
+      NO_SUFFIX = LOOKUP.findStatic(GrammarCompiler.class, "noSuffix", methodType(Object.class, IntParser.class, Lexer.class, Object.class));
+      PRECEDENCE_FALLBACK = LOOKUP.findStatic(GrammarCompiler.class, "precedenceFallback", methodType(int.class, ToIntFunction.class, Lexer.class));
+      CONSUME = LOOKUP.findVirtual(Lexer.class, "consume", methodType(Object.class));
+      LOOKHEAD = LOOKUP.findVirtual(Lexer.class, "lookhead", methodType(Object.class));
+      PREFIX_PARSE = LOOKUP.findVirtual(PrefixParselet.class, "parse", methodType(Object.class, IntParser.class, Lexer.class));
+      SUFFIX_PARSE = LOOKUP.findVirtual(SuffixParselet.class, "parse", methodType(Object.class, IntParser.class, Lexer.class, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static int index(Class<?> enumType, Object token) {
+    return enumType.isInstance(token)? ((Enum<?>) token).ordinal() + 1: 0;
+  }
+
+  private static boolean lessThan(int precedence1, int precedence2) {
+    return precedence1 < precedence2;
+  }
+
+  private static Object noPrefix(IntParser<?> parser, Lexer<?> lexer) {
+    throw new IllegalStateException("Could not parse token " +  lexer.token() + " of value " + lexer.value());
+  }
+
+  private static Object noSuffix(IntParser<?> parser, Lexer<?> lexer, Object left) {
+    throw new IllegalStateException("Could not parse token " +  lexer.token() + " of value " + lexer.value() + " in suffix position");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int precedenceFallback(ToIntFunction<?> precedenceFun, Lexer<?> lexer) {
+    return ((ToIntFunction<Object>) precedenceFun).applyAsInt(lexer.lookhead());
+  }
+
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  /**
+   * Called by the {@code invokedynamic} of a generated parser the first time
+   * {@link IntParser#parseExpr(int)} is called, the tree of method handles is read
+   * from the static field of the generated class.
+   */
+  static CallSite bootstrap(Lookup lookup, String name, MethodType type) throws NoSuchFieldException, IllegalAccessException {
+    var parseExpr = (MethodHandle) LOOKUP.findStaticVarHandle(lookup.lookupClass(), PARSE_EXPR_FIELD, MethodHandle.class).getVolatile();
+    return new ConstantCallSite(parseExpr.asType(type));
+  }
+
+  /**
+   * Compiles a grammar.
+   *
+   * @param enumType the enum of the tokens.
+   * @param precedenceFun the precedence function, called once per enum value and
+   *                      for the tokens that are not values of the enum.
+   * @param prefixes the prefix parselets indexed by ordinal.
+   * @param suffixes the suffix parselets indexed by ordinal.
+   * @return a grammar that creates instances of the generated parser class.
+   */
+  static <E, T> IntGrammar<E, T> compile(Class<? extends Enum<?>> enumType, ToIntFunction<? super T> precedenceFun,
+                                         PrefixParselet<E, T>[] prefixes, SuffixParselet<E, T>[] suffixes) {
+    var tokens = enumType.getEnumConstants();
+
+    // the trees are indexed by ordinal + 1, the index 0 being used for the unknown tokens
+    var prefixLeaves = new MethodHandle[tokens.length + 1];
+    var suffixLeaves = new MethodHandle[tokens.length + 1];
+    var precedenceLeaves = new MethodHandle[tokens.length + 1];
+    prefixLeaves[0] = dropArguments(NO_PREFIX, 0, int.class);
+    suffixLeaves[0] = dropArguments(NO_SUFFIX, 0, int.class);
+    precedenceLeaves[0] = dropArguments(PRECEDENCE_FALLBACK.bindTo(precedenceFun), 0, int.class);
+    for(var i = 0; i < tokens.length; i++) {
+      @SuppressWarnings("unchecked")
+      var token = (T) tokens[i];
+      var prefix = prefixes[i];
+      var suffix = suffixes[i];
+      prefixLeaves[i + 1] = prefix == null? prefixLeaves[0]: dropArguments(PREFIX_PARSE.bindTo(prefix), 0, int.class);
+      suffixLeaves[i + 1] = suffix == null? suffixLeaves[0]: dropArguments(SUFFIX_PARSE.bindTo(suffix), 0, int.class);
+      precedenceLeaves[i + 1] = dropArguments(constant(int.class, precedenceFun.applyAsInt(token)), 0, int.class, Lexer.class);
+    }
+
+    var index = INDEX.bindTo(enumType);
+    var consumeIndex = dropArguments(filterReturnValue(CONSUME, index), 0, IntParser.class);  // (IntParser, Lexer)int
+    var lookheadIndex = filterReturnValue(LOOKHEAD, index);  // (Lexer)int
+
+    // E parseExpr(IntParser parser, Lexer lexer, int precedence) {
+    //   var left = prefix(parser, lexer);
+    //   while (precedence < lookheadPrecedence(lexer)) {
+    //     left = suffix(parser, lexer, left);
+    //   }
+    //   return left;
+    // }
+    var prefix = foldArguments(tree(prefixLeaves, 0, prefixLeaves.length), consumeIndex);  // (IntParser, Lexer)Object
+    var suffix = foldArguments(tree(suffixLeaves, 0, suffixLeaves.length), consumeIndex);  // (IntParser, Lexer, Object)Object
+    var lookheadPrecedence = foldArguments(tree(precedenceLeaves, 0, precedenceLeaves.length), lookheadIndex);  // (Lexer)int
+
+    var loopType = methodType(Object.class, Object.class, IntParser.class, Lexer.class, int.class);
+    var init = dropArguments(prefix, 2, int.class);
+    var pred = permuteArguments(filterArguments(LESS_THAN, 1, lookheadPrecedence), loopType.changeReturnType(boolean.class), 3, 2);
+    var body = permuteArguments(suffix, loopType, 1, 2, 0);
+    var parseExpr = whileLoop(init, pred, body);
+
+    MethodHandle constructor;
+    try {
+      var parserClass = LOOKUP.defineClass(generateParserClass(COUNTER.getAndIncrement()));
+      LOOKUP.findStaticVarHandle(parserClass, PARSE_EXPR_FIELD, MethodHandle.class).setVolatile(parseExpr);
+      constructor = LOOKUP.findConstructor(parserClass, methodType(void.class, Lexer.class))
+          .asType(methodType(IntParser.class, Lexer.class));
+    } catch (NoSuchMethodException | NoSuchFieldException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+    return lexer -> {
+      Objects.requireNonNull(lexer);
+      try {
+        @SuppressWarnings("unchecked")
+        var parser = (IntParser<E>) (IntParser<?>) constructor.invokeExact(lexer);
+        return parser;
+      } catch(RuntimeException | Error e) {
+        throw e;
+      } catch(Throwable t) {
+        throw new UndeclaredThrowableException(t);
+      }
+    };
+  }
+
+  // a balanced tree of tests on the index, the first parameter of the leaves
+  private static MethodHandle tree(MethodHandle[] leaves, int lo, int hi) {
+    if (hi - lo == 1) {
+      return leaves[lo];
+    }
+    var middle = (lo + hi) >>> 1;
+    return guardWithTest(insertArguments(LESS_THAN, 1, middle), tree(leaves, lo, middle), tree(leaves, middle, hi));
+  }
+
+  private static final String PACKAGE = GrammarCompiler.class.getPackageName().replace('.', '/') + '/';
+  private static final String PARSE_EXPR_FIELD = "parseExpr";
+
+  private static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010,
+      ACC_SUPER = 0x0020, ACC_VOLATILE = 0x0040;
+  private static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ILOAD_1 = 0x1b, ARETURN = 0xb0, RETURN = 0xb1,
+      GETFIELD = 0xb4, PUTFIELD = 0xb5, INVOKESPECIAL = 0xb7, INVOKEDYNAMIC = 0xba;
+  private static final int REF_INVOKE_STATIC = 6;
+
+  /*
+   * final class GrammarCompiler$Parser<id> implements IntParser {
+   *   static volatile MethodHandle parseExpr;  // set by compile()
+   *   private final Lexer lexer;
+   *
+   *   public GrammarCompiler$Parser<id>(Lexer lexer) { this.lexer = lexer; }
+   *
+   *   public Object parseExpr(int precedence) {
+   *     return invokedynamic parseExpr(this, lexer, precedence) [GrammarCompiler.bootstrap];
+   *   }
+   * }
+   */
+  private static byte[] generateParserClass(int id) {
+    var bytes = new ByteArrayOutputStream();
+    try(var out = new DataOutputStream(bytes)) {
+      var pool = new ConstantPool();
+      var thisClass = pool.classRef(PACKAGE + "GrammarCompiler$Parser" + id);
+      var superClass = pool.classRef("java/lang/Object");
+      var intParser = pool.classRef(PACKAGE + "IntParser");
+      var parseExprName = pool.utf8(PARSE_EXPR_FIELD);
+      var methodHandleDescriptor = pool.utf8("Ljava/lang/invoke/MethodHandle;");
+      var lexerName = pool.utf8("lexer");
+      var lexerDescriptor = pool.utf8("L" + PACKAGE + "Lexer;");
+      var lexerField = pool.ref(9, thisClass, pool.nameAndType(lexerName, lexerDescriptor));
+      var initName = pool.utf8("<init>");
+      var initDescriptor = pool.utf8("(L" + PACKAGE + "Lexer;)V");
+      var objectInit = pool.ref(10, superClass, pool.nameAndType(initName, pool.utf8("()V")));
+      var parseExprDescriptor = pool.utf8("(I)Ljava/lang/Object;");
+      var bootstrap = pool.methodHandle(REF_INVOKE_STATIC, pool.ref(10, pool.classRef(PACKAGE + "GrammarCompiler"),
+          pool.nameAndType(pool.utf8("bootstrap"),
+              pool.utf8("(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"))));
+      var indy = pool.ref(18, 0, pool.nameAndType(parseExprName,
+          pool.utf8("(L" + PACKAGE + "IntParser;L" + PACKAGE + "Lexer;I)Ljava/lang/Object;")));  // bootstrap method 0
+      var codeName = pool.utf8("Code");
+      var bootstrapMethodsName = pool.utf8("BootstrapMethods");
+
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(55);  // Java 11
+      pool.writeTo(out);
+
+      out.writeShort(ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(1);  // interfaces
+      out.writeShort(intParser);
+
+      out.writeShort(2);  // fields
+      field(out, ACC_STATIC | ACC_VOLATILE, parseExprName, methodHandleDescriptor);
+      field(out, ACC_PRIVATE | ACC_FINAL, lexerName, lexerDescriptor);
+
+      out.writeShort(2);  // methods
+      method(out, initName, initDescriptor, codeName, 2,
+          ALOAD_0,
+          INVOKESPECIAL, objectInit >> 8, objectInit,
+          ALOAD_0,
+          ALOAD_1,
+          PUTFIELD, lexerField >> 8, lexerField,
+          RETURN);
+      method(out, parseExprName, parseExprDescriptor, codeName, 3,
+          ALOAD_0,
+          ALOAD_0,
+          GETFIELD, lexerField >> 8, lexerField,
+          ILOAD_1,
+          INVOKEDYNAMIC, indy >> 8, indy, 0, 0,
+          ARETURN);
+
+      out.writeShort(1);  // attributes
+      out.writeShort(bootstrapMethodsName);
+      out.writeInt(6);
+      out.writeShort(1);  // bootstrap methods
+      out.writeShort(bootstrap);
+      out.writeShort(0);  // bootstrap arguments
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // the constant pool of a class, each method returns the index of the new entry
+  private static final class ConstantPool {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int count = 1;
+
+    private int add() {
+      if (count == 0xFFFF) {
+        throw new IllegalStateException("too many constants");
+      }
+      return count++;
+    }
+
+    int utf8(String text) throws IOException {
+      out.writeByte(1);
+      out.writeUTF(text);
+      return add();
+    }
+
+    int classRef(String internalName) throws IOException {
+      return ref(7, utf8(internalName));
+    }
+
+    int nameAndType(int name, int descriptor) throws IOException {
+      return ref(12, name, descriptor);
+    }
+
+    int methodHandle(int kind, int reference) throws IOException {
+      out.writeByte(15);
+      out.writeByte(kind);
+      out.writeShort(reference);
+      return add();
+    }
+
+    int ref(int tag, int... indexes) throws IOException {
+      out.writeByte(tag);
+      for(var index: indexes) {
+        out.writeShort(index);
+      }
+      return add();
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+      output.writeShort(count);
+      bytes.writeTo(output);
+    }
+  }
+
+  private static void field(DataOutputStream out, int access, int name, int descriptor) throws IOException {
+    out.writeShort(access);
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(0);  // attributes
+  }
+
+  private static void method(DataOutputStream out, int name, int descriptor, int codeName, int maxStack, int... code) throws IOException {
+    out.writeShort(ACC_PUBLIC);
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(1);
+    out.writeShort(codeName);
+    out.writeInt(12 + code.length);
+    out.writeShort(maxStack);
+    out.writeShort(2);  // max locals
+    out.writeInt(code.length);
+    for(var b: code) {
+      out.writeByte(b);
+    }
+    out.writeShort(0);  // exception table
+    out.writeShort(0);  // attributes
+  }
+}
@@ -0,0 +1,268 @@
+package com.github.forax.pratt_parser;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Parse a document made of expressions separated by a separator token, like {@link Parser#stream},
+ * and update the expressions when the document is edited.
+ *
+ * After an edit, the lexing restarts at the start of the expression that contains the character
+ * before the edit and stops as soon as a separator is found after the edit at the same position
+ * as a separator of the previous version of the document. Only the expressions in between are parsed
+ * again, the other expressions are reused as is, so the cost of an edit depends on the size of
+ * the expressions around the edit and not on the size of the document.
+ *
+ * This requires that lexing the text from the end of a separator gives the same tokens as lexing
+ * the whole text, which is true for the lexers created by {@link Lexer#factory} or
+ * {@link Lexer#dfaFactory}.
+ *
+ * @param <E> type of the expressions.
+ */
+public interface IncrementalParser<E> {
+  /**
+   * Returns the current text of the document.
+   * @return the current text of the document.
+   */
+  String text();
+
+  /**
+   * Returns the expressions of the current text of the document.
+   * @return an unmodifiable list of the expressions of the current text of the document.
+   */
+  List<E> expressions();
+
+  /**
+   * Replaces a part of the document by another text and updates the expressions.
+   * If the new text can not be parsed, the document and the expressions are left unchanged.
+   *
+   * @param offset the offset of the first character replaced.
+   * @param removedLength the number of characters replaced.
+   * @param insertedText the text that replaces the characters.
+   * @throws IndexOutOfBoundsException if the offset and the removed length are not
+   *         a range of the text of the document.
+   * @throws IllegalStateException if the new text can not be parsed, the document is not modified.
+   */
+  void edit(int offset, int removedLength, String insertedText);
+
+  /**
+   * Creates an incremental parser and parses the initial text.
+   *
+   * The parse function is called with a lexer positioned before the first token of an expression,
+   * the offsets returned by the lexer are offsets in the whole text of the document,
+   * it should parse only one expression, by example
+   * <pre>
+   *   IncrementalParser.create(text, lexerFactory, SEMICOLON, EOF,
+   *       lexer -&gt; grammar.parser(lexer).parseExpr(P_NONE));
+   * </pre>
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param text the initial text of the document.
+   * @param lexerFactory a function that creates a lexer from a text.
+   * @param separator the token that separates the expressions.
+   * @param eof the end of file token of the lexers.
+   * @param parseFunction a function that parses one expression.
+   * @return a new incremental parser.
+   * @throws IllegalStateException if the initial text can not be parsed.
+   */
+  static <E, T> IncrementalParser<E> create(String text,
+                                            Function<? super CharSequence, ? extends Lexer<T>> lexerFactory,
+                                            T separator, T eof,
+                                            Function<? super Lexer<T>, ? extends E> parseFunction) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(lexerFactory);
+    Objects.requireNonNull(separator);
+    Objects.requireNonNull(eof);
+    Objects.requireNonNull(parseFunction);
+
+    // a segment is an expression (null if there is none) followed by a separator,
+    // or the last expression of the text, end is the offset after the separator
+    class Segment {
+      private final int end;
+      private final E expr;
+
+      Segment(int end, E expr) {
+        this.end = end;
+        this.expr = expr;
+      }
+    }
+
+    /*
+     * The segments are stored in a gap buffer, like the text of an editor, the gap is moved
+     * to the segment of an edit before the text is modified. The end of a segment before the gap
+     * is an offset from the start of the text, the end of a segment after the gap is an offset
+     * from the end of the text, so the segments after an edit don't have to be updated when
+     * the length of the text changes and the cost of an edit only depends on the number of segments
+     * between this edit and the previous one.
+     */
+    class Incremental implements IncrementalParser<E> {
+      private final StringBuilder builder = new StringBuilder(text);
+      private int[] ends = new int[16];
+      private Object[] exprs = new Object[16];
+      private int gapStart;      // index of the first slot of the gap
+      private int gapEnd = 16;   // index of the first segment after the gap
+
+      private int size() {
+        return gapStart + ends.length - gapEnd;
+      }
+
+      private int end(int index) {
+        return index < gapStart? ends[index]: ends[index + gapEnd - gapStart] + builder.length();
+      }
+
+      @SuppressWarnings("unchecked")
+      private E expr(int index) {
+        return (E) exprs[index < gapStart? index: index + gapEnd - gapStart];
+      }
+
+      // index of the first segment at or after from that ends at or after the offset
+      private int segmentIndex(int from, int offset) {
+        var low = from;
+        var high = size();
+        while(low < high) {
+          var middle = (low + high) >>> 1;
+          if (end(middle) < offset) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        return low;
+      }
+
+      private void moveGap(int index) {
+        var length = builder.length();
+        while(gapStart > index) {
+          gapStart--;
+          gapEnd--;
+          ends[gapEnd] = ends[gapStart] - length;
+          exprs[gapEnd] = exprs[gapStart];
+          exprs[gapStart] = null;
+        }
+        while(gapStart < index) {
+          ends[gapStart] = ends[gapEnd] + length;
+          exprs[gapStart] = exprs[gapEnd];
+          exprs[gapEnd] = null;
+          gapStart++;
+          gapEnd++;
+        }
+      }
+
+      // replace the segments just after the gap by the new segments
+      private void replace(int removedCount, List<Segment> newSegments) {
+        Arrays.fill(exprs, gapEnd, gapEnd + removedCount, null);
+        gapEnd += removedCount;
+        var gap = gapEnd - gapStart;
+        if (gap < newSegments.size()) {
+          var afterGap = ends.length - gapEnd;
+          var capacity = Math.max(ends.length << 1, gapStart + newSegments.size() + afterGap + 16);
+          var newEnds = new int[capacity];
+          var newExprs = new Object[capacity];
+          System.arraycopy(ends, 0, newEnds, 0, gapStart);
+          System.arraycopy(exprs, 0, newExprs, 0, gapStart);
+          System.arraycopy(ends, gapEnd, newEnds, capacity - afterGap, afterGap);
+          System.arraycopy(exprs, gapEnd, newExprs, capacity - afterGap, afterGap);
+          ends = newEnds;
+          exprs = newExprs;
+          gapEnd = capacity - afterGap;
+        }
+        for(var segment: newSegments) {
+          ends[gapStart] = segment.end;
+          exprs[gapStart++] = segment.expr;
+        }
+      }
+
+      /*
+       * Parse the text from the start of the segment at index, stops when a segment ends at or after
+       * editEnd and at the end of an old segment, replaces the old segments by the new ones.
+       * The gap must be at index, so the end of the old segments after the edit are already offsets
+       * in the new text.
+       */
+      void parse(int index, int editEnd) {
+        var start = index == 0? 0: end(index - 1);
+        var lexer = ForwardingLexer.shift(lexerFactory.apply(CharBuffer.wrap(builder, start, builder.length())), builder, start);
+        var newSegments = new ArrayList<Segment>();
+        var reuseIndex = size();  // index of the first old segment reused
+        for(;;) {
+          var token = lexer.lookhead();
+          if (eof.equals(token)) {
+            break;
+          }
+          E expr = null;
+          if (!separator.equals(token)) {
+            expr = parseFunction.apply(lexer);
+            token = lexer.lookhead();
+            if (eof.equals(token)) {
+              newSegments.add(new Segment(builder.length(), expr));
+              break;
+            }
+            if (!separator.equals(token)) {
+              throw new IllegalStateException("parsing error " + token + " at offset " + lexer.start() + " but should be " + separator);
+            }
+          }
+          lexer.consume();
+          var end = lexer.end();
+          newSegments.add(new Segment(end, expr));
+          if (end >= editEnd) {
+            var oldIndex = segmentIndex(index, end);
+            if (oldIndex < size() && end(oldIndex) == end) {
+              reuseIndex = oldIndex + 1;
+              break;
+            }
+          }
+        }
+        replace(reuseIndex - index, newSegments);
+      }
+
+      @Override
+      public String text() {
+        return builder.toString();
+      }
+
+      @Override
+      public List<E> expressions() {
+        var list = new ArrayList<E>(size());
+        for(var i = 0; i < size(); i++) {
+          var expr = expr(i);
+          if (expr != null) {
+            list.add(expr);
+          }
+        }
+        return Collections.unmodifiableList(list);
+      }
+
+      @Override
+      public void edit(int offset, int removedLength, String insertedText) {
+        Objects.checkFromIndexSize(offset, removedLength, builder.length());
+        Objects.requireNonNull(insertedText);
+
+        // the segments before index end before the offset, so they are not changed by the edit
+        var index = segmentIndex(0, offset);
+        moveGap(index);
+        var removedText = builder.substring(offset, offset + removedLength);
+        builder.replace(offset, offset + removedLength, insertedText);
+        try {
+          parse(index, offset + insertedText.length());
+        } catch(RuntimeException | StackOverflowError e) {
+          builder.replace(offset, offset + insertedText.length(), removedText);
+          throw e;
+        }
+      }
+
+      @Override
+      public String toString() {
+        return builder.toString();
+      }
+    }
+
+    var incremental = new Incremental();
+    incremental.parse(0, 0);
+    return incremental;
+  }
+}
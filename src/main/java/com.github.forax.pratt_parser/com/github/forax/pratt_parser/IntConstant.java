@@ -0,0 +1,25 @@
+package com.github.forax.pratt_parser;
+
+/**
+ * A constant expression, a class and not a lambda so the combinators of {@link IntEvaluator}
+ * can recognize the constants and evaluate them eagerly.
+ *
+ * @param <C> type of the context.
+ */
+final class IntConstant<C> implements IntEvaluator<C> {
+  final int value;
+
+  IntConstant(int value) {
+    this.value = value;
+  }
+
+  @Override
+  public int evaluate(C context) {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return "constant " + value;
+  }
+}
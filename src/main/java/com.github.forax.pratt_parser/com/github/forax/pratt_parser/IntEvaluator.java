@@ -0,0 +1,186 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * An expression compiled to a tree of closures, that can be evaluated many times
+ * with different values of the variables.
+ *
+ * The parselets of a parser can directly create the closures, so parsing an expression is compiling it,
+ * by example
+ * <pre>
+ *   IntGrammar&lt;IntEvaluator&lt;int[]&gt;, Token&gt; grammar = IntGrammar.create(
+ *       token -&gt; token.precedence,
+ *       Map.of(
+ *           MINUS, (p, lexer) -&gt; IntEvaluator.negate(p.parseExpr(0)),
+ *           NUM,   (p, lexer) -&gt; IntEvaluator.constant(Integer.parseInt(lexer.value())),
+ *           ID,    (p, lexer) -&gt; IntEvaluator.slot(slotOf(lexer.value()))),
+ *       Map.of(
+ *           PLUS,  (p, lexer, left) -&gt; IntEvaluator.add(left, p.parseExpr(PLUS.precedence))));
+ *   var evaluator = grammar.parser(lexer).parseExpr(0);
+ *   ...
+ *   int result = evaluator.evaluate(new int[] { 3, 4 });
+ * </pre>
+ *
+ * Each closure calls directly the closures of its sub-expressions, there is no lookup to find
+ * the code of a node when evaluating. The sub-expressions that are constants are evaluated
+ * when the closures are created.
+ *
+ * @param <C> type of the context that stores the values of the variables.
+ */
+@FunctionalInterface
+public interface IntEvaluator<C> {
+  /**
+   * Evaluates the expression.
+   *
+   * @param context the context that stores the values of the variables.
+   * @return the value of the expression.
+   */
+  int evaluate(C context);
+
+  /**
+   * Creates a constant.
+   *
+   * @param <C> type of the context.
+   * @param value the value of the constant.
+   * @return a new evaluator that always returns {@code value}.
+   */
+  static <C> IntEvaluator<C> constant(int value) {
+    return new IntConstant<>(value);
+  }
+
+  /**
+   * Creates a variable stored in an array.
+   *
+   * @param index the index of the variable in the array.
+   * @return a new evaluator that returns the value of the array at {@code index}.
+   * @throws IllegalArgumentException if the index is negative.
+   */
+  static IntEvaluator<int[]> slot(int index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("invalid index " + index);
+    }
+    return context -> context[index];
+  }
+
+  /**
+   * Creates a variable stored in a context object.
+   *
+   * @param <C> type of the context.
+   * @param getter a function that returns the value of the variable from the context.
+   * @return a new evaluator that returns the value returned by the getter.
+   */
+  static <C> IntEvaluator<C> variable(ToIntFunction<? super C> getter) {
+    Objects.requireNonNull(getter);
+    return getter::applyAsInt;
+  }
+
+  /**
+   * Creates an expression that applies an unary operator.
+   * If the operand is a constant, the operator is applied once when calling this method,
+   * so the operator should have no side effect.
+   *
+   * @param <C> type of the context.
+   * @param operator the unary operator.
+   * @param expr the operand.
+   * @return a new evaluator.
+   */
+  static <C> IntEvaluator<C> unary(IntUnaryOperator operator, IntEvaluator<C> expr) {
+    Objects.requireNonNull(operator);
+    Objects.requireNonNull(expr);
+    if (expr instanceof IntConstant) {
+      return constant(operator.applyAsInt(((IntConstant<C>) expr).value));
+    }
+    return context -> operator.applyAsInt(expr.evaluate(context));
+  }
+
+  /**
+   * Creates an expression that applies a binary operator.
+   * If the two operands are constants, the operator is applied once when calling this method,
+   * so the operator should have no side effect.
+   *
+   * @param <C> type of the context.
+   * @param operator the binary operator.
+   * @param left the left operand.
+   * @param right the right operand.
+   * @return a new evaluator.
+   */
+  static <C> IntEvaluator<C> binary(IntBinaryOperator operator, IntEvaluator<C> left, IntEvaluator<C> right) {
+    Objects.requireNonNull(operator);
+    Objects.requireNonNull(left);
+    Objects.requireNonNull(right);
+    if (left instanceof IntConstant && right instanceof IntConstant) {
+      return constant(operator.applyAsInt(((IntConstant<C>) left).value, ((IntConstant<C>) right).value));
+    }
+    return context -> operator.applyAsInt(left.evaluate(context), right.evaluate(context));
+  }
+
+  /**
+   * Creates the negation of an expression.
+   *
+   * @param <C> type of the context.
+   * @param expr the operand.
+   * @return a new evaluator.
+   */
+  static <C> IntEvaluator<C> negate(IntEvaluator<C> expr) {
+    Objects.requireNonNull(expr);
+    if (expr instanceof IntConstant) {
+      return constant(- ((IntConstant<C>) expr).value);
+    }
+    return context -> - expr.evaluate(context);
+  }
+
+  /**
+   * Creates the addition of two expressions.
+   *
+   * @param <C> type of the context.
+   * @param left the left operand.
+   * @param right the right operand.
+   * @return a new evaluator.
+   */
+  static <C> IntEvaluator<C> add(IntEvaluator<C> left, IntEvaluator<C> right) {
+    Objects.requireNonNull(left);
+    Objects.requireNonNull(right);
+    if (left instanceof IntConstant && right instanceof IntConstant) {
+      return constant(((IntConstant<C>) left).value + ((IntConstant<C>) right).value);
+    }
+    return context -> left.evaluate(context) + right.evaluate(context);
+  }
+
+  /**
+   * Creates the subtraction of two expressions.
+   *
+   * @param <C> type of the context.
+   * @param left the left operand.
+   * @param right the right operand.
+   * @return a new evaluator.
+   */
+  static <C> IntEvaluator<C> subtract(IntEvaluator<C> left, IntEvaluator<C> right) {
+    Objects.requireNonNull(left);
+    Objects.requireNonNull(right);
+    if (left instanceof IntConstant && right instanceof IntConstant) {
+      return constant(((IntConstant<C>) left).value - ((IntConstant<C>) right).value);
+    }
+    return context -> left.evaluate(context) - right.evaluate(context);
+  }
+
+  /**
+   * Creates the multiplication of two expressions.
+   *
+   * @param <C> type of the context.
+   * @param left the left operand.
+   * @param right the right operand.
+   * @return a new evaluator.
+   */
+  static <C> IntEvaluator<C> multiply(IntEvaluator<C> left, IntEvaluator<C> right) {
+    Objects.requireNonNull(left);
+    Objects.requireNonNull(right);
+    if (left instanceof IntConstant && right instanceof IntConstant) {
+      return constant(((IntConstant<C>) left).value * ((IntConstant<C>) right).value);
+    }
+    return context -> left.evaluate(context) * right.evaluate(context);
+  }
+}
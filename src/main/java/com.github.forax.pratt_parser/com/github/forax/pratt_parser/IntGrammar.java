@@ -0,0 +1,273 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable description of the parselets and the precedences of a language,
+ * like {@link Grammar} but the precedences are primitive integers stored in a table indexed
+ * by token and compared with {@code <}.
+ *
+ * @param <E> type of the expressions.
+ * @param <T> type of the tokens.
+ */
+public interface IntGrammar<E, T> {
+  /**
+   * An object that knows how to parse a prefix expression.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   */
+  interface PrefixParselet<E, T> {
+    /**
+     * Parse a prefix expression.
+     *
+     * @param parser the parser to ask to parse the expression recursively.
+     * @param lexer the lexer of the parser.
+     * @return return the value of the parsed expression.
+     */
+    E parse(IntParser<E> parser, Lexer<T> lexer);
+  }
+
+  /**
+   * An object that knows how to parse a suffix expression.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   */
+  interface SuffixParselet<E, T> {
+    /**
+     * Parse a suffix expression.
+     *
+     * @param parser the parser to ask to parse the expression recursively.
+     * @param lexer the lexer of the parser.
+     * @param left left part of the expression.
+     * @return return the value of the parsed expression.
+     */
+    E parse(IntParser<E> parser, Lexer<T> lexer, E left);
+  }
+
+  /**
+   * Creates a new parser that parses the tokens of a lexer using the parselets of this grammar.
+   * Creating a parser is cheap, it's just a wrapper around the lexer.
+   * If the lexer is {@link Lexer#reset(CharSequence) reset} with a new text, the parser can be reused
+   * to parse the new text.
+   *
+   * @param lexer a lexer.
+   * @return a new parser.
+   */
+  IntParser<E> parser(Lexer<T> lexer);
+
+  /**
+   * Creates a new parser that parses the tokens of a lexer using the parselets of this grammar
+   * and reports the parsing errors to a sink of diagnostics instead of throwing an exception.
+   *
+   * If no parselet can parse a token or if the lexer passed to the parselets is asked to
+   * {@link Lexer#consume(Object) consume} a token that doesn't match, a diagnostic is reported,
+   * then the tokens are skipped until one of the sync tokens or the end of file token.
+   * A missing expression is replaced by the error expression, so parsing a text always
+   * returns an expression that may be partial.
+   * The {@link IntParser#stream(Lexer, int, Object, Object) stream} of the parser reports
+   * an expression not followed by the separator and skips the tokens until the next separator.
+   *
+   * @param lexer a lexer.
+   * @param eof the end of file token of the lexer, the tokens are never skipped after it.
+   * @param syncTokens the tokens on which the parser resynchronizes after an error, typically
+   *                   the separators and the closing tokens.
+   * @param error the expression returned when an expression can not be parsed.
+   * @param diagnostics the sink of the diagnostics.
+   * @return a new parser.
+   * @throws UnsupportedOperationException if the grammar doesn't support error recovery.
+   */
+  default IntParser<E> parser(Lexer<T> lexer, T eof, Set<? extends T> syncTokens, E error, Diagnostics<? super T> diagnostics) {
+    throw new UnsupportedOperationException("error recovery is not supported by this grammar");
+  }
+
+  /**
+   * Creates a grammar from the function that associate a precedence to a token and
+   * two {@link java.util.Map}s that associate a token to a parselet.
+   *
+   * If the tokens are enum values, the function {@code precedenceFun} is called once per enum value
+   * when creating the grammar to fill the table of precedences, otherwise it is called once per token
+   * of the maps when creating the grammar and each time the precedence of another token is needed.
+   * So the function should return a precedence (by example 0) for all the tokens, even the ones that
+   * can not appear in suffix position.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param precedenceFun a function that returns the precedence of a token when used in suffix position.
+   * @param prefixMap a map that associate a token in prefix position and the code to execute to parse
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the code to execute to parse
+   *                  the corresponding suffix expression.
+   * @return a new grammar.
+   */
+  static <E, T>
+    IntGrammar<E, T> create(ToIntFunction<? super T> precedenceFun,
+                            Map<T, ? extends PrefixParselet<E, T>> prefixMap,
+                            Map<T, ? extends SuffixParselet<E, T>> suffixMap) {
+    return create(precedenceFun, prefixMap, suffixMap, false);
+  }
+
+  /**
+   * Creates a grammar like {@link #create(ToIntFunction, Map, Map)} but if the tokens are enum values,
+   * generates a parser class dedicated to the grammar.
+   *
+   * The dispatch on the tokens and the precedences are compiled to constants that the JIT can
+   * inline in the parser class, so parsing is faster once the code is JITed
+   * but creating the grammar is more expensive and the generated class is never unloaded,
+   * so the grammar should be created once, by example stored in a static final field.
+   * If the tokens are not enum values, this method returns the same grammar
+   * as {@link #create(ToIntFunction, Map, Map)}.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param precedenceFun a function that returns the precedence of a token when used in suffix position.
+   * @param prefixMap a map that associate a token in prefix position and the code to execute to parse
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the code to execute to parse
+   *                  the corresponding suffix expression.
+   * @return a new grammar.
+   */
+  static <E, T>
+    IntGrammar<E, T> compile(ToIntFunction<? super T> precedenceFun,
+                             Map<T, ? extends PrefixParselet<E, T>> prefixMap,
+                             Map<T, ? extends SuffixParselet<E, T>> suffixMap) {
+    return create(precedenceFun, prefixMap, suffixMap, true);
+  }
+
+  /**
+   * Creates a grammar like {@link #create(ToIntFunction, Map, Map)} with parsers
+   * monitored by a {@link ParserMonitor}.
+   *
+   * If neither the monitor nor the Flight Recorder event are enabled, a call to {@link IntParser#parseExpr(int)}
+   * runs the same code as a parser of a grammar created without a monitor.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param precedenceFun a function that returns the precedence of a token when used in suffix position.
+   * @param prefixMap a map that associate a token in prefix position and the code to execute to parse
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the code to execute to parse
+   *                  the corresponding suffix expression.
+   * @param monitor a monitor created by {@link ParserMonitor#create()}.
+   * @return a new grammar.
+   * @throws IllegalArgumentException if the monitor was not created by {@link ParserMonitor#create()}.
+   */
+  static <E, T>
+    IntGrammar<E, T> create(ToIntFunction<? super T> precedenceFun,
+                            Map<T, ? extends PrefixParselet<E, T>> prefixMap,
+                            Map<T, ? extends SuffixParselet<E, T>> suffixMap,
+                            ParserMonitor<T> monitor) {
+    var monitorImpl = Monitor.of(monitor);
+    var grammar = create(precedenceFun, prefixMap, suffixMap);
+    var monitoredGrammar = create(precedenceFun,
+        monitorImpl.<PrefixParselet<E, T>>monitoredParselets(prefixMap, (prefix, counter) -> (parser, lexer) -> {
+          var session = Monitor.session(lexer);
+          session.enter(counter);
+          try {
+            return prefix.parse(parser, lexer);
+          } finally {
+            session.exit();
+          }
+        }),
+        monitorImpl.<SuffixParselet<E, T>>monitoredParselets(suffixMap, (suffix, counter) -> (parser, lexer, left) -> {
+          var session = Monitor.session(lexer);
+          session.enter(counter);
+          try {
+            return suffix.parse(parser, lexer, left);
+          } finally {
+            session.exit();
+          }
+        }));
+
+    return new IntGrammar<>() {
+      @Override
+      public IntParser<E> parser(Lexer<T> lexer) {
+        var session = new Monitor.Session<>(lexer);
+        var parser = grammar.parser(lexer);
+        var monitoredParser = monitoredGrammar.parser(session);
+        // the precedences are boxed by Integer.valueOf(), so usual precedences are cached values
+        return precedence -> monitorImpl.parseExpr(session, parser, monitoredParser, precedence, IntParser<E>::parseExpr);
+      }
+
+      @Override
+      public IntParser<E> parser(Lexer<T> lexer, T eof, Set<? extends T> syncTokens, E error, Diagnostics<? super T> diagnostics) {
+        // a recovering parser is not monitored
+        return grammar.parser(lexer, eof, syncTokens, error, diagnostics);
+      }
+    };
+  }
+
+  private static <E, T>
+    IntGrammar<E, T> create(ToIntFunction<? super T> precedenceFun,
+                            Map<T, ? extends PrefixParselet<E, T>> prefixMap,
+                            Map<T, ? extends SuffixParselet<E, T>> suffixMap,
+                            boolean compile) {
+    Objects.requireNonNull(precedenceFun);
+    Objects.requireNonNull(prefixMap);
+    Objects.requireNonNull(suffixMap);
+
+    var tokenIndex = TokenIndex.create(prefixMap, suffixMap);
+    @SuppressWarnings("unchecked")
+    var prefixes = tokenIndex.table(prefixMap, size -> (PrefixParselet<E, T>[]) new PrefixParselet<?, ?>[size]);
+    @SuppressWarnings("unchecked")
+    var suffixes = tokenIndex.table(suffixMap, size -> (SuffixParselet<E, T>[]) new SuffixParselet<?, ?>[size]);
+    var enumType = tokenIndex.enumType();
+    var compiled = compile && enumType != null? GrammarCompiler.compile(enumType, precedenceFun, prefixes, suffixes): null;
+    var precedences = new int[tokenIndex.size()];
+    for(var i = 0; i < precedences.length; i++) {
+      precedences[i] = precedenceFun.applyAsInt(tokenIndex.token(i));
+    }
+
+    return new IntGrammar<>() {
+      @Override
+      public IntParser<E> parser(Lexer<T> lexer) {
+        if (compiled != null) {
+          return compiled.parser(lexer);
+        }
+        Objects.requireNonNull(lexer);
+        return new IntParser<>() {
+          private int precedence(T token) {
+            var index = tokenIndex.index(token);
+            return index == -1? precedenceFun.applyAsInt(token): precedences[index];
+          }
+
+          @Override
+          public E parseExpr(int precedence) {
+            var token = lexer.consume();
+            var index = tokenIndex.index(token);
+            var prefix = index == -1? null: prefixes[index];
+            if (prefix == null) {
+              throw new IllegalStateException("Could not parse token " +  token + " of value " + lexer.value());
+            }
+            var left = prefix.parse(this, lexer);
+
+            while (precedence < precedence(lexer.lookhead())) {
+              token = lexer.consume();
+              index = tokenIndex.index(token);
+              var suffix = index == -1? null: suffixes[index];
+              if (suffix == null) {
+                throw new IllegalStateException("Could not parse token " +  token + " of value " + lexer.value() + " in suffix position");
+              }
+              left = suffix.parse(this, lexer, left);
+            }
+            return left;
+          }
+        };
+      }
+
+      @Override
+      public IntParser<E> parser(Lexer<T> lexer, T eof, Set<? extends T> syncTokens, E error, Diagnostics<? super T> diagnostics) {
+        Objects.requireNonNull(lexer);
+        Objects.requireNonNull(eof);
+        Objects.requireNonNull(syncTokens);
+        Objects.requireNonNull(diagnostics);
+        return new RecoveringParser<>(lexer, tokenIndex, prefixes, suffixes, precedences, precedenceFun,
+            eof, syncTokens, error, diagnostics);
+      }
+    };
+  }
+}
@@ -0,0 +1,125 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parse the tokens from a lexer to create expressions using Pratt's algorithm,
+ * like {@link Parser} but the precedences are primitive integers compared with {@code <},
+ * so there is no comparator call and no boxing when checking if a suffix expression should be parsed.
+ *
+ * @param <E> type of the expressions.
+ */
+public interface IntParser<E> {
+  /**
+   * An object that knows how to parse a prefix expression.
+   *
+   * @param <E> type of the expressions.
+   */
+  interface PrefixParselet<E> {
+    /**
+     * Parse a prefix expression.
+     * 
+     * @param parser the parser to ask to parse the expression recursively.
+     * @return return the value of the parsed expression.
+     */
+    E parse(IntParser<E> parser);
+  }
+  
+  /**
+   * An object that knows how to parse a suffix expression.
+   *
+   * @param <E> type of the expressions.
+   */
+  interface SuffixParselet<E> {
+    /**
+     * Parse a suffix expression.
+     * 
+     * @param parser the parser to ask to parse the expression recursively.
+     * @param left left part of the expression.
+     * @return return the value of the parsed expression.
+     */
+    E parse(IntParser<E> parser, E left);
+  }
+  
+  /**
+   * Parse an expression by calling the parselets ({@link PrefixParselet}, {@link SuffixParselet})
+   * registered by the current parser.
+   * A suffix expression is parsed if the precedence of the next token is strictly greater than
+   * the precedence taken as argument.
+   * 
+   * @param precedence the precedence of the current expression.
+   * @return the value of the parsed expression.
+   */
+  E parseExpr(int precedence);
+  
+  /**
+   * Returns a lazy stream of the expressions of the text separated by a separator token.
+   * Each expression is parsed when the stream asks for the next element, so the expressions
+   * are not stored and can be garbage collected as soon as they are consumed.
+   * 
+   * The separators before and after an expression are skipped, so empty expressions are allowed,
+   * the stream ends when the end of the text is reached.
+   * The precedence of the separator should be lower or equals to the precedence of the expressions
+   * so the parsing of an expression stops at the separator.
+   * 
+   * @param <T> type of the tokens.
+   * @param lexer the lexer used by this parser.
+   * @param precedence the precedence of the expressions.
+   * @param separator the token that separates the expressions.
+   * @param eof the token that signals the end of the text.
+   * @return a lazy stream of the expressions, the stream throws an {@link IllegalStateException}
+   *         if an expression is not followed by a separator or the end of the text.
+   */
+  default <T> Stream<E> stream(Lexer<? extends T> lexer, int precedence, T separator, T eof) {
+    return StreamSupport.stream(new ExprSpliterator<>(lexer, separator, eof, () -> parseExpr(precedence)), false);
+  }
+  
+  /**
+   * Creates a Parser from the function that associate a precedence to a token and
+   * two {@link java.util.Map}s that associate a token to a parselet.
+   * If the lexer is {@link Lexer#reset(CharSequence) reset} with a new text, the parser can be reused
+   * to parse the new text.
+   * 
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param lexer a lexer.
+   * @param precedenceFun a function that returns the precedence of a token when used in suffix position.
+   * @param prefixMap a map that associate a token in prefix position and the code to execute to parse
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the code to execute to parse
+   *                  the corresponding suffix expression.
+   * @return a new parser.
+   */
+  static <E, T>
+    IntParser<E> create(Lexer<? extends T> lexer,
+                        ToIntFunction<? super T> precedenceFun,
+                        Map<T,PrefixParselet<E>> prefixMap,
+                        Map<T,SuffixParselet<E>> suffixMap) {
+    Objects.requireNonNull(lexer);
+    Objects.requireNonNull(precedenceFun);
+    Objects.requireNonNull(prefixMap);
+    Objects.requireNonNull(suffixMap);
+    return new IntParser<>() {
+      public E parseExpr(int precedence) {
+        var token = lexer.consume();
+        
+        var prefix = prefixMap.get(token);
+        if (prefix == null) {
+          throw new IllegalStateException("Could not parse token " +  token + " of value " + lexer.value());
+        }
+        var left = prefix.parse(this);
+
+        while (precedence < precedenceFun.applyAsInt(lexer.lookhead())) {
+          token = lexer.consume();
+          var suffix = suffixMap.get(token);
+          left = suffix.parse(this, left);
+        }
+        return left;
+      }
+    };
+  }
+}
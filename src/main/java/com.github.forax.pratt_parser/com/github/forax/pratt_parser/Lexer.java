@@ -3,9 +3,17 @@ package com.github.forax.pratt_parser;
 import static java.util.regex.Pattern.compile;
 import static java.util.stream.Collectors.joining;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.StringJoiner;
 import java.util.function.Function;
 
 /**
@@ -22,12 +30,55 @@ public interface Lexer<T> {
   
   /**
    * Return the value of the last matched token.
+   * The value is created lazily, use {@link #text()}, {@link #start()} and {@link #end()}
+   * to read the characters of the token without allocating a String.
    * 
    * @return the value of the last matched token, {@code null} otherwise.
    * @see #token()
    */
   String value();
   
+  /**
+   * Returns the text the tokens are extracted from.
+   * The characters of the last matched token are the characters between {@link #start()}
+   * and {@link #end()} of this text.
+   * 
+   * For a lexer that reads its input from a stream, see {@link #readerFactory(int, Object, Entry...)},
+   * the text is a window on the input that is only valid until the next call to {@link #consume()}
+   * or {@link #lookhead()}.
+   * 
+   * The lexers created by the factories of this interface all support this method,
+   * the default implementation throws an {@link UnsupportedOperationException}.
+   * 
+   * @return the text the tokens are extracted from.
+   * @throws UnsupportedOperationException if this lexer doesn't expose its text.
+   */
+  default CharSequence text() {
+    throw new UnsupportedOperationException();
+  }
+  
+  /**
+   * Returns the offset of the first character of the last matched token in {@link #text()}.
+   * The default implementation returns {@code -1}, for a lexer that doesn't track the offsets.
+   * 
+   * @return the offset of the first character of the last matched token, {@code -1} otherwise.
+   * @see #token()
+   */
+  default int start() {
+    return -1;
+  }
+  
+  /**
+   * Returns the offset after the last character of the last matched token in {@link #text()}.
+   * The default implementation returns {@code -1}, for a lexer that doesn't track the offsets.
+   * 
+   * @return the offset after the last character of the last matched token, {@code -1} otherwise.
+   * @see #token()
+   */
+  default int end() {
+    return -1;
+  }
+  
   /**
    * Parse the next token from the text and return it.
    * @return the next token from the text.
@@ -39,6 +90,39 @@ public interface Lexer<T> {
    * @return the token that will be returned by {@link #consume()} without consume it.
    */
   T lookhead();
+
+  /**
+   * Returns the k-th token that will be returned by {@link #consume()} without consuming any token,
+   * {@code lookahead(1)} is equivalent to {@link #lookhead()}.
+   * Only the lexers that read the tokens from a {@link TokenBuffer} support a lookahead greater than 1.
+   *
+   * @param k the distance of the token, 1 for the next token.
+   * @return the k-th next token.
+   * @throws IllegalArgumentException if {@code k} is not positive.
+   * @throws UnsupportedOperationException if this lexer doesn't support a lookahead of {@code k} tokens.
+   */
+  default T lookahead(int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("invalid lookahead " + k);
+    }
+    if (k != 1) {
+      throw new UnsupportedOperationException("lookahead " + k);
+    }
+    return lookhead();
+  }
+
+  /**
+   * Reset the lexer so it extracts the tokens of a new text, the lexer state is reused
+   * so resetting a lexer is cheaper than creating a new one.
+   * A parser created on this lexer can be reused to parse the new text.
+   * 
+   * @param text the new text.
+   * @throws NullPointerException if the text is null.
+   * @throws UnsupportedOperationException if this lexer can not be reset.
+   */
+  default void reset(CharSequence text) {
+    throw new UnsupportedOperationException();
+  }
   
   /**
    * Consume the next token and check that it matches the token pass as argument.
@@ -56,6 +140,11 @@ public interface Lexer<T> {
    * Returns a lexer factory that takes a text an returns a lexer that will split the text into tokens
    * following the pairs of token/regex.
    * 
+   * The characters that are not matched by any regex are skipped, if several regexes match at the same
+   * position, the first pair wins. The regexes that match a fixed string, like {@code "\\+"} or
+   * {@code "goto"}, are recognized by a trie without calling the regex engine,
+   * only the other regexes are matched using {@link java.util.regex.Pattern}.
+   * 
    * @param <T> type of the tokens.
    * @param eof the symbol to return at the end of the text.
    * @param regexes pairs of token/regex, during the parsing, if a regex matches, corresponding token will be
@@ -70,18 +159,57 @@ public interface Lexer<T> {
     if (regexes.length == 0) {
       throw new IllegalArgumentException("no token/regex pair specified");
     }
-    var pattern = compile(Arrays.stream(regexes).map(e -> '(' + e.getValue() + ')').collect(joining("|")));
+    var entries = new ArrayList<Entry<T, String>>(regexes.length);  // not List.of(regexes), an unsafe use of the varargs
+    for(var entry: regexes) {
+      entries.add(entry);
+    }
+    var literals = entries.stream().map(e -> LiteralTrie.literal(e.getValue())).toArray(String[]::new);
+    if (Arrays.stream(literals).anyMatch(Objects::nonNull)) {
+      return literalFactory(eof, entries, literals);
+    }
+    // the group of each entry, the groups of a regex are numbered after the group that encloses it
+    var groups = new int[entries.size()];
+    var group = 1;
+    for(var i = 0; i < groups.length; i++) {
+      groups[i] = group;
+      group += 1 + compile(entries.get(i).getValue()).matcher("").groupCount();
+    }
+    var pattern = compile(entries.stream().map(e -> '(' + e.getValue() + ')').collect(joining("|")));
     return input -> {
       var matcher = pattern.matcher(input);
       return new Lexer<>() {
+        private CharSequence text = input;
         private T token;
         private String value;
+        private int start = -1;
+        private int end = -1;
         private boolean lookhead;
         
         @Override
         public T token() { return token; }
         @Override
-        public String value() { return value; }
+        public String value() {
+          if (value == null && start != -1) {
+            value = text.subSequence(start, end).toString();
+          }
+          return value;
+        }
+        @Override
+        public CharSequence text() { return text; }
+        @Override
+        public int start() { return start; }
+        @Override
+        public int end() { return end; }
+
+        @Override
+        public void reset(CharSequence text) {
+          matcher.reset(text);
+          this.text = text;
+          token = null;
+          value = null;
+          start = end = -1;
+          lookhead = false;
+        }
 
         @Override
         public T lookhead() {
@@ -102,16 +230,18 @@ public interface Lexer<T> {
         }
         
         private T next() {
+          value = null;
           if (!matcher.find()) {
-            value = null;
+            start = end = -1;
             return token = eof;
           }
 
-          for(int i = 0; i < matcher.groupCount(); i++) {
-            var value = matcher.group(i + 1);
-            if (value != null) {
-              this.value = value;
-              return this.token = regexes[i].getKey();
+          for(int i = 0; i < groups.length; i++) {
+            var start = matcher.start(groups[i]);
+            if (start != -1) {
+              this.start = start;
+              this.end = matcher.end(groups[i]);
+              return this.token = entries.get(i).getKey();
             }
           }
           throw new RuntimeException("no match at " + matcher.start());
@@ -119,4 +249,428 @@ public interface Lexer<T> {
       };
     };
   }
+
+  // the literal entries are matched by a trie, the other entries are grouped into one regex,
+  // the leftmost regex match is kept until the lexer goes past it, so the regex engine is called
+  // once per non literal token
+  private static <T> Function<CharSequence, Lexer<T>> literalFactory(T eof, List<Entry<T, String>> entries, String[] literals) {
+    var trie = new LiteralTrie(literals);
+    var regexGroups = new int[entries.size()];
+    var regexEntries = new int[entries.size()];
+    var regexCount = 0;
+    var group = 1;
+    var joiner = new StringJoiner("|");
+    for(var i = 0; i < entries.size(); i++) {
+      if (literals[i] != null) {
+        continue;
+      }
+      var regex = entries.get(i).getValue();
+      regexGroups[regexCount] = group;
+      regexEntries[regexCount++] = i;
+      group += 1 + compile(regex).matcher("").groupCount();
+      joiner.add('(' + regex + ')');
+    }
+    var pattern = regexCount == 0? null: compile(joiner.toString());
+    var groupCount = regexCount;
+    return input -> {
+      Objects.requireNonNull(input);
+      var matcher = pattern == null? null: pattern.matcher(input);
+      return new Lexer<>() {
+        private static final int UNKNOWN = -2;
+        private static final int NO_MATCH = -1;
+
+        private CharSequence text = input;
+        private T token;
+        private String value;
+        private int start = -1;
+        private int end = -1;
+        private boolean lookhead;
+        private int position;  // where the next search starts
+        private int regexStart = UNKNOWN;
+        private int regexEnd;
+        private int regexEntry;
+
+        @Override
+        public T token() { return token; }
+        @Override
+        public String value() {
+          if (value == null && start != -1) {
+            value = text.subSequence(start, end).toString();
+          }
+          return value;
+        }
+        @Override
+        public CharSequence text() { return text; }
+        @Override
+        public int start() { return start; }
+        @Override
+        public int end() { return end; }
+
+        @Override
+        public void reset(CharSequence text) {
+          if (matcher != null) {
+            matcher.reset(text);
+          }
+          this.text = Objects.requireNonNull(text);
+          token = null;
+          value = null;
+          start = end = -1;
+          lookhead = false;
+          position = 0;
+          regexStart = UNKNOWN;
+        }
+
+        @Override
+        public T lookhead() {
+          if(lookhead) {
+            return token;
+          }
+          lookhead = true;
+          return next();
+        }
+
+        @Override
+        public T consume() {
+          if(lookhead) {
+            lookhead = false;
+            return token;
+          }
+          return next();
+        }
+
+        private void findRegex() {
+          if (matcher == null || position > text.length() || !matcher.find(position)) {
+            regexStart = NO_MATCH;
+            return;
+          }
+          regexStart = matcher.start();
+          regexEnd = matcher.end();
+          for(var i = 0; i < groupCount; i++) {
+            if (matcher.start(regexGroups[i]) != -1) {
+              regexEntry = regexEntries[i];
+              return;
+            }
+          }
+          throw new RuntimeException("no match at " + regexStart);
+        }
+
+        private T next() {
+          value = null;
+          if (regexStart == UNKNOWN || (regexStart != NO_MATCH && regexStart < position)) {
+            findRegex();
+          }
+          var text = this.text;
+          // a literal wins if it starts before the regex match or at the same position with a lower entry
+          var limit = regexStart == NO_MATCH? text.length(): regexStart;
+          for(var i = position; i <= limit; i++) {
+            var match = trie.match(text, i);
+            if (match != -1 && (i != regexStart || Automaton.entry(match) < regexEntry)) {
+              start = i;
+              end = position = Automaton.end(match);
+              return token = entries.get(Automaton.entry(match)).getKey();
+            }
+          }
+          if (regexStart != NO_MATCH) {
+            start = regexStart;
+            end = regexEnd;
+            position = regexEnd == regexStart? regexEnd + 1: regexEnd;  // like Matcher.find() after an empty match
+            return token = entries.get(regexEntry).getKey();
+          }
+          position = text.length();
+          start = end = -1;
+          return token = eof;
+        }
+      };
+    };
+  }
+
+  /**
+   * Returns a lexer factory that takes a text an returns a lexer that will split the text into tokens
+   * following the pairs of token/regex, like {@link #factory(Object, Entry...)} but all the regexes are
+   * compiled into one deterministic automaton, so the cost of recognizing a token doesn't depend on
+   * the number of token/regex pairs and the text is scanned without backtracking.
+   *
+   * As with {@link #factory(Object, Entry...)}, the characters that are not matched by any regex are skipped
+   * and the first pair that matches wins, if a regex can match several sequences of characters,
+   * the longest one is used. Only the regular subset of the {@link java.util.regex.Pattern} syntax is
+   * supported: characters, escaped characters, character classes, groups, alternations and
+   * greedy quantifiers.
+   *
+   * @param <T> type of the tokens.
+   * @param eof the symbol to return at the end of the text.
+   * @param regexes pairs of token/regex, during the parsing, if a regex matches, corresponding token will be
+   *        returned by {@link Lexer#consume()}.
+   * @return a lexer factory that takes a text an returns a lexer configured by the pairs token/regex.
+   * @throws NullPointerException if the array of {@code regexes} is null.
+   * @throws IllegalArgumentException if the array of {@code regexes} is empty or if a regex
+   *         is not supported.
+   */
+  @SafeVarargs
+  static <T> Function<CharSequence, Lexer<T>> dfaFactory(T eof, Entry<T, String>... regexes) {
+    Objects.requireNonNull(eof);
+    if (regexes.length == 0) {
+      throw new IllegalArgumentException("no token/regex pair specified");
+    }
+    var entries = new ArrayList<Entry<T, String>>(regexes.length);
+    for(var entry: regexes) {
+      entries.add(entry);
+    }
+    var automaton = Automaton.compile(entries.stream().map(Entry::getValue).toArray(String[]::new));
+    return input -> {
+      Objects.requireNonNull(input);
+      return new Lexer<>() {
+        private CharSequence text = input;
+        private T token;
+        private String value;
+        private int start = -1;
+        private int end = -1;
+        private boolean lookhead;
+        private int position;
+
+        @Override
+        public T token() { return token; }
+        @Override
+        public String value() {
+          if (value == null && start != -1) {
+            value = text.subSequence(start, end).toString();
+          }
+          return value;
+        }
+        @Override
+        public CharSequence text() { return text; }
+        @Override
+        public int start() { return start; }
+        @Override
+        public int end() { return end; }
+
+        @Override
+        public void reset(CharSequence text) {
+          this.text = Objects.requireNonNull(text);
+          token = null;
+          value = null;
+          start = end = -1;
+          lookhead = false;
+          position = 0;
+        }
+
+        @Override
+        public T lookhead() {
+          if(lookhead) {
+            return token;
+          }
+          lookhead = true;
+          return next();
+        }
+
+        @Override
+        public T consume() {
+          if(lookhead) {
+            lookhead = false;
+            return token;
+          }
+          return next();
+        }
+
+        private T next() {
+          value = null;
+          var text = this.text;
+          var length = text.length();
+          for(var start = position; start < length; start++) {
+            var match = automaton.match(text, start);
+            if (match != -1) {
+              this.start = start;
+              end = position = Automaton.end(match);
+              return token = entries.get(Automaton.entry(match)).getKey();
+            }
+          }
+          position = length;
+          start = end = -1;
+          return token = eof;
+        }
+      };
+    };
+  }
+
+  /**
+   * Returns a lexer factory that takes a reader and returns a lexer that will split the characters
+   * of the reader into tokens following the pairs of token/regex, like {@link #dfaFactory(Object, Entry...)}.
+   * 
+   * The characters are read into a buffer of fixed size that is refilled when all its characters
+   * have been consumed, so the memory used doesn't depend on the size of the input, a token can span
+   * several reads but must be shorter than the size of the buffer (the lexer may need to read
+   * the character after a token to know where the token ends).
+   * The reader is not closed by the lexer.
+   * 
+   * To read from a {@link java.nio.channels.ReadableByteChannel}, the channel can be wrapped into
+   * a reader using {@link java.nio.channels.Channels#newReader(java.nio.channels.ReadableByteChannel, java.nio.charset.Charset)}.
+   * 
+   * @param <T> type of the tokens.
+   * @param bufferSize the size of the buffer.
+   * @param eof the symbol to return at the end of the text.
+   * @param regexes pairs of token/regex, during the parsing, if a regex matches, corresponding token will be
+   *        returned by {@link Lexer#consume()}.
+   * @return a lexer factory that takes a reader an returns a lexer configured by the pairs token/regex,
+   *         the lexer throws an {@link UncheckedIOException} if the reader throws an {@link IOException}
+   *         and an {@link IllegalStateException} if a token is longer than the buffer size.
+   * @throws NullPointerException if the array of {@code regexes} is null.
+   * @throws IllegalArgumentException if the buffer size is not positive, if the array of {@code regexes}
+   *         is empty or if a regex is not supported.
+   */
+  @SafeVarargs
+  static <T> Function<Reader, Lexer<T>> readerFactory(int bufferSize, T eof, Entry<T, String>... regexes) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("invalid buffer size " + bufferSize);
+    }
+    Objects.requireNonNull(eof);
+    if (regexes.length == 0) {
+      throw new IllegalArgumentException("no token/regex pair specified");
+    }
+    var entries = new ArrayList<Entry<T, String>>(regexes.length);
+    for(var entry: regexes) {
+      entries.add(entry);
+    }
+    var automaton = Automaton.compile(entries.stream().map(Entry::getValue).toArray(String[]::new));
+    return reader -> {
+      Objects.requireNonNull(reader);
+      return new Lexer<>() {
+        private final char[] chars = new char[bufferSize];
+        private final CharBuffer text = CharBuffer.wrap(chars, 0, 0);
+        private int filled;
+        private boolean endOfInput;
+        private T token;
+        private String value;
+        private int start = -1;
+        private int end = -1;
+        private boolean lookhead;
+        private int position;
+
+        @Override
+        public T token() { return token; }
+        @Override
+        public String value() {
+          if (value == null && start != -1) {
+            value = new String(chars, start, end - start);
+          }
+          return value;
+        }
+        @Override
+        public CharSequence text() { return text; }
+        @Override
+        public int start() { return start; }
+        @Override
+        public int end() { return end; }
+
+        @Override
+        public T lookhead() {
+          if(lookhead) {
+            return token;
+          }
+          lookhead = true;
+          return next();
+        }
+
+        @Override
+        public T consume() {
+          if(lookhead) {
+            lookhead = false;
+            return token;
+          }
+          return next();
+        }
+
+        // discard the characters before position and read more characters
+        private void fill() {
+          if (position == 0 && filled == chars.length) {
+            throw new IllegalStateException("token longer than the buffer size " + chars.length);
+          }
+          System.arraycopy(chars, position, chars, 0, filled - position);
+          filled -= position;
+          position = 0;
+          start = end = -1;
+          try {
+            int read;
+            while((read = reader.read(chars, filled, chars.length - filled)) == 0) {
+              // empty
+            }
+            if (read == -1) {
+              endOfInput = true;
+            } else {
+              filled += read;
+            }
+          } catch(IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          text.limit(filled);
+        }
+
+        private T next() {
+          value = null;
+          for(;;) {
+            if (position == filled) {
+              if (endOfInput) {
+                start = end = -1;
+                return token = eof;
+              }
+              fill();
+              continue;
+            }
+            var match = automaton.match(text, position, filled, endOfInput);
+            if (match == Automaton.NEED_MORE) {
+              fill();
+              continue;
+            }
+            if (match == -1) {
+              position++;
+              continue;
+            }
+            start = position;
+            end = position = Automaton.end(match);
+            return token = entries.get(Automaton.entry(match)).getKey();
+          }
+        }
+      };
+    };
+  }
+
+  /**
+   * Returns a lexer factory that takes UTF-8 encoded bytes and returns a lexer that splits the bytes
+   * into numbers, identifiers and literals without decoding them.
+   * The offsets {@link #start()} and {@link #end()} are offsets in bytes from the position of the buffer,
+   * {@link #text()} is a view of the bytes in which each byte is a character and {@link #value()}
+   * is the token decoded from UTF-8.
+   * 
+   * A number is a run of ASCII digits, an identifier starts with a letter, {@code '_'} or a code point
+   * that {@link Character#isUnicodeIdentifierStart(int) can start an identifier} and continues
+   * with letters, digits, {@code '_'} or code points that {@link Character#isUnicodeIdentifierPart(int)
+   * can be part of an identifier}. A literal that starts like an identifier is a keyword, it is returned
+   * instead of the identifier token if it is equal to the whole identifier, the other literals are matched
+   * as is, if several literals match at the same position, the first pair wins.
+   * The bytes less or equal to a space are skipped, like the bytes that can not start a token.
+   * 
+   * The runs of whitespaces, digits and ASCII identifier characters are scanned 8 bytes at a time,
+   * only the non ASCII code points are decoded.
+   * The lexer doesn't change the position or the limit of the buffer.
+   * 
+   * @param <T> type of the tokens.
+   * @param eof the symbol to return at the end of the text.
+   * @param number the token of the numbers.
+   * @param identifier the token of the identifiers.
+   * @param literals pairs of token/literal, the literal is a plain string, not a regex.
+   * @return a lexer factory that takes a buffer of UTF-8 encoded bytes and returns a lexer.
+   * @throws NullPointerException if a token or the array of {@code literals} is null.
+   * @throws IllegalArgumentException if a literal is empty or starts with a digit or a byte less
+   *         or equal to a space, or if a literal starts like an identifier but is not an identifier.
+   */
+  @SafeVarargs
+  static <T> Function<ByteBuffer, Lexer<T>> utf8Factory(T eof, T number, T identifier, Entry<T, String>... literals) {
+    Objects.requireNonNull(eof);
+    Objects.requireNonNull(number);
+    Objects.requireNonNull(identifier);
+    var entries = new ArrayList<Entry<T, String>>(literals.length);
+    for(var entry: literals) {
+      entries.add(entry);
+    }
+    var config = new Utf8Lexer.Config<>(eof, number, identifier, entries);
+    return input -> new Utf8Lexer<>(config, Objects.requireNonNull(input));
+  }
 }
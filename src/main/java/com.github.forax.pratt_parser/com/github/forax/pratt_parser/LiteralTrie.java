@@ -0,0 +1,147 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Arrays;
+
+/**
+ * A trie of the regexes that match a fixed string, like {@code "\\+"} or {@code "goto"},
+ * so the literal tokens can be recognized without calling the regex engine.
+ *
+ * The first character is dispatched with a table indexed by the character if the character
+ * is an ASCII character, the other characters of a node are sorted and found by a binary search.
+ *
+ * This class is immutable and thread safe.
+ */
+final class LiteralTrie {
+  private static final class Node {
+    private char[] chars = new char[0];
+    private Node[] children = new Node[0];
+    private int entry = -1;
+
+    private Node child(char c) {
+      var index = Arrays.binarySearch(chars, c);
+      return index < 0? null: children[index];
+    }
+
+    private Node getOrCreateChild(char c) {
+      var index = Arrays.binarySearch(chars, c);
+      if (index >= 0) {
+        return children[index];
+      }
+      var insert = -index - 1;
+      var child = new Node();
+      var newChars = new char[chars.length + 1];
+      System.arraycopy(chars, 0, newChars, 0, insert);
+      System.arraycopy(chars, insert, newChars, insert + 1, chars.length - insert);
+      newChars[insert] = c;
+      var newChildren = new Node[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, insert);
+      System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+      newChildren[insert] = child;
+      chars = newChars;
+      children = newChildren;
+      return child;
+    }
+  }
+
+  private final Node root = new Node();
+  private final Node[] asciiNodes = new Node[128];
+
+  /**
+   * Creates a trie.
+   * @param literals the literal of each entry or null if the entry is not a literal.
+   */
+  LiteralTrie(String[] literals) {
+    for(var i = 0; i < literals.length; i++) {
+      var literal = literals[i];
+      if (literal == null) {
+        continue;
+      }
+      var node = root;
+      for(var j = 0; j < literal.length(); j++) {
+        node = node.getOrCreateChild(literal.charAt(j));
+      }
+      if (node.entry == -1) {  // the first entry wins
+        node.entry = i;
+      }
+    }
+    for(var c = 0; c < asciiNodes.length; c++) {
+      asciiNodes[c] = root.child((char) c);
+    }
+  }
+
+  /**
+   * Try to match the literals at the position {@code start} of a text.
+   * If several literals match, the one of the first entry wins even if it's not the longest one.
+   *
+   * @param text a text.
+   * @param start the start position.
+   * @return -1 if there is no match, otherwise the entry index and the end position
+   *         encoded like {@link Automaton#match(CharSequence, int)}.
+   */
+  long match(CharSequence text, int start) {
+    var length = text.length();
+    if (start >= length) {
+      return -1;
+    }
+    var c = text.charAt(start);
+    var node = c < 128? asciiNodes[c]: root.child(c);
+    var bestEntry = Integer.MAX_VALUE;
+    var bestEnd = -1;
+    for(var i = start + 1; node != null; i++) {
+      var entry = node.entry;
+      if (entry != -1 && entry < bestEntry) {
+        bestEntry = entry;
+        bestEnd = i;
+      }
+      if (i == length) {
+        break;
+      }
+      node = node.child(text.charAt(i));
+    }
+    return bestEnd == -1? -1: ((long) bestEntry) << 32 | bestEnd;
+  }
+
+  /**
+   * Returns the entry of the literal equals to a part of a text.
+   *
+   * @param text a text.
+   * @param start the start of the part of the text.
+   * @param end the end of the part of the text.
+   * @return the index of the entry or -1 if no literal is equal to the part of the text.
+   */
+  int exactMatch(CharSequence text, int start, int end) {
+    var node = root;
+    for(var i = start; i < end && node != null; i++) {
+      node = node.child(text.charAt(i));
+    }
+    return node == null? -1: node.entry;
+  }
+
+  /**
+   * Returns the string matched by a regex if the regex only matches that string, using only
+   * plain characters and characters escaped with a backslash that are not letters or digits.
+   *
+   * @param regex a regex.
+   * @return the string matched by the regex or null if the regex is not a literal or matches
+   *         the empty string.
+   */
+  static String literal(String regex) {
+    var builder = new StringBuilder();
+    for(var i = 0; i < regex.length(); i++) {
+      var c = regex.charAt(i);
+      if (c == '\\') {
+        if (++i == regex.length()) {
+          return null;
+        }
+        c = regex.charAt(i);
+        if (Character.isLetterOrDigit(c)) {  // \d, \Q, \1, etc
+          return null;
+        }
+      } else if ("^$.|?*+()[]{}".indexOf(c) != -1) {
+        return null;
+      }
+      builder.append(c);
+    }
+    return builder.length() == 0? null: builder.toString();
+  }
+}
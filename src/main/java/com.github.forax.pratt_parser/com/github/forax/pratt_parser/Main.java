@@ -30,7 +30,7 @@ public class Main {
             PLUS,  p -> p.parseExpr(P_NONE),
             MINUS, p -> - p.parseExpr(P_NONE),
             LPAR,  p -> { int v = p.parseExpr(P_NONE); lexer.consume(RPAR); return v; }, 
-            NUM,   p -> Integer.parseInt(lexer.value())),
+            NUM,   p -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10)),
         Map.of(
             PLUS,  (p, left) -> left + p.parseExpr(P_ADD),
             STAR,  (p, left) -> left * p.parseExpr(P_MUL)));
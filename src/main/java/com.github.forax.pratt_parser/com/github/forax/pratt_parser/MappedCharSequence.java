@@ -0,0 +1,90 @@
+package com.github.forax.pratt_parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The implementation of the {@link CharSequence}s returned by {@link MappedInput}.
+ *
+ * A mapped buffer is limited to 2 GB, so the region of the file is mapped as several windows
+ * of {@code 1 << shift} bytes, the window of a character is found with a shift and its offset
+ * in the window with a mask. A byte is decoded as the ISO-8859-1 character of the same value.
+ *
+ * A sub sequence shares the windows of its sequence.
+ * This class is immutable and thread safe, the buffers are only read with absolute methods
+ * or through a duplicate.
+ */
+final class MappedCharSequence implements CharSequence {
+  static final int WINDOW_SHIFT = 30;  // 1 GB
+
+  private final ByteBuffer[] windows;
+  private final int shift;
+  private final int mask;
+  private final int start;
+  private final int length;
+
+  MappedCharSequence(ByteBuffer[] windows, int shift, int start, int length) {
+    this.windows = windows;
+    this.shift = shift;
+    this.mask = (1 << shift) - 1;
+    this.start = start;
+    this.length = length;
+  }
+
+  /**
+   * Maps a region of a file as windows of {@code 1 << shift} bytes.
+   *
+   * @param channel the channel of the file.
+   * @param position the position of the region in the file.
+   * @param length the length of the region.
+   * @param shift the log2 of the size of a window.
+   * @return a character sequence of the region of the file.
+   * @throws IOException if the region can not be mapped.
+   */
+  static MappedCharSequence map(FileChannel channel, long position, int length, int shift) throws IOException {
+    var windowSize = 1L << shift;
+    var windows = new ByteBuffer[(int) ((length + windowSize - 1) >>> shift)];
+    for(var i = 0; i < windows.length; i++) {
+      var offset = (long) i << shift;
+      windows[i] = channel.map(MapMode.READ_ONLY, position + offset, Math.min(windowSize, length - offset));
+    }
+    return new MappedCharSequence(windows, shift, 0, length);
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    var position = start + Objects.checkIndex(index, length);
+    return (char) (windows[position >>> shift].get(position & mask) & 0xFF);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    Objects.checkFromToIndex(start, end, length);
+    return new MappedCharSequence(windows, shift, this.start + start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    var bytes = new byte[length];
+    var position = start;
+    var offset = 0;
+    while(offset < length) {
+      var window = windows[position >>> shift].duplicate();
+      window.position(position & mask);
+      var count = Math.min(window.remaining(), length - offset);
+      window.get(bytes, offset, count);
+      offset += count;
+      position += count;
+    }
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+}
@@ -0,0 +1,64 @@
+package com.github.forax.pratt_parser;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Exposes the content of a file as a {@link CharSequence} backed by memory mapped buffers,
+ * so a {@link Lexer} can lex a file directly from the page cache without reading it into a String.
+ *
+ * Each byte is decoded as one character of the same value, so the file should be encoded in ASCII
+ * or ISO-8859-1 (Latin-1), the offsets of the tokens are the offsets in the file.
+ * A mapped buffer is limited to 2 GB so the file is mapped as several windows, and because
+ * the length of a {@link CharSequence} is an {@code int}, a file larger than 2 GB should be
+ * lexed by {@link #map(FileChannel, long, int) regions}.
+ *
+ * The mapping stays valid after the file is closed and is released when the character sequence
+ * is garbage collected. The content of the file should not be modified while it is mapped.
+ */
+public interface MappedInput {
+  /**
+   * Returns a character sequence of the content of a file.
+   *
+   * @param path the path of the file.
+   * @return a character sequence of the content of the file.
+   * @throws IOException if the file can not be opened or mapped.
+   * @throws IllegalArgumentException if the file is larger than {@link Integer#MAX_VALUE} bytes.
+   */
+  static CharSequence map(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("file too large " + size + ", use map(channel, position, length)");
+      }
+      return map(channel, 0, (int) size);
+    }
+  }
+
+  /**
+   * Returns a character sequence of a region of a file, the region can start anywhere in the file,
+   * so a file larger than 2 GB can be lexed region by region.
+   * The channel can be closed once the character sequence is created.
+   *
+   * @param channel the channel of the file, opened for reading.
+   * @param position the position of the region in the file.
+   * @param length the length of the region.
+   * @return a character sequence of the region of the file, the index 0 being the byte at {@code position}.
+   * @throws IOException if the region can not be mapped, by example if the region is not inside the file.
+   * @throws IllegalArgumentException if the position or the length is negative.
+   */
+  static CharSequence map(FileChannel channel, long position, int length) throws IOException {
+    Objects.requireNonNull(channel);
+    if (position < 0) {
+      throw new IllegalArgumentException("invalid position " + position);
+    }
+    if (length < 0) {
+      throw new IllegalArgumentException("invalid length " + length);
+    }
+    return MappedCharSequence.map(channel, position, length, MappedCharSequence.WINDOW_SHIFT);
+  }
+}
@@ -0,0 +1,285 @@
+package com.github.forax.pratt_parser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import jdk.jfr.EventType;
+
+/**
+ * The implementation of {@link ParserMonitor}.
+ *
+ * Each monitored parser has its own {@link Session}, a lexer that wraps the lexer of the parser,
+ * that stores the counters of the current call to {@code parseExpr} without any synchronization.
+ * The counters of a session are added to the counters of the monitor at the end of the call.
+ * If neither the monitor nor the Flight Recorder event are enabled, a call to {@code parseExpr}
+ * doesn't allocate and calls the parser of the grammar without monitoring.
+ *
+ * @param <T> type of the tokens.
+ */
+final class Monitor<T> implements ParserMonitor<T> {
+  private static final EventType PARSE_EVENT_TYPE = EventType.getEventType(ParseEvent.class);
+
+  private volatile boolean enabled = true;
+  private final LongAdder parseCount = new LongAdder();
+  private final LongAdder tokenCount = new LongAdder();
+  private final LongAdder lexingNanos = new LongAdder();
+  private final LongAdder parseletNanos = new LongAdder();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+  private final ConcurrentHashMap<T, LongAdder> invocationMap = new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked")
+  static <T> Monitor<T> of(ParserMonitor<T> monitor) {
+    Objects.requireNonNull(monitor);
+    if (!(monitor instanceof Monitor)) {
+      throw new IllegalArgumentException("unknown monitor implementation " + monitor.getClass().getName());
+    }
+    return (Monitor<T>) monitor;
+  }
+
+  /**
+   * The lexer of a monitored parser.
+   *
+   * @param <T> type of the tokens.
+   */
+  static final class Session<T> extends ForwardingLexer<T> {
+    private boolean active;
+    private boolean recording;
+    private ParseEvent event;  // null if the Flight Recorder event is not enabled
+    private long startTime;
+    private long tokens;
+    private long invocations;
+    private int depth;
+    private int maxDepth;
+    private long lexingNanos;
+
+    Session(Lexer<T> lexer) {
+      super(lexer);
+    }
+
+    @Override
+    public T consume() {
+      var start = System.nanoTime();
+      var token = lexer.consume();
+      lexingNanos += System.nanoTime() - start;
+      tokens++;
+      return token;
+    }
+    @Override
+    public T lookhead() {
+      var start = System.nanoTime();
+      var token = lexer.lookhead();
+      lexingNanos += System.nanoTime() - start;
+      return token;
+    }
+    @Override
+    public T lookahead(int k) {
+      var start = System.nanoTime();
+      var token = lexer.lookahead(k);
+      lexingNanos += System.nanoTime() - start;
+      return token;
+    }
+
+    /**
+     * Called by a parselet before parsing.
+     * @param counter the counter of the invocations of the parselet.
+     */
+    void enter(LongAdder counter) {
+      invocations++;
+      if (++depth > maxDepth) {
+        maxDepth = depth;
+      }
+      if (recording) {
+        counter.increment();
+      }
+    }
+
+    /**
+     * Called by a parselet after parsing.
+     */
+    void exit() {
+      depth--;
+    }
+  }
+
+  /**
+   * Returns the session of the lexer passed to a monitored parselet.
+   * @param lexer the lexer passed to the parselet.
+   * @return the session of the monitored parser.
+   */
+  static Session<?> session(Lexer<?> lexer) {
+    return (Session<?>) lexer;
+  }
+
+  /**
+   * Returns the counter of the parselet invocations of a token.
+   * @param token a token.
+   * @return the counter of the parselet invocations of the token.
+   */
+  LongAdder invocationCounter(T token) {
+    return invocationMap.computeIfAbsent(token, __ -> new LongAdder());
+  }
+
+  /**
+   * Returns a map with the monitored parselets of a map, the code shared by
+   * the monitored {@link Grammar} and the monitored {@link IntGrammar}.
+   * A monitored parselet finds the {@link #session(Lexer) session} of the parser in the lexer
+   * and calls {@link Session#enter(LongAdder)} and {@link Session#exit()} around the parselet.
+   *
+   * @param <V> type of the parselets.
+   * @param parseletMap a map from the tokens to the parselets.
+   * @param monitoredParselet a function that creates a monitored parselet from a parselet
+   *                          and the counter of its invocations.
+   * @return a new map from the tokens to the monitored parselets.
+   */
+  <V> Map<T, V> monitoredParselets(Map<T, ? extends V> parseletMap,
+                                   BiFunction<? super V, ? super LongAdder, ? extends V> monitoredParselet) {
+    var map = new HashMap<T, V>();
+    parseletMap.forEach((token, parselet) -> map.put(token, monitoredParselet.apply(parselet, invocationCounter(token))));
+    return map;
+  }
+
+  /**
+   * A call to {@code parseExpr} on a parser, by example {@code Parser::parseExpr}.
+   *
+   * @param <Q> type of the parsers.
+   * @param <P> type of the precedences.
+   * @param <E> type of the expressions.
+   */
+  interface ParseExpr<Q, P, E> {
+    E parseExpr(Q parser, P precedence);
+  }
+
+  /**
+   * Parses an expression with the parser of a monitored grammar, the code shared by
+   * the monitored {@link Grammar} and the monitored {@link IntGrammar}.
+   * If the call is not monitored, the expression is parsed by the parser of the grammar,
+   * otherwise it is parsed by the parser of the grammar of the monitored parselets.
+   *
+   * @param <Q> type of the parsers.
+   * @param <P> type of the precedences.
+   * @param <E> type of the expressions.
+   * @param session the session of the parser.
+   * @param parser the parser of the grammar.
+   * @param monitoredParser the parser of the grammar of the monitored parselets on the session.
+   * @param precedence the precedence of the expression.
+   * @param parseExpr the call to {@code parseExpr}.
+   * @return the parsed expression.
+   */
+  <Q, P, E> E parseExpr(Session<T> session, Q parser, Q monitoredParser, P precedence,
+                        ParseExpr<? super Q, ? super P, ? extends E> parseExpr) {
+    if (!begin(session)) {
+      return parseExpr.parseExpr(parser, precedence);
+    }
+    try {
+      return parseExpr.parseExpr(monitoredParser, precedence);
+    } finally {
+      end(session);
+    }
+  }
+
+  // starts to monitor a call to parseExpr, returns false if the call should not be monitored,
+  // the event is only allocated if the Flight Recorder event is enabled
+  private boolean begin(Session<T> session) {
+    var enabled = this.enabled;
+    var eventEnabled = PARSE_EVENT_TYPE.isEnabled();
+    if (session.active || (!enabled && !eventEnabled)) {
+      return false;
+    }
+    session.active = true;
+    session.recording = enabled;
+    session.tokens = 0;
+    session.invocations = 0;
+    session.depth = 0;
+    session.maxDepth = 0;
+    session.lexingNanos = 0;
+    if (eventEnabled) {
+      var event = new ParseEvent();
+      event.begin();
+      session.event = event;
+    }
+    session.startTime = System.nanoTime();
+    return true;
+  }
+
+  // ends to monitor a call to parseExpr, even if the parsing has failed
+  private void end(Session<T> session) {
+    var parseletTime = System.nanoTime() - session.startTime - session.lexingNanos;
+    var event = session.event;
+    session.event = null;
+    session.active = false;
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.tokens = session.tokens;
+        event.parseletInvocations = session.invocations;
+        event.maxDepth = session.maxDepth;
+        event.lexingTime = session.lexingNanos;
+        event.parseletTime = parseletTime;
+        event.commit();
+      }
+    }
+    if (session.recording) {
+      parseCount.increment();
+      tokenCount.add(session.tokens);
+      lexingNanos.add(session.lexingNanos);
+      parseletNanos.add(parseletTime);
+      maxDepth.accumulateAndGet(session.maxDepth, Math::max);
+    }
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+  @Override
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  public long parseCount() {
+    return parseCount.sum();
+  }
+  @Override
+  public long tokenCount() {
+    return tokenCount.sum();
+  }
+  @Override
+  public Map<T, Long> parseletInvocations() {
+    var map = new HashMap<T, Long>();
+    invocationMap.forEach((token, counter) -> {
+      var count = counter.sum();
+      if (count != 0) {
+        map.put(token, count);
+      }
+    });
+    return map;
+  }
+  @Override
+  public int maxDepth() {
+    return maxDepth.get();
+  }
+  @Override
+  public long lexingNanos() {
+    return lexingNanos.sum();
+  }
+  @Override
+  public long parseletNanos() {
+    return parseletNanos.sum();
+  }
+
+  @Override
+  public void reset() {
+    parseCount.reset();
+    tokenCount.reset();
+    lexingNanos.reset();
+    parseletNanos.reset();
+    maxDepth.set(0);
+    invocationMap.values().forEach(LongAdder::reset);
+  }
+}
@@ -0,0 +1,196 @@
+package com.github.forax.pratt_parser;
+
+/**
+ * A tree of nodes stored in columns, the kind of each node, the offsets of its token, its parent,
+ * its first child and its next sibling are stored in arrays of {@code int}, so building and walking
+ * a tree doesn't allocate one object per node.
+ *
+ * The nodes are added by the parselets after their children, a node takes as children the last
+ * {@code arity} trees that are not yet the child of a node, so the nodes are stored in post order
+ * and an evaluator can compute the value of a tree by iterating over the nodes from index 0 to
+ * {@link #size()} with a stack, without following the links.
+ * The expressions returned by the parselets are the arena itself, the tree is only described
+ * by the nodes added to the arena.
+ * <pre>
+ *   var arena = NodeArena.&lt;Token&gt;create(1024);
+ *   var grammar = IntGrammar.&lt;NodeArena&lt;Token&gt;, Token&gt;create(precedences,
+ *       Map.of(NUM, (p, lexer) -&gt; arena.node(NUM, lexer.start(), lexer.end(), 0)),
+ *       Map.of(PLUS, (p, lexer, left) -&gt; {
+ *         var start = lexer.start();
+ *         var end = lexer.end();
+ *         p.parseExpr(1);
+ *         return arena.node(PLUS, start, end, 2);
+ *       }));
+ * </pre>
+ *
+ * An arena can be {@link #clear() cleared} and reused for another text,
+ * an arena is not thread safe, it should be used by one parser at a time.
+ *
+ * @param <T> type of the tokens used as kind of the nodes.
+ */
+public interface NodeArena<T> {
+  /**
+   * A mutable position on a node of an arena used to walk the tree.
+   *
+   * @param <T> type of the tokens used as kind of the nodes.
+   */
+  interface Cursor<T> {
+    /**
+     * Returns the index of the current node.
+     * @return the index of the current node.
+     */
+    int node();
+
+    /**
+     * Returns the kind of the current node.
+     * @return the kind of the current node.
+     */
+    T kind();
+
+    /**
+     * Returns the start offset of the current node.
+     * @return the start offset of the current node.
+     */
+    int start();
+
+    /**
+     * Returns the end offset of the current node.
+     * @return the end offset of the current node.
+     */
+    int end();
+
+    /**
+     * Returns the number of children of the current node.
+     * @return the number of children of the current node.
+     */
+    int childCount();
+
+    /**
+     * Moves to the first child of the current node if there is one.
+     * @return true if the cursor has moved.
+     */
+    boolean firstChild();
+
+    /**
+     * Moves to the next sibling of the current node if there is one.
+     * @return true if the cursor has moved.
+     */
+    boolean nextSibling();
+
+    /**
+     * Moves to the parent of the current node if there is one.
+     * @return true if the cursor has moved.
+     */
+    boolean parent();
+  }
+
+  /**
+   * Adds a node that takes as children the last {@code arity} trees that are not yet the child of a node.
+   *
+   * @param kind the kind of the node.
+   * @param start the start offset of the node, usually the start of its token.
+   * @param end the end offset of the node, usually the end of its token.
+   * @param arity the number of children.
+   * @return this arena.
+   * @throws NullPointerException if the kind is null.
+   * @throws IllegalArgumentException if the arity is negative.
+   * @throws IllegalStateException if there are less than {@code arity} trees without parent.
+   */
+  NodeArena<T> node(T kind, int start, int end, int arity);
+
+  /**
+   * Returns the number of nodes.
+   * @return the number of nodes.
+   */
+  int size();
+
+  /**
+   * Returns the index of the last node added that has no parent, the root of the last parsed expression.
+   * @return the index of the root or -1 if there is no node.
+   */
+  int root();
+
+  /**
+   * Returns the kind of a node.
+   * @param node the index of the node.
+   * @return the kind of the node.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  T kind(int node);
+
+  /**
+   * Returns the start offset of a node.
+   * @param node the index of the node.
+   * @return the start offset of the node.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int start(int node);
+
+  /**
+   * Returns the end offset of a node.
+   * @param node the index of the node.
+   * @return the end offset of the node.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int end(int node);
+
+  /**
+   * Returns the number of children of a node.
+   * @param node the index of the node.
+   * @return the number of children of the node.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int childCount(int node);
+
+  /**
+   * Returns the first child of a node.
+   * @param node the index of the node.
+   * @return the index of the first child or -1 if the node has no child.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int firstChild(int node);
+
+  /**
+   * Returns the next sibling of a node.
+   * @param node the index of the node.
+   * @return the index of the next sibling or -1 if the node is the last child or has no parent.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int nextSibling(int node);
+
+  /**
+   * Returns the parent of a node.
+   * @param node the index of the node.
+   * @return the index of the parent or -1 if the node has no parent.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  int parent(int node);
+
+  /**
+   * Returns a new cursor on a node.
+   * @param node the index of the node.
+   * @return a new cursor on the node.
+   * @throws IndexOutOfBoundsException if the index is not between 0 and {@link #size()}.
+   */
+  Cursor<T> cursor(int node);
+
+  /**
+   * Removes all the nodes, the arrays are kept to be reused.
+   */
+  void clear();
+
+  /**
+   * Creates an arena.
+   *
+   * @param <T> type of the tokens used as kind of the nodes.
+   * @param capacity the initial number of nodes, the arena grows if needed.
+   * @return a new arena.
+   * @throws IllegalArgumentException if the capacity is negative.
+   */
+  static <T> NodeArena<T> create(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("invalid capacity " + capacity);
+    }
+    return new ColumnarNodeArena<>(capacity);
+  }
+}
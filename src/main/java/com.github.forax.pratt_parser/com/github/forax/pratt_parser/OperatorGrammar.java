@@ -0,0 +1,347 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable grammar described by a table of operators instead of parselets.
+ *
+ * Because the operators are declarative, the parser doesn't need to call itself recursively,
+ * it runs Pratt's algorithm using an explicit stack allocated in the heap, so the nesting depth
+ * of the expressions is not limited by the size of the thread stack but by a configurable maximum depth.
+ *
+ * The precedences are primitive integers, a token that has no {@link Suffix} has the precedence
+ * {@link Integer#MIN_VALUE}, so it ends any expression.
+ * The semantics is the same as a recursive parser, see {@link #toIntGrammar()}.
+ *
+ * @param <E> type of the expressions.
+ * @param <T> type of the tokens.
+ */
+public interface OperatorGrammar<E, T> {
+  /**
+   * Describes how to parse an expression that starts with a token.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   */
+  final class Prefix<E, T> {
+    static final int ATOM = 0, OPERATOR = 1, GROUP = 2;
+
+    final int kind;
+    final int precedence;
+    final Function<? super Lexer<T>, ? extends E> atom;
+    final UnaryOperator<E> operator;
+    final T close;
+
+    private Prefix(int kind, int precedence, Function<? super Lexer<T>, ? extends E> atom, UnaryOperator<E> operator, T close) {
+      this.kind = kind;
+      this.precedence = precedence;
+      this.atom = atom;
+      this.operator = operator;
+      this.close = close;
+    }
+
+    /**
+     * Creates a token that is an expression by itself, like a number or an identifier.
+     *
+     * @param <E> type of the expressions.
+     * @param <T> type of the tokens.
+     * @param function a function called with the lexer positioned on the token that returns
+     *                 the expression.
+     * @return a new prefix.
+     */
+    public static <E, T> Prefix<E, T> atom(Function<? super Lexer<T>, ? extends E> function) {
+      Objects.requireNonNull(function);
+      return new Prefix<>(ATOM, 0, function, null, null);
+    }
+
+    /**
+     * Creates a prefix operator, like the unary minus.
+     *
+     * @param <E> type of the expressions.
+     * @param <T> type of the tokens.
+     * @param precedence the precedence used to parse the operand.
+     * @param function a function that creates the expression from the operand.
+     * @return a new prefix.
+     */
+    public static <E, T> Prefix<E, T> operator(int precedence, UnaryOperator<E> function) {
+      Objects.requireNonNull(function);
+      return new Prefix<>(OPERATOR, precedence, null, function, null);
+    }
+
+    /**
+     * Creates a group, an expression enclosed by the current token and a closing token,
+     * like parenthesis. The expression of the group is the enclosed expression.
+     *
+     * @param <E> type of the expressions.
+     * @param <T> type of the tokens.
+     * @param precedence the precedence used to parse the enclosed expression,
+     *                   it should be greater or equals to the precedence of the closing token.
+     * @param close the closing token.
+     * @return a new prefix.
+     */
+    public static <E, T> Prefix<E, T> group(int precedence, T close) {
+      Objects.requireNonNull(close);
+      return new Prefix<>(GROUP, precedence, null, null, close);
+    }
+  }
+
+  /**
+   * Describes how to parse an expression that starts with an expression followed by a token.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   */
+  final class Suffix<E, T> {
+    static final int INFIX = 0, POSTFIX = 1;
+
+    final int kind;
+    final int precedence;
+    final int rightPrecedence;
+    final BinaryOperator<E> infix;
+    final UnaryOperator<E> postfix;
+
+    private Suffix(int kind, int precedence, int rightPrecedence, BinaryOperator<E> infix, UnaryOperator<E> postfix) {
+      this.kind = kind;
+      this.precedence = precedence;
+      this.rightPrecedence = rightPrecedence;
+      this.infix = infix;
+      this.postfix = postfix;
+    }
+
+    /**
+     * Creates a left associative binary operator.
+     *
+     * @param <E> type of the expressions.
+     * @param <T> type of the tokens.
+     * @param precedence the precedence of the operator, also used to parse the right operand.
+     * @param function a function that creates the expression from the left and right operands.
+     * @return a new suffix.
+     */
+    public static <E, T> Suffix<E, T> infix(int precedence, BinaryOperator<E> function) {
+      Objects.requireNonNull(function);
+      return new Suffix<>(INFIX, precedence, precedence, function, null);
+    }
+
+    /**
+     * Creates a right associative binary operator.
+     *
+     * @param <E> type of the expressions.
+     * @param <T> type of the tokens.
+     * @param precedence the precedence of the operator, the right operand is parsed
+     *                   with {@code precedence - 1}.
+     * @param function a function that creates the expression from the left and right operands.
+     * @return a new suffix.
+     * @throws IllegalArgumentException if the precedence is {@link Integer#MIN_VALUE}.
+     */
+    public static <E, T> Suffix<E, T> infixRight(int precedence, BinaryOperator<E> function) {
+      Objects.requireNonNull(function);
+      if (precedence == Integer.MIN_VALUE) {
+        throw new IllegalArgumentException("invalid precedence " + precedence);
+      }
+      return new Suffix<>(INFIX, precedence, precedence - 1, function, null);
+    }
+
+    /**
+     * Creates a postfix operator.
+     *
+     * @param <E> type of the expressions.
+     * @param <T> type of the tokens.
+     * @param precedence the precedence of the operator.
+     * @param function a function that creates the expression from the operand.
+     * @return a new suffix.
+     */
+    public static <E, T> Suffix<E, T> postfix(int precedence, UnaryOperator<E> function) {
+      Objects.requireNonNull(function);
+      return new Suffix<>(POSTFIX, precedence, 0, null, function);
+    }
+  }
+
+  /**
+   * Creates a new parser that parses the tokens of a lexer without recursion.
+   * Creating a parser is cheap, the stack is allocated lazily and grows on demand.
+   *
+   * @param lexer a lexer.
+   * @param maxDepth the maximum nesting depth of an expression.
+   * @return a new parser, its method {@link IntParser#parseExpr(int)} throws an {@link IllegalStateException}
+   *         if an expression is nested more than {@code maxDepth}.
+   * @throws IllegalArgumentException if the maximum depth is not positive.
+   */
+  IntParser<E> parser(Lexer<T> lexer, int maxDepth);
+
+  /**
+   * Returns an equivalent grammar that uses recursive parselets.
+   * @return an equivalent grammar that uses recursive parselets.
+   */
+  IntGrammar<E, T> toIntGrammar();
+
+  /**
+   * Creates a grammar from two {@link java.util.Map}s that associate a token to the description
+   * of an operator.
+   *
+   * @param <E> type of the expressions.
+   * @param <T> type of the tokens.
+   * @param prefixMap a map that associate a token in prefix position and the description of
+   *                  the corresponding prefix expression.
+   * @param suffixMap a map that associate a token in suffix position and the description of
+   *                  the corresponding suffix expression.
+   * @return a new grammar.
+   */
+  static <E, T> OperatorGrammar<E, T> create(Map<T, Prefix<E, T>> prefixMap, Map<T, Suffix<E, T>> suffixMap) {
+    Objects.requireNonNull(prefixMap);
+    Objects.requireNonNull(suffixMap);
+
+    prefixMap.values().forEach(Objects::requireNonNull);
+    suffixMap.values().forEach(Objects::requireNonNull);
+    var tokenIndex = TokenIndex.create(prefixMap, suffixMap);
+    var tokenCount = tokenIndex.size();
+    @SuppressWarnings("unchecked")
+    var prefixes = tokenIndex.table(prefixMap, size -> (Prefix<E, T>[]) new Prefix<?, ?>[size]);
+    @SuppressWarnings("unchecked")
+    var suffixes = tokenIndex.table(suffixMap, size -> (Suffix<E, T>[]) new Suffix<?, ?>[size]);
+    var precedences = new int[tokenCount];
+    Arrays.fill(precedences, Integer.MIN_VALUE);
+    for(var i = 0; i < tokenCount; i++) {
+      if (suffixes[i] != null) {
+        precedences[i] = suffixes[i].precedence;
+      }
+    }
+
+    return new OperatorGrammar<>() {
+      @Override
+      public IntParser<E> parser(Lexer<T> lexer, int maxDepth) {
+        Objects.requireNonNull(lexer);
+        if (maxDepth <= 0) {
+          throw new IllegalArgumentException("invalid max depth " + maxDepth);
+        }
+        return new IntParser<>() {
+          // one frame per pending call to parseExpr: its precedence, the operator waiting for its result,
+          // and the left operand if the operator is an infix operator
+          private int[] framePrecedences = new int[0];
+          private Object[] frameOperators = new Object[0];
+          private Object[] frameLefts = new Object[0];
+
+          private void push(int top, int precedence, Object operator, Object left) {
+            if (top == framePrecedences.length) {
+              if (top == maxDepth) {
+                throw new IllegalStateException("expression nested too deeply, max depth " + maxDepth);
+              }
+              var capacity = (int) Math.min(maxDepth, Math.max(16, 2L * top));
+              framePrecedences = Arrays.copyOf(framePrecedences, capacity);
+              frameOperators = Arrays.copyOf(frameOperators, capacity);
+              frameLefts = Arrays.copyOf(frameLefts, capacity);
+            }
+            framePrecedences[top] = precedence;
+            frameOperators[top] = operator;
+            frameLefts[top] = left;
+          }
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public E parseExpr(int precedence) {
+            var top = 0;
+            try {
+              push(top, precedence, null, null);
+              E value = null;
+              var needPrefix = true;
+              for(;;) {
+                if (needPrefix) {
+                  var token = lexer.consume();
+                  var index = tokenIndex.index(token);
+                  var prefix = index == -1? null: prefixes[index];
+                  if (prefix == null) {
+                    throw new IllegalStateException("Could not parse token " +  token + " of value " + lexer.value());
+                  }
+                  if (prefix.kind == Prefix.ATOM) {
+                    value = prefix.atom.apply(lexer);
+                    needPrefix = false;
+                  } else {  // OPERATOR or GROUP
+                    push(++top, prefix.precedence, prefix, null);
+                  }
+                  continue;
+                }
+
+                var token = lexer.lookhead();
+                var index = tokenIndex.index(token);
+                if (framePrecedences[top] < (index == -1? Integer.MIN_VALUE: precedences[index])) {
+                  lexer.consume();
+                  var suffix = suffixes[index];
+                  if (suffix.kind == Suffix.POSTFIX) {
+                    value = suffix.postfix.apply(value);
+                  } else {  // INFIX
+                    push(++top, suffix.rightPrecedence, suffix, value);
+                    needPrefix = true;
+                  }
+                  continue;
+                }
+
+                // the current frame is finished, give the value to the operator of the frame
+                var operator = frameOperators[top];
+                var left = (E) frameLefts[top];
+                frameOperators[top] = frameLefts[top] = null;
+                if (top-- == 0) {
+                  return value;
+                }
+                if (operator instanceof Suffix) {
+                  value = ((Suffix<E, T>) operator).infix.apply(left, value);
+                } else {
+                  var prefix = (Prefix<E, T>) operator;
+                  if (prefix.kind == Prefix.OPERATOR) {
+                    value = prefix.operator.apply(value);
+                  } else {  // GROUP
+                    lexer.consume(prefix.close);
+                  }
+                }
+              }
+            } finally {
+              // a parselet may have thrown, the frames must not keep the partial expressions
+              var end = Math.min(top + 1, frameLefts.length);
+              Arrays.fill(frameOperators, 0, end, null);
+              Arrays.fill(frameLefts, 0, end, null);
+            }
+          }
+        };
+      }
+
+      @Override
+      public IntGrammar<E, T> toIntGrammar() {
+        var prefixParselets = new HashMap<T, IntGrammar.PrefixParselet<E, T>>();
+        prefixMap.forEach((token, prefix) -> {
+          IntGrammar.PrefixParselet<E, T> parselet;
+          switch(prefix.kind) {
+          case Prefix.ATOM:
+            parselet = (p, lexer) -> prefix.atom.apply(lexer);
+            break;
+          case Prefix.OPERATOR:
+            parselet = (p, lexer) -> prefix.operator.apply(p.parseExpr(prefix.precedence));
+            break;
+          case Prefix.GROUP:
+            parselet = (p, lexer) -> { var v = p.parseExpr(prefix.precedence); lexer.consume(prefix.close); return v; };
+            break;
+          default:
+            throw new AssertionError();
+          }
+          prefixParselets.put(token, parselet);
+        });
+        var suffixParselets = new HashMap<T, IntGrammar.SuffixParselet<E, T>>();
+        suffixMap.forEach((token, suffix) -> {
+          IntGrammar.SuffixParselet<E, T> parselet;
+          if (suffix.kind == Suffix.POSTFIX) {
+            parselet = (p, lexer, left) -> suffix.postfix.apply(left);
+          } else {
+            parselet = (p, lexer, left) -> suffix.infix.apply(left, p.parseExpr(suffix.rightPrecedence));
+          }
+          suffixParselets.put(token, parselet);
+        });
+        return IntGrammar.create(
+            token -> { var index = tokenIndex.index(token); return index == -1? Integer.MIN_VALUE: precedences[index]; },
+            prefixParselets, suffixParselets);
+      }
+    };
+  }
+}
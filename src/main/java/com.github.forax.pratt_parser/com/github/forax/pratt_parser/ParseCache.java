@@ -0,0 +1,178 @@
+package com.github.forax.pratt_parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache of the expressions parsed from a text, for the applications that parse
+ * the same texts again and again.
+ *
+ * A cache is bound to one parse function, typically a function that lexes and parses a text
+ * using a {@link Grammar}, so the key of the cache is the text.
+ * The number of expressions is bounded, when the cache is full the least recently used expression
+ * is evicted. To avoid contention, the cache is split in segments, each segment has its own lock,
+ * its own least recently used order and an equal part of the capacity,
+ * a small cache has fewer segments so each segment has room for several expressions.
+ *
+ * The parse function is called without holding a lock, so two threads that ask for the same text
+ * at the same time may both call the parse function, only one of the expressions is kept.
+ * If the parse function throws an exception, nothing is cached and the exception is propagated.
+ * The expressions are shared between the callers so they should be immutable.
+ *
+ * @param <E> type of the expressions.
+ */
+public interface ParseCache<E> {
+  /**
+   * Returns the expression of a text, either from the cache or by calling the parse function.
+   *
+   * @param text a text.
+   * @return the expression of the text.
+   * @throws NullPointerException if the parse function returns null.
+   */
+  E parse(String text);
+
+  /**
+   * Returns the number of expressions in the cache.
+   * @return the number of expressions in the cache.
+   */
+  int size();
+
+  /**
+   * Returns the number of calls to {@link #parse(String)} that have found the expression in the cache.
+   * @return the number of calls to {@link #parse(String)} that have found the expression in the cache.
+   */
+  long hitCount();
+
+  /**
+   * Returns the number of calls to {@link #parse(String)} that have called the parse function.
+   * @return the number of calls to {@link #parse(String)} that have called the parse function.
+   */
+  long missCount();
+
+  /**
+   * Returns the number of expressions removed from the cache because the cache was full.
+   * @return the number of expressions removed from the cache because the cache was full.
+   */
+  long evictionCount();
+
+  /**
+   * Removes all the expressions of the cache, the counters are not reset.
+   */
+  void clear();
+
+  /**
+   * Creates a cache.
+   *
+   * @param <E> type of the expressions.
+   * @param capacity the maximum number of expressions.
+   * @param parseFunction the function called to parse a text that is not in the cache.
+   * @return a new cache.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  static <E> ParseCache<E> create(int capacity, Function<? super String, ? extends E> parseFunction) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("invalid capacity " + capacity);
+    }
+    Objects.requireNonNull(parseFunction);
+
+    // a power of two number of segments with at least 8 expressions per segment, so a small cache
+    // doesn't behave like a direct mapped cache, the remainder of the capacity goes to the first segments
+    var segmentCount = Integer.highestOneBit(Math.max(1,
+        Math.min(capacity / 8, Runtime.getRuntime().availableProcessors() * 4)));
+    var hits = new LongAdder();
+    var misses = new LongAdder();
+    var evictions = new LongAdder();
+
+    @SuppressWarnings("serial")
+    class Segment extends LinkedHashMap<String, E> {
+      private final int segmentCapacity;
+
+      Segment(int segmentCapacity) {
+        super(16, 0.75f, true);  // access order
+        this.segmentCapacity = segmentCapacity;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, E> eldest) {
+        if (size() > segmentCapacity) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    }
+    var segments = new Segment[segmentCount];
+    for(var i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount? 1: 0));
+    }
+
+    return new ParseCache<>() {
+      private Segment segment(String text) {
+        var hash = text.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segmentCount - 1)];
+      }
+
+      @Override
+      public E parse(String text) {
+        var segment = segment(text);
+        E expr;
+        synchronized(segment) {
+          expr = segment.get(text);
+        }
+        if (expr != null) {
+          hits.increment();
+          return expr;
+        }
+        misses.increment();
+        var newExpr = Objects.requireNonNull(parseFunction.apply(text));
+        synchronized(segment) {
+          expr = segment.putIfAbsent(text, newExpr);
+        }
+        return expr != null? expr: newExpr;
+      }
+
+      @Override
+      public int size() {
+        var size = 0;
+        for(var segment: segments) {
+          synchronized(segment) {
+            size += segment.size();
+          }
+        }
+        return size;
+      }
+
+      @Override
+      public long hitCount() {
+        return hits.sum();
+      }
+
+      @Override
+      public long missCount() {
+        return misses.sum();
+      }
+
+      @Override
+      public long evictionCount() {
+        return evictions.sum();
+      }
+
+      @Override
+      public void clear() {
+        for(var segment: segments) {
+          synchronized(segment) {
+            segment.clear();
+          }
+        }
+      }
+
+      @Override
+      public String toString() {
+        return "ParseCache size " + size() + " hits " + hitCount() + " misses " + missCount() + " evictions " + evictionCount();
+      }
+    };
+  }
+}
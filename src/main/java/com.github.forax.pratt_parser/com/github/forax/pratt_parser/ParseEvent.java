@@ -0,0 +1,40 @@
+package com.github.forax.pratt_parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The Flight Recorder event emitted by the parsers of a grammar created with a {@link ParserMonitor}
+ * each time an expression is parsed, the duration of the event is the time spent to parse the expression.
+ */
+@Name("com.github.forax.pratt_parser.Parse")
+@Label("Parse")
+@Category("Pratt Parser")
+@Description("The parsing of an expression by a parser created with a ParserMonitor")
+final class ParseEvent extends Event {
+  @Label("Tokens")
+  @Description("Number of tokens lexed")
+  long tokens;
+
+  @Label("Parselet Invocations")
+  @Description("Number of prefix and suffix parselets called")
+  long parseletInvocations;
+
+  @Label("Max Depth")
+  @Description("Maximum number of nested parselet invocations")
+  int maxDepth;
+
+  @Label("Lexing Time")
+  @Description("Time spent in the lexer")
+  @Timespan(Timespan.NANOSECONDS)
+  long lexingTime;
+
+  @Label("Parselet Time")
+  @Description("Time spent in the parser and the parselets, excluding the lexer")
+  @Timespan(Timespan.NANOSECONDS)
+  long parseletTime;
+}
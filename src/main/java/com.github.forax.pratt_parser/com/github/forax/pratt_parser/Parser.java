@@ -4,6 +4,8 @@ import java.util.Comparator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Parse the tokens from a lexer to create expressions using Pratt's algorithm.
@@ -54,9 +56,34 @@ public interface Parser<E, P> {
    */
   E parseExpr(P precedence);
   
+  /**
+   * Returns a lazy stream of the expressions of the text separated by a separator token.
+   * Each expression is parsed when the stream asks for the next element, so the expressions
+   * are not stored and can be garbage collected as soon as they are consumed.
+   * 
+   * The separators before and after an expression are skipped, so empty expressions are allowed,
+   * the stream ends when the end of the text is reached.
+   * The precedence of the separator should be lower or equals to the precedence of the expressions
+   * so the parsing of an expression stops at the separator.
+   * 
+   * @param <T> type of the tokens.
+   * @param lexer the lexer used by this parser.
+   * @param precedence the precedence of the expressions.
+   * @param separator the token that separates the expressions.
+   * @param eof the token that signals the end of the text.
+   * @return a lazy stream of the expressions, the stream throws an {@link IllegalStateException}
+   *         if an expression is not followed by a separator or the end of the text.
+   */
+  default <T> Stream<E> stream(Lexer<? extends T> lexer, P precedence, T separator, T eof) {
+    Objects.requireNonNull(precedence);
+    return StreamSupport.stream(new ExprSpliterator<>(lexer, separator, eof, () -> parseExpr(precedence)), false);
+  }
+  
   /**
    * Creates a Parser from the function that associate a precedence to a token and
    * two {@link java.util.Map}s that associate a token to a parselet.
+   * If the lexer is {@link Lexer#reset(CharSequence) reset} with a new text, the parser can be reused
+   * to parse the new text.
    * 
    * @param <E> type of the expressions.
    * @param <T> type of the tokens.
@@ -0,0 +1,88 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Map;
+
+/**
+ * Collects the metrics of the parsers of the grammars created with this monitor,
+ * by example with {@link Grammar#create(java.util.function.Function, java.util.Comparator, Map, Map, ParserMonitor)}
+ * or {@link IntGrammar#create(java.util.function.ToIntFunction, Map, Map, ParserMonitor)}.
+ *
+ * Each call to {@code parseExpr} done on such a parser, not the recursive calls done by the parselets,
+ * is instrumented if the monitor is {@link #isEnabled() enabled} or if the Flight Recorder event
+ * {@code com.github.forax.pratt_parser.Parse} is enabled. In that case, the lexer is wrapped to count
+ * the tokens and measure the time spent in the lexer, the parselets are wrapped to count the invocations
+ * and the nesting depth, and at the end a Flight Recorder event is committed if enabled.
+ * Otherwise, the parser uses the same code as a grammar created without a monitor,
+ * so the cost of a disabled monitor is one check per call to {@code parseExpr}.
+ *
+ * A monitor is thread safe and can be shared by several grammars.
+ * The time are measured with {@link System#nanoTime()} so monitoring slows down the lexer.
+ *
+ * @param <T> type of the tokens.
+ */
+public interface ParserMonitor<T> {
+  /**
+   * Returns true if the monitor collects the metrics.
+   * @return true if the monitor collects the metrics.
+   */
+  boolean isEnabled();
+
+  /**
+   * Enables or disables the collect of the metrics, the Flight Recorder event is not affected.
+   * @param enabled true to collect the metrics.
+   */
+  void setEnabled(boolean enabled);
+
+  /**
+   * Returns the number of calls to {@code parseExpr} monitored.
+   * @return the number of calls to {@code parseExpr} monitored.
+   */
+  long parseCount();
+
+  /**
+   * Returns the number of tokens consumed from the lexers.
+   * @return the number of tokens consumed from the lexers.
+   */
+  long tokenCount();
+
+  /**
+   * Returns the number of invocations of the prefix and suffix parselets of each token,
+   * the tokens with no invocation are not in the map.
+   * @return a new map that associate a token to the number of invocations of its parselets.
+   */
+  Map<T, Long> parseletInvocations();
+
+  /**
+   * Returns the maximum number of nested parselet invocations, which is the maximum recursion
+   * depth of {@code parseExpr}.
+   * @return the maximum number of nested parselet invocations.
+   */
+  int maxDepth();
+
+  /**
+   * Returns the time spent in the lexers in nanoseconds.
+   * @return the time spent in the lexers in nanoseconds.
+   */
+  long lexingNanos();
+
+  /**
+   * Returns the time spent in the parsers and the parselets, excluding the lexers, in nanoseconds.
+   * @return the time spent in the parsers and the parselets, excluding the lexers, in nanoseconds.
+   */
+  long parseletNanos();
+
+  /**
+   * Resets all the metrics to zero.
+   */
+  void reset();
+
+  /**
+   * Creates an enabled monitor.
+   *
+   * @param <T> type of the tokens.
+   * @return a new monitor.
+   */
+  static <T> ParserMonitor<T> create() {
+    return new Monitor<>();
+  }
+}
@@ -0,0 +1,75 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A thread safe pool of reusable objects, typically lexers that can be {@link Lexer#reset(CharSequence) reset}
+ * or objects that groups a lexer and its parser.
+ *
+ * {@link #borrow()} never blocks, if the pool is empty a new object is created,
+ * {@link #release(Object)} keeps at most {@code capacity} objects, the others are dropped.
+ *
+ * @param <R> type of the pooled objects.
+ */
+public interface Pool<R> {
+  /**
+   * Returns an object of the pool or a new object if the pool is empty.
+   * @return an object that should be {@link #release(Object) released} after use.
+   */
+  R borrow();
+
+  /**
+   * Returns an object to the pool.
+   * The object should not be used by the caller after this call.
+   * @param resource an object previously returned by {@link #borrow()}.
+   */
+  void release(R resource);
+
+  /**
+   * Borrows an object, calls the function with it and releases the object.
+   *
+   * @param <V> type of the result of the function.
+   * @param function a function that uses the object.
+   * @return the result of the function.
+   */
+  default <V> V apply(Function<? super R, ? extends V> function) {
+    var resource = borrow();
+    try {
+      return function.apply(resource);
+    } finally {
+      release(resource);
+    }
+  }
+
+  /**
+   * Creates a pool.
+   *
+   * @param <R> type of the pooled objects.
+   * @param capacity the maximum number of objects kept by the pool.
+   * @param factory a supplier of new objects.
+   * @return a new pool.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  static <R> Pool<R> create(int capacity, Supplier<? extends R> factory) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("invalid capacity " + capacity);
+    }
+    Objects.requireNonNull(factory);
+    var queue = new ArrayBlockingQueue<R>(capacity);
+    return new Pool<>() {
+      @Override
+      public R borrow() {
+        var resource = queue.poll();
+        return resource != null? resource: Objects.requireNonNull(factory.get());
+      }
+
+      @Override
+      public void release(R resource) {
+        queue.offer(Objects.requireNonNull(resource));
+      }
+    };
+  }
+}
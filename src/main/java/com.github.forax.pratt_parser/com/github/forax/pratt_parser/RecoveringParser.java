@@ -0,0 +1,128 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A parser of an {@link IntGrammar} that reports the parsing errors to a {@link Diagnostics} instead
+ * of throwing an exception.
+ *
+ * This class is also the lexer passed to the parselets, so {@link #consume(Object)} doesn't throw
+ * if the token doesn't match.
+ * After an error, the tokens are skipped until a sync token or the end of file token,
+ * the sync token is not consumed so the parselet that expects it can consume it.
+ *
+ * @param <E> type of the expressions.
+ * @param <T> type of the tokens.
+ */
+final class RecoveringParser<E, T> extends ForwardingLexer<T> implements IntParser<E> {
+  private final TokenIndex<T> tokenIndex;
+  private final IntGrammar.PrefixParselet<E, T>[] prefixes;
+  private final IntGrammar.SuffixParselet<E, T>[] suffixes;
+  private final int[] precedences;
+  private final ToIntFunction<? super T> precedenceFun;
+  private final T eof;
+  private final boolean[] syncs;
+  private final Set<? extends T> syncTokens;
+  private final E error;
+  private final Diagnostics<? super T> diagnostics;
+
+  RecoveringParser(Lexer<T> lexer, TokenIndex<T> tokenIndex,
+                   IntGrammar.PrefixParselet<E, T>[] prefixes,
+                   IntGrammar.SuffixParselet<E, T>[] suffixes,
+                   int[] precedences, ToIntFunction<? super T> precedenceFun,
+                   T eof, Set<? extends T> syncTokens, E error, Diagnostics<? super T> diagnostics) {
+    super(lexer);
+    this.tokenIndex = tokenIndex;
+    this.prefixes = prefixes;
+    this.suffixes = suffixes;
+    this.precedences = precedences;
+    this.precedenceFun = precedenceFun;
+    this.eof = eof;
+    this.syncTokens = syncTokens;
+    this.error = error;
+    this.diagnostics = diagnostics;
+    var syncs = new boolean[prefixes.length];
+    for(var token: syncTokens) {
+      var index = tokenIndex.index(token);
+      if (index != -1) {
+        syncs[index] = true;
+      }
+    }
+    this.syncs = syncs;
+  }
+
+  private int precedence(T token) {
+    var index = tokenIndex.index(token);
+    return index == -1? precedenceFun.applyAsInt(token): precedences[index];
+  }
+
+  private boolean isSync(T token) {
+    var index = tokenIndex.index(token);
+    return index == -1? syncTokens.contains(token): syncs[index];
+  }
+
+  // skip the tokens until a sync token or the end of file token
+  private void skip() {
+    T token;
+    while(!isSync(token = lexer.lookhead()) && !eof.equals(token)) {
+      lexer.consume();
+    }
+  }
+
+  @Override
+  public E parseExpr(int precedence) {
+    var token = lexer.lookhead();
+    var index = tokenIndex.index(token);
+    var prefix = index == -1? null: prefixes[index];
+    if (prefix == null) {
+      diagnostics.report(lexer.start(), lexer.end(), null, token);
+      skip();
+      return error;
+    }
+    lexer.consume();
+    var left = prefix.parse(this, this);
+
+    while (precedence < precedence(token = lexer.lookhead())) {
+      lexer.consume();
+      index = tokenIndex.index(token);
+      var suffix = index == -1? null: suffixes[index];
+      if (suffix == null) {
+        diagnostics.report(lexer.start(), lexer.end(), null, token);
+        skip();
+        return left;
+      }
+      left = suffix.parse(this, this, left);
+    }
+    return left;
+  }
+
+  @Override
+  public <U> Stream<E> stream(Lexer<? extends U> lexer, int precedence, U separator, U eof) {
+    return StreamSupport.stream(new ExprSpliterator<E, U>(lexer, separator, eof, () -> parseExpr(precedence)) {
+      @Override
+      void notSeparated(U token) {
+        @SuppressWarnings("unchecked")
+        var expected = (T) separator;
+        @SuppressWarnings("unchecked")
+        var found = (T) token;
+        diagnostics.report(lexer.start(), lexer.end(), expected, found);
+      }
+    }, false);
+  }
+
+  @Override
+  public void consume(T token) {
+    var current = lexer.lookhead();
+    if (!token.equals(current)) {
+      diagnostics.report(lexer.start(), lexer.end(), token, current);
+      skip();
+      if (!token.equals(lexer.lookhead())) {
+        return;  // the token is missing
+      }
+    }
+    lexer.consume();
+  }
+}
@@ -0,0 +1,149 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Objects;
+
+/**
+ * A bounded table of strings used to share the values of the tokens, typically the identifiers,
+ * so the same identifier found several times in a text or in several texts is the same {@link String}.
+ *
+ * A string is looked up by computing the hash of the characters of the token in the text,
+ * a new string is only created if the table doesn't already contain an equal string.
+ * The table is an array of fixed size indexed by the hash, when two strings have the same index,
+ * the last one replaces the previous one, so the table never grows and doesn't retain more than
+ * {@code capacity} strings.
+ *
+ * A table is thread safe and lock free, because strings are immutable, a table can be shared by all
+ * the lexers of a grammar or be stored in a {@link ThreadLocal} to have one table per thread.
+ */
+public interface StringTable {
+  /**
+   * Returns a string equal to the characters between {@code start} and {@code end} of a text,
+   * the string of the table if there is one or a new string that is added to the table.
+   *
+   * @param text a text.
+   * @param start the start offset of the characters.
+   * @param end the end offset of the characters.
+   * @return a string equal to the characters between {@code start} and {@code end} of the text.
+   * @throws IndexOutOfBoundsException if {@code start} and {@code end} are not a valid range of the text.
+   */
+  String intern(CharSequence text, int start, int end);
+
+  /**
+   * Returns the {@link Lexer#value() value} of the last matched token of a lexer from this table.
+   * If the token is ASCII, the value is the characters of the {@link Lexer#text() text} of the lexer
+   * between {@link Lexer#start()} and {@link Lexer#end()}, otherwise the characters of the text may be
+   * encoded bytes, by example with a lexer created by
+   * {@link Lexer#utf8Factory(Object, Object, Object, java.util.Map.Entry...)},
+   * so the value is the string returned by {@link Lexer#value()}.
+   *
+   * @param lexer a lexer.
+   * @return the value of the last matched token or {@code null}.
+   */
+  default String intern(Lexer<?> lexer) {
+    var start = lexer.start();
+    if (start == -1) {
+      return null;
+    }
+    var text = lexer.text();
+    var end = lexer.end();
+    for(var i = start; i < end; i++) {
+      if (text.charAt(i) >= 0x80) {
+        var value = lexer.value();
+        return intern(value, 0, value.length());
+      }
+    }
+    return intern(text, start, end);
+  }
+
+  /**
+   * Returns a lexer that delegates to a lexer but returns a {@link Lexer#value() value} from this table.
+   * The value is looked up once per token.
+   *
+   * @param <T> type of the tokens.
+   * @param lexer the lexer.
+   * @return a lexer with values from this table.
+   */
+  default <T> Lexer<T> lexer(Lexer<T> lexer) {
+    Objects.requireNonNull(lexer);
+    return new ForwardingLexer<>(lexer) {
+      private String value;  // the value of the last matched token, null if not yet interned
+
+      @Override
+      public String value() {
+        var value = this.value;
+        if (value == null) {
+          this.value = value = intern(lexer);
+        }
+        return value;
+      }
+      @Override
+      public T consume() {
+        value = null;
+        return lexer.consume();
+      }
+      @Override
+      public T lookhead() {
+        value = null;
+        return lexer.lookhead();
+      }
+      @Override
+      public T lookahead(int k) {
+        value = null;
+        return lexer.lookahead(k);
+      }
+      @Override
+      public void reset(CharSequence text) {
+        value = null;
+        lexer.reset(text);
+      }
+    };
+  }
+
+  /**
+   * Creates a table.
+   *
+   * @param capacity the maximum number of strings, rounded to the next power of two.
+   * @return a new table.
+   * @throws IllegalArgumentException if the capacity is not positive or greater than 2^30.
+   */
+  static StringTable create(int capacity) {
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("invalid capacity " + capacity);
+    }
+    var strings = new String[capacity == 1? 1: Integer.highestOneBit(capacity - 1) << 1];
+    var mask = strings.length - 1;
+    return new StringTable() {
+      @Override
+      public String intern(CharSequence text, int start, int end) {
+        Objects.checkFromToIndex(start, end, text.length());
+        var hash = 0;  // same hash as String.hashCode()
+        for(var i = start; i < end; i++) {
+          hash = 31 * hash + text.charAt(i);
+        }
+        var index = (hash ^ (hash >>> 16)) & mask;
+        var string = strings[index];
+        if (string == null || string.hashCode() != hash || !contentEquals(string, text, start, end)) {
+          string = text.subSequence(start, end).toString();
+          strings[index] = string;
+        }
+        return string;
+      }
+    };
+  }
+
+  private static boolean contentEquals(String string, CharSequence text, int start, int end) {
+    var length = end - start;
+    if (string.length() != length) {
+      return false;
+    }
+    if (text instanceof String) {
+      return ((String) text).regionMatches(start, string, 0, length);
+    }
+    for(var i = 0; i < length; i++) {
+      if (string.charAt(i) != text.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,117 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * The tokens of a text stored in columns, the kind of each token, its start offset and its end offset
+ * are stored in arrays of {@code int}.
+ *
+ * The tokens are read from a buffer using a {@link #lexer() lexer} that supports
+ * a {@link Lexer#lookahead(int) lookahead} of any distance, so any parser can parse
+ * the tokens of a buffer.
+ *
+ * A buffer can be filled {@link #of(Lexer, Object) eagerly} or {@link #pipelined(Lexer, Object, Executor) by
+ * another thread} while the tokens are parsed, so lexing and parsing are done in parallel.
+ *
+ * The offsets are offsets in the {@link Lexer#text() text} of the lexer used to fill the buffer,
+ * so this lexer should not be a lexer that reads its input from a stream.
+ *
+ * @param <T> type of the tokens.
+ */
+public interface TokenBuffer<T> {
+  /**
+   * Returns the number of tokens of the buffer, the end of file token is not stored.
+   * If the buffer is filled by another thread, this call waits until the whole text is lexed.
+   *
+   * @return the number of tokens of the buffer.
+   * @throws IllegalStateException if the lexing done by another thread has failed.
+   */
+  int size();
+
+  /**
+   * Returns the token at an index.
+   * If the buffer is filled by another thread, this call waits until the token is available.
+   *
+   * @param index the index of the token.
+   * @return the token at index or the end of file token if index is greater or equals than {@link #size()}.
+   * @throws IndexOutOfBoundsException if the index is negative.
+   * @throws IllegalStateException if the lexing done by another thread has failed.
+   */
+  T token(int index);
+
+  /**
+   * Returns the start offset of the token at an index.
+   *
+   * @param index the index of the token.
+   * @return the start offset of the token at index or -1 if the index is greater or equals than {@link #size()}.
+   * @throws IndexOutOfBoundsException if the index is negative.
+   * @throws IllegalStateException if the lexing done by another thread has failed.
+   */
+  int start(int index);
+
+  /**
+   * Returns the end offset of the token at an index.
+   *
+   * @param index the index of the token.
+   * @return the end offset of the token at index or -1 if the index is greater or equals than {@link #size()}.
+   * @throws IndexOutOfBoundsException if the index is negative.
+   * @throws IllegalStateException if the lexing done by another thread has failed.
+   */
+  int end(int index);
+
+  /**
+   * Returns a new lexer that reads the tokens of this buffer from the first one.
+   * Several lexers can read the same buffer but a lexer should be used by one thread only.
+   *
+   * @return a new lexer that reads the tokens of this buffer.
+   */
+  Lexer<T> lexer();
+
+  /**
+   * Creates a buffer with all the tokens of a lexer.
+   *
+   * @param <T> type of the tokens.
+   * @param lexer the lexer.
+   * @param eof the end of file token of the lexer.
+   * @return a new buffer.
+   */
+  static <T> TokenBuffer<T> of(Lexer<T> lexer, T eof) {
+    Objects.requireNonNull(lexer);
+    Objects.requireNonNull(eof);
+    var buffer = new ColumnarTokenBuffer<>(lexer.text(), eof);
+    buffer.fill(lexer);
+    buffer.finish(null);
+    return buffer;
+  }
+
+  /**
+   * Creates a buffer filled with the tokens of a lexer by a task submitted to an executor,
+   * the tokens can be read while the buffer is filled.
+   * If the lexer throws an exception, reading the tokens after the last token lexed throws
+   * an {@link IllegalStateException} with the exception as cause.
+   *
+   * @param <T> type of the tokens.
+   * @param lexer the lexer, used only by the task.
+   * @param eof the end of file token of the lexer.
+   * @param executor the executor that runs the task.
+   * @return a new buffer.
+   */
+  static <T> TokenBuffer<T> pipelined(Lexer<T> lexer, T eof, Executor executor) {
+    Objects.requireNonNull(lexer);
+    Objects.requireNonNull(eof);
+    Objects.requireNonNull(executor);
+    var buffer = new ColumnarTokenBuffer<>(lexer.text(), eof);
+    executor.execute(() -> {
+      Throwable failure = null;
+      try {
+        buffer.fill(lexer);
+      } catch(RuntimeException | Error e) {
+        failure = e;
+      } finally {
+        buffer.finish(failure);
+      }
+    });
+    return buffer;
+  }
+}
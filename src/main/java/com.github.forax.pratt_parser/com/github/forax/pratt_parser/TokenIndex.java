@@ -0,0 +1,124 @@
+package com.github.forax.pratt_parser;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Maps the tokens of a grammar to dense indexes.
+ * If all the tokens are values of the same enum, the index is the ordinal,
+ * otherwise the index is stored in a map.
+ *
+ * This class is immutable and thread safe.
+ *
+ * @param <T> type of the tokens.
+ */
+final class TokenIndex<T> {
+  private final Class<? extends Enum<?>> enumType;
+  private final Map<T, Integer> indexMap;
+  private final Object[] tokens;
+
+  private TokenIndex(Class<? extends Enum<?>> enumType, Map<T, Integer> indexMap, Object[] tokens) {
+    this.enumType = enumType;
+    this.indexMap = indexMap;
+    this.tokens = tokens;
+  }
+
+  /**
+   * Creates the token index of a grammar from the tokens of its prefix map and its suffix map.
+   * @param <T> type of the tokens.
+   * @param prefixMap the map of the tokens in prefix position.
+   * @param suffixMap the map of the tokens in suffix position.
+   * @return a new token index.
+   */
+  static <T> TokenIndex<T> create(Map<T, ?> prefixMap, Map<T, ?> suffixMap) {
+    var enumType = enumType(prefixMap.keySet(), suffixMap.keySet());
+    if (enumType != null) {
+      return new TokenIndex<>(enumType, Map.of(), enumType.getEnumConstants());
+    }
+    var indexMap = new HashMap<T, Integer>();
+    prefixMap.keySet().forEach(token -> indexMap.putIfAbsent(token, indexMap.size()));
+    suffixMap.keySet().forEach(token -> indexMap.putIfAbsent(token, indexMap.size()));
+    var tokens = new Object[indexMap.size()];
+    indexMap.forEach((token, index) -> tokens[index] = token);
+    return new TokenIndex<>(null, indexMap, tokens);
+  }
+
+  /**
+   * Returns the enum of the tokens if all the tokens are values of the same enum.
+   * @return the enum of the tokens or null.
+   */
+  Class<? extends Enum<?>> enumType() {
+    return enumType;
+  }
+
+  /**
+   * Returns the number of indexes.
+   * @return the number of indexes.
+   */
+  int size() {
+    return tokens.length;
+  }
+
+  /**
+   * Returns the token of an index.
+   * @param index an index between 0 and {@link #size()}.
+   * @return the token of the index.
+   */
+  @SuppressWarnings("unchecked")
+  T token(int index) {
+    return (T) tokens[index];
+  }
+
+  /**
+   * Returns the index of a token.
+   * @param token a token.
+   * @return the index of a token or -1 if the token is unknown.
+   */
+  int index(Object token) {
+    if (enumType != null) {
+      return enumType.isInstance(token)? ((Enum<?>) token).ordinal(): -1;
+    }
+    var index = indexMap.get(token);
+    return index == null? -1: index;
+  }
+
+  /**
+   * Returns an array indexed by the index of the tokens that contains the values of a map.
+   * @param <V> type of the values.
+   * @param map a map from the tokens to the values.
+   * @param generator a function that creates an array of values from a size.
+   * @return a new array indexed by the index of the tokens, the tokens that are not in the map
+   *         are associated to null.
+   */
+  <V> V[] table(Map<T, ? extends V> map, IntFunction<V[]> generator) {
+    var table = generator.apply(tokens.length);
+    map.forEach((token, value) -> table[index(token)] = value);
+    return table;
+  }
+
+  /**
+   * Returns the enum of the tokens if all the tokens are values of the same enum.
+   * @param tokenSets the sets of tokens.
+   * @return the enum of the tokens or null if not all the tokens are values of the same enum
+   *         or if there is no token.
+   */
+  static Class<? extends Enum<?>> enumType(Collection<?>... tokenSets) {
+    Class<? extends Enum<?>> enumType = null;
+    for(var tokens: tokenSets) {
+      for(var token: tokens) {
+        if (!(token instanceof Enum)) {
+          return null;
+        }
+        @SuppressWarnings("unchecked")
+        var type = (Class<? extends Enum<?>>) ((Enum<?>) token).getDeclaringClass();
+        if (enumType != null && enumType != type) {
+          return null;
+        }
+        enumType = type;
+      }
+    }
+    return enumType;
+  }
+}
@@ -0,0 +1,311 @@
+package com.github.forax.pratt_parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * A lexer that reads UTF-8 encoded bytes without decoding them, created by
+ * {@link Lexer#utf8Factory(Object, Object, Object, Entry...)}.
+ *
+ * The runs of whitespaces, digits and ASCII identifier characters are scanned 8 bytes at a time
+ * by reading a {@code long} and computing a mask with one bit per byte (SWAR, SIMD within a register),
+ * all the operations are done on 7 bits so there is no carry between the bytes.
+ * A non ASCII byte stops the fast path, the code point is decoded and tested with {@link Character}.
+ *
+ * The literals are stored as UTF-8 bytes in {@link LiteralTrie}s that read the {@link #text()}
+ * of the lexer, a view of the bytes in which each byte is a character.
+ *
+ * @param <T> type of the tokens.
+ */
+final class Utf8Lexer<T> implements Lexer<T> {
+  private static final long ONES = 0x0101_0101_0101_0101L;
+  private static final long LOW7 = 0x7F7F_7F7F_7F7F_7F7FL;
+  private static final long HIGH = 0x8080_8080_8080_8080L;
+
+  /**
+   * The configuration of the lexers, shared by all the lexers of a factory.
+   *
+   * @param <T> type of the tokens.
+   */
+  static final class Config<T> {
+    private final T eof;
+    private final T number;
+    private final T identifier;
+    private final List<Entry<T, String>> literals;
+    private final LiteralTrie keywords;
+    private final LiteralTrie operators;
+
+    /**
+     * Creates a configuration.
+     *
+     * @param eof the end of file token.
+     * @param number the token of the numbers.
+     * @param identifier the token of the identifiers.
+     * @param literals pairs of token/literal.
+     * @throws IllegalArgumentException if a literal is empty, starts with a digit or a whitespace
+     *         or starts like an identifier but is not an identifier.
+     *
+     * A literal that starts like an identifier is a keyword, it only matches a whole identifier.
+     */
+    Config(T eof, T number, T identifier, List<Entry<T, String>> literals) {
+      this.eof = eof;
+      this.number = number;
+      this.identifier = identifier;
+      this.literals = literals;
+      var keywords = new String[literals.size()];
+      var operators = new String[literals.size()];
+      for(var i = 0; i < literals.size(); i++) {
+        var literal = literals.get(i).getValue();
+        if (literal.isEmpty()) {
+          throw new IllegalArgumentException("empty literal for token " + literals.get(i).getKey());
+        }
+        var bytes = new String(literal.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        var first = bytes.charAt(0);
+        if (first <= ' ' || isDigit(first)) {
+          throw new IllegalArgumentException("invalid literal " + literal + " for token " + literals.get(i).getKey());
+        }
+        if (isIdentifierStart(first) || (first >= 0x80 && Character.isUnicodeIdentifierStart(literal.codePointAt(0)))) {
+          // a keyword is only compared to a whole identifier, so it must be an identifier
+          if (!literal.codePoints().skip(1).allMatch(Utf8Lexer::isCodePointIdentifierPart)) {
+            throw new IllegalArgumentException("invalid keyword " + literal + " for token " + literals.get(i).getKey());
+          }
+          keywords[i] = bytes;
+        } else {
+          operators[i] = bytes;
+        }
+      }
+      this.keywords = new LiteralTrie(keywords);
+      this.operators = new LiteralTrie(operators);
+    }
+  }
+
+  private final Config<T> config;
+  private final ByteBuffer buffer;
+  private final int length;
+  private final CharSequence text;
+  private T token;
+  private String value;
+  private int start = -1;
+  private int end = -1;
+  private boolean lookhead;
+  private int position;
+
+  /**
+   * Creates a lexer that reads the bytes between the position and the limit of a buffer,
+   * the offset 0 being the position of the buffer.
+   *
+   * @param config the configuration.
+   * @param buffer the buffer.
+   */
+  Utf8Lexer(Config<T> config, ByteBuffer buffer) {
+    this.config = config;
+    this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    this.length = this.buffer.limit();
+    this.text = new MappedCharSequence(new ByteBuffer[] { this.buffer }, 31, 0, length);
+  }
+
+  @Override
+  public T token() { return token; }
+  @Override
+  public String value() {
+    if (value == null && start != -1) {
+      var bytes = new byte[end - start];
+      buffer.duplicate().position(start).get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return value;
+  }
+  @Override
+  public CharSequence text() { return text; }
+  @Override
+  public int start() { return start; }
+  @Override
+  public int end() { return end; }
+
+  @Override
+  public T lookhead() {
+    if(lookhead) {
+      return token;
+    }
+    lookhead = true;
+    return next();
+  }
+
+  @Override
+  public T consume() {
+    if(lookhead) {
+      lookhead = false;
+      return token;
+    }
+    return next();
+  }
+
+  private T next() {
+    value = null;
+    var config = this.config;
+    var position = this.position;
+    for(;;) {
+      position = skipWhitespaces(position);
+      if (position == length) {
+        this.position = position;
+        start = end = -1;
+        return token = config.eof;
+      }
+      var b = buffer.get(position);
+      if (isDigit(b)) {
+        return match(position, digitEnd(position), config.number);
+      }
+      if (isIdentifierStart(b)) {
+        var identifierEnd = identifierEnd(position + 1);
+        var keyword = config.keywords.exactMatch(text, position, identifierEnd);
+        return match(position, identifierEnd, keyword == -1? config.identifier: config.literals.get(keyword).getKey());
+      }
+      var match = config.operators.match(text, position);
+      if (match != -1) {
+        return match(position, Automaton.end(match), config.literals.get(Automaton.entry(match)).getKey());
+      }
+      if (b < 0) {  // non ASCII
+        var codePoint = codePoint(position);
+        // a malformed or truncated sequence is skipped one byte at a time, so the next byte is not lost
+        var next = codePoint == -1? position + 1: position + byteCount(b);
+        if (Character.isUnicodeIdentifierStart(codePoint)) {
+          var identifierEnd = identifierEnd(next);
+          var keyword = config.keywords.exactMatch(text, position, identifierEnd);
+          return match(position, identifierEnd, keyword == -1? config.identifier: config.literals.get(keyword).getKey());
+        }
+        position = next;
+        continue;
+      }
+      position++;  // skip an unknown character
+    }
+  }
+
+  private T match(int start, int end, T token) {
+    this.start = start;
+    this.end = position = end;
+    return this.token = token;
+  }
+
+  // the number of bytes of a code point from its first byte, an invalid byte counts as one byte
+  private static int byteCount(byte b) {
+    if ((b & 0xE0) == 0xC0) {
+      return 2;
+    }
+    if ((b & 0xF0) == 0xE0) {
+      return 3;
+    }
+    if ((b & 0xF8) == 0xF0) {
+      return 4;
+    }
+    return 1;
+  }
+
+  // decode the code point starting at position, a malformed sequence is decoded as -1
+  private int codePoint(int position) {
+    var b = buffer.get(position);
+    var count = byteCount(b);
+    if (count == 1 || position + count > length) {
+      return -1;
+    }
+    var codePoint = b & (0x7F >> count);
+    for(var i = 1; i < count; i++) {
+      var next = buffer.get(position + i);
+      if ((next & 0xC0) != 0x80) {
+        return -1;
+      }
+      codePoint = codePoint << 6 | (next & 0x3F);
+    }
+    return codePoint;
+  }
+
+  private static boolean isDigit(int b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private static boolean isIdentifierStart(int b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+  }
+
+  private static boolean isIdentifierPart(int b) {
+    return isIdentifierStart(b) || isDigit(b);
+  }
+
+  // same test as identifierEnd() on a decoded code point
+  private static boolean isCodePointIdentifierPart(int codePoint) {
+    if (codePoint < 0x80) {
+      return isIdentifierPart(codePoint);
+    }
+    return Character.isUnicodeIdentifierPart(codePoint) && !Character.isIdentifierIgnorable(codePoint);
+  }
+
+  // a bit 7 set in each byte of the word that is in [lo, hi], the bytes must be ASCII
+  private static long inRange(long low7, int lo, int hi) {
+    return (low7 + (0x80 - lo) * ONES) & ~(low7 + (0x80 - hi - 1) * ONES) & HIGH;
+  }
+
+  // a bit 7 set in each byte of the word equals to c
+  private static long equalsTo(long word, int c) {
+    var x = word ^ (c * ONES);
+    return ~(((x & LOW7) + LOW7) | x) & HIGH;
+  }
+
+  private int skipWhitespaces(int position) {
+    for(; position + 8 <= length; position += 8) {
+      var word = buffer.getLong(position);
+      // the bytes greater than ' ', the non ASCII bytes have their bit 7 already set
+      var mask = (((word & LOW7) + (0x7F - ' ') * ONES) | word) & HIGH;
+      if (mask != 0) {
+        return position + (Long.numberOfTrailingZeros(mask) >>> 3);
+      }
+    }
+    while(position < length && (buffer.get(position) & 0xFF) <= ' ') {
+      position++;
+    }
+    return position;
+  }
+
+  private int digitEnd(int position) {
+    for(; position + 8 <= length; position += 8) {
+      var word = buffer.getLong(position);
+      var digits = inRange(word & LOW7, '0', '9') & ~word;
+      var mask = ~digits & HIGH;
+      if (mask != 0) {
+        return position + (Long.numberOfTrailingZeros(mask) >>> 3);
+      }
+    }
+    while(position < length && isDigit(buffer.get(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private int identifierEnd(int position) {
+    for(;;) {
+      for(; position + 8 <= length; position += 8) {
+        var word = buffer.getLong(position);
+        var low7 = word & LOW7;
+        var parts = (inRange(low7 | 0x2020_2020_2020_2020L, 'a', 'z') | inRange(low7, '0', '9') | equalsTo(word, '_')) & ~word;
+        var mask = ~parts & HIGH;
+        if (mask != 0) {
+          position += Long.numberOfTrailingZeros(mask) >>> 3;
+          break;
+        }
+      }
+      while(position < length && isIdentifierPart(buffer.get(position))) {
+        position++;
+      }
+      if (position == length || buffer.get(position) >= 0) {
+        return position;
+      }
+      // slow path, a non ASCII code point
+      var codePoint = codePoint(position);
+      if (!Character.isUnicodeIdentifierPart(codePoint) || Character.isIdentifierIgnorable(codePoint)) {
+        return position;
+      }
+      position += byteCount(buffer.get(position));
+    }
+  }
+}
@@ -1,3 +1,5 @@
 module com.github.forax.pratt_parser {
+  requires jdk.jfr;
+
   exports com.github.forax.pratt_parser;
 }
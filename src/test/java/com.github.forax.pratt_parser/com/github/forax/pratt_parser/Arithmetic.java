@@ -0,0 +1,126 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_ADD;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_MUL;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_NONE;
+import static com.github.forax.pratt_parser.Arithmetic.Token.*;
+import static java.util.Map.entry;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The lexers and grammars of the arithmetic expressions (numbers, unary '+' and '-', binary '+' and '*'
+ * and parenthesis) shared by the tests.
+ *
+ * The expressions are lexed either with the tokens of {@link Token} or with strings as tokens,
+ * the lexers of strings also recognize the separator {@code ";"} and the identifiers.
+ */
+final class Arithmetic {
+  private Arithmetic() {
+    throw new AssertionError();
+  }
+
+  enum Token { PLUS, MINUS, STAR, POW, LPAR, RPAR, NUM, EOF }
+  enum Precedence { P_NONE, P_ADD, P_MUL }
+
+  /** The lexers of the tokens of {@link Token}, {@code "**"} is lexed as {@link Token#POW}. */
+  static final Function<CharSequence, Lexer<Token>> LEXER_FACTORY = Lexer.dfaFactory(EOF,
+      entry(PLUS,  "\\+"),
+      entry(MINUS, "\\-"),
+      entry(POW,   "\\*\\*"),
+      entry(STAR,  "\\*"),
+      entry(LPAR,  "\\("),
+      entry(RPAR,  "\\)"),
+      entry(NUM,   "[0-9]+"));
+
+  private static final Map<Token, Precedence> PRECEDENCES = Map.of(EOF, P_NONE, RPAR, P_NONE, PLUS, P_ADD, STAR, P_MUL);
+
+  private static final Map<Token, Grammar.PrefixParselet<Integer, Token, Precedence>> PREFIXES = Map.of(
+      PLUS,  (p, lexer) -> p.parseExpr(P_NONE),
+      MINUS, (p, lexer) -> - p.parseExpr(P_NONE),
+      LPAR,  (p, lexer) -> { int v = p.parseExpr(P_NONE); lexer.consume(RPAR); return v; },
+      NUM,   (p, lexer) -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10));
+
+  private static final Map<Token, Grammar.SuffixParselet<Integer, Token, Precedence>> SUFFIXES = Map.of(
+      PLUS,  (p, lexer, left) -> left + p.parseExpr(P_ADD),
+      STAR,  (p, lexer, left) -> left * p.parseExpr(P_MUL));
+
+  /** The grammar that evaluates the expressions lexed by {@link #LEXER_FACTORY}. */
+  static final Grammar<Integer, Token, Precedence> GRAMMAR =
+      Grammar.create(PRECEDENCES::get, Precedence::compareTo, PREFIXES, SUFFIXES);
+
+  /**
+   * Returns the grammar {@link #GRAMMAR} monitored by a parser monitor.
+   * @param monitor the parser monitor.
+   * @return a grammar that evaluates the expressions and reports to the monitor.
+   */
+  static Grammar<Integer, Token, Precedence> grammar(ParserMonitor<Token> monitor) {
+    return Grammar.create(PRECEDENCES::get, Precedence::compareTo, PREFIXES, SUFFIXES, monitor);
+  }
+
+  /**
+   * Returns the {@link IntGrammar} version of {@link #GRAMMAR} monitored by a parser monitor.
+   * @param monitor the parser monitor.
+   * @return a grammar that evaluates the expressions and reports to the monitor.
+   */
+  static IntGrammar<Integer, Token> intGrammar(ParserMonitor<Token> monitor) {
+    return IntGrammar.create(
+        token -> token == PLUS? 1: token == STAR? 2: 0,
+        Map.of(
+            PLUS,  (p, lexer) -> p.parseExpr(0),
+            MINUS, (p, lexer) -> - p.parseExpr(0),
+            LPAR,  (p, lexer) -> { int v = p.parseExpr(0); lexer.consume(RPAR); return v; },
+            NUM,   (p, lexer) -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10)),
+        Map.of(
+            PLUS,  (p, lexer, left) -> left + p.parseExpr(1),
+            STAR,  (p, lexer, left) -> left * p.parseExpr(2)),
+        monitor);
+  }
+
+  /**
+   * Evaluates a text with {@link #GRAMMAR}.
+   * @param text the text of an expression.
+   * @return the value of the expression.
+   */
+  static int eval(CharSequence text) {
+    return GRAMMAR.parser(LEXER_FACTORY.apply(text)).parseExpr(P_NONE);
+  }
+
+  /**
+   * The lexers that use strings as tokens, the end of file token is {@code "$"},
+   * the numbers are {@code "num"} and the identifiers are {@code "id"}.
+   */
+  static final Function<CharSequence, Lexer<String>> STRING_LEXER_FACTORY = Lexer.dfaFactory("$",
+      entry(";",   ";"),
+      entry("+",   "\\+"),
+      entry("-",   "\\-"),
+      entry("*",   "\\*"),
+      entry("(",   "\\("),
+      entry(")",   "\\)"),
+      entry("num", "[0-9]+"),
+      entry("id",  "[a-z]+"));
+
+  /** The grammar that evaluates the expressions lexed by {@link #STRING_LEXER_FACTORY}. */
+  static final IntGrammar<Integer, String> INT_GRAMMAR = IntGrammar.create(
+      token -> token.equals("+")? 1: token.equals("*")? 2: 0,
+      Map.of(
+          "(",   (p, lexer) -> { int v = p.parseExpr(0); lexer.consume(")"); return v; },
+          "num", (p, lexer) -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10)),
+      Map.of(
+          "+",   (p, lexer, left) -> left + p.parseExpr(1),
+          "*",   (p, lexer, left) -> left * p.parseExpr(2)));
+
+  /**
+   * The grammar that returns the expressions lexed by {@link #STRING_LEXER_FACTORY} as strings
+   * with parenthesis around each binary operation, by example {@code "(1 + (2 * 3))"}.
+   */
+  static final IntGrammar<String, String> AST_GRAMMAR = IntGrammar.create(
+      token -> token.equals("+")? 1: token.equals("*")? 2: 0,
+      Map.of(
+          "(",   (p, lexer) -> { var expr = p.parseExpr(0); lexer.consume(")"); return expr; },
+          "num", (p, lexer) -> lexer.value()),
+      Map.of(
+          "+",   (p, lexer, left) -> "(" + left + " + " + p.parseExpr(1) + ")",
+          "*",   (p, lexer, left) -> "(" + left + " * " + p.parseExpr(2) + ")"));
+}
@@ -0,0 +1,168 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.INT_GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.STRING_LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_NONE;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class BatchParserTests {
+  private static final BatchParser<Integer> BATCH_PARSER =
+      BatchParser.create(() -> {
+        var lexer = LEXER_FACTORY.apply("");
+        var parser = GRAMMAR.parser(lexer);
+        return text -> { lexer.reset(text); return parser.parseExpr(P_NONE); };
+      });
+  
+  @Test
+  void resultsInInputOrder() {
+    var inputs = IntStream.range(0, 10_000).mapToObj(i -> i + " * 2 + (" + i + ")").collect(toList());
+    var results = BATCH_PARSER.parseAll(inputs);
+    assertEquals(
+        IntStream.range(0, 10_000).mapToObj(i -> i * 3).collect(toList()),
+        results.stream().map(BatchParser.Result::value).collect(toList()));
+  }
+  
+  @Test
+  void failuresDoNotAbortTheBatch() {
+    var results = BATCH_PARSER.parseAll(List.of("1 + 2", "* 3", "(4", "5"));
+    assertEquals(4, results.size());
+    assertTrue(results.get(0).isSuccess());
+    assertEquals(3, (int) results.get(0).value());
+    assertNull(results.get(0).failure());
+    assertFalse(results.get(1).isSuccess());
+    assertTrue(results.get(1).failure() instanceof IllegalStateException);
+    assertThrows(IllegalStateException.class, () -> results.get(1).value());
+    assertFalse(results.get(2).isSuccess());
+    assertEquals(5, (int) results.get(3).value());
+  }
+  
+  @Test
+  void emptyBatch() {
+    assertEquals(List.of(), BATCH_PARSER.parseAll(List.of()));
+  }
+  
+  @Test
+  void streamOfInputs() {
+    var results = BATCH_PARSER.parseAll(Stream.of("1", "2 * 3"));
+    assertEquals(List.of(1, 6), results.stream().map(BatchParser.Result::value).collect(toList()));
+  }
+  
+  @Test
+  void oneParseFunctionPerThread() throws InterruptedException {
+    var executor = Executors.newFixedThreadPool(3);
+    try {
+      var counter = new AtomicInteger();
+      BatchParser<Integer> batchParser = BatchParser.create(() -> {
+        counter.incrementAndGet();
+        return text -> GRAMMAR.parser(LEXER_FACTORY.apply(text)).parseExpr(P_NONE);
+      }, executor);
+      var inputs = IntStream.range(0, 1_000).mapToObj(Integer::toString).collect(toList());
+      for(var i = 0; i < 3; i++) {
+        var results = batchParser.parseAll(inputs);
+        assertEquals(inputs.size(), results.size());
+      }
+      assertTrue(counter.get() <= 3);
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+  
+  @Test
+  void nullArguments() {
+    assertThrows(NullPointerException.class, () -> BatchParser.create(null));
+    assertThrows(NullPointerException.class, () -> BatchParser.create(() -> text -> text, null));
+    assertThrows(NullPointerException.class, () -> BatchParser.Result.failure(null));
+  }
+  
+  private static List<BatchParser.Result<Integer>> parseSplit(String text) {
+    var tokens = TokenBuffer.of(STRING_LEXER_FACTORY.apply(text), "$");
+    return BatchParser.parseSplit(tokens, ";", Map.of("(", ")"), lexer -> INT_GRAMMAR.parser(lexer).parseExpr(0));
+  }
+
+  @Test
+  void parseSplitInTextOrder() {
+    var text = IntStream.range(0, 10_000).mapToObj(i -> "(" + i + " + 1) * 2").collect(joining(";\n"));
+    var results = parseSplit(text);
+    assertEquals(
+        IntStream.range(0, 10_000).mapToObj(i -> (i + 1) * 2).collect(toList()),
+        results.stream().map(BatchParser.Result::value).collect(toList()));
+  }
+
+  @Test
+  void parseSplitSkipsEmptyExpressions() {
+    assertEquals(List.of(1, 5), parseSplit(";;1;; 2 + 3;").stream().map(BatchParser.Result::value).collect(toList()));
+    assertEquals(List.of(), parseSplit(""));
+  }
+
+  @Test
+  void parseSplitFailuresHaveTextOffsets() {
+    var results = parseSplit("1 + 2; 3 * ; 4 4; (5 ; 6); 7");
+    assertEquals(5, results.size());
+    assertEquals(3, (int) results.get(0).value());
+    assertEquals("parsing error at offset 10", results.get(1).failure().getMessage());
+    assertEquals("parsing error num at offset 15 but should be ;", results.get(2).failure().getMessage());
+    // the separator between the parenthesis doesn't split the expression
+    assertEquals("parsing error at offset 21", results.get(3).failure().getMessage());
+    assertEquals(7, (int) results.get(4).value());
+  }
+
+  @Test
+  void parseSplitReportsDiagnosticsWithTextOffsets() {
+    var tokens = TokenBuffer.of(STRING_LEXER_FACTORY.apply("1 + 2; 3 * (4 + ) ; 4 +"), "$");
+    var results = BatchParser.parseSplit(tokens, ";", Map.of("(", ")"), lexer -> {
+      var diagnostics = Diagnostics.<String>create(1);
+      INT_GRAMMAR.parser(lexer, "$", Set.of(")"), 0, diagnostics).parseExpr(0);
+      return diagnostics.size() == 0? -2: diagnostics.start(0);  // -1 is the end of the text
+    });
+    assertEquals(List.of(-2, 16, -1), results.stream().map(BatchParser.Result::value).collect(toList()));
+  }
+
+  @Test
+  void parseSplitNullArguments() {
+    var tokens = TokenBuffer.of(STRING_LEXER_FACTORY.apply("1"), "$");
+    assertThrows(NullPointerException.class, () -> BatchParser.parseSplit(null, ";", Map.of(), lexer -> 0));
+    assertThrows(NullPointerException.class, () -> BatchParser.parseSplit(tokens, null, Map.of(), lexer -> 0));
+    assertThrows(NullPointerException.class, () -> BatchParser.parseSplit(tokens, ";", null, lexer -> 0));
+    assertThrows(NullPointerException.class, () -> BatchParser.parseSplit(tokens, ";", Map.of(), null));
+    assertThrows(NullPointerException.class, () -> BatchParser.parseSplit(tokens, ";", Map.of(), lexer -> 0, null));
+  }
+
+  @Test
+  void parseSplitUnknownTokenBuffer() {
+    var tokens = TokenBuffer.of(STRING_LEXER_FACTORY.apply("1"), "$");
+    var wrapper = new TokenBuffer<String>() {
+      @Override
+      public int size() { return tokens.size(); }
+      @Override
+      public String token(int index) { return tokens.token(index); }
+      @Override
+      public int start(int index) { return tokens.start(index); }
+      @Override
+      public int end(int index) { return tokens.end(index); }
+      @Override
+      public Lexer<String> lexer() { return tokens.lexer(); }
+    };
+    assertThrows(IllegalArgumentException.class, () -> BatchParser.parseSplit(wrapper, ";", Map.of(), lexer -> 0));
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.forax.pratt_parser;
+
+/**
+ * Generates the arithmetic texts (numbers, unary/binary '+', unary '-', binary '*' and parenthesis)
+ * used by the benchmarks.
+ */
+public final class BenchmarkInputs {
+  private BenchmarkInputs() {
+    throw new AssertionError();
+  }
+  
+  /**
+   * Shape of the generated expressions.
+   */
+  public enum Shape {
+    /** a flat list of numbers separated by binary operators, {@code 1 + 23 * 456 + ...}. */
+    SHALLOW,
+    /**
+     * blocks of nested parenthesis, {@code (1 + (23 * (456 + ...))) + (...)}, the depth of a block
+     * is bounded by {@link #MAX_DEPTH} so the recursive parser doesn't overflow the stack.
+     */
+    NESTED
+  }
+  
+  /** Maximum nesting depth of a block of parenthesis. */
+  static final int MAX_DEPTH = 128;
+  
+  /**
+   * Parse a size of the form {@code 10B}, {@code 10KB} or {@code 10MB}.
+   * @param size a size.
+   * @return the size in bytes (in chars).
+   */
+  static int parseSize(String size) {
+    if (size.endsWith("MB")) {
+      return Integer.parseInt(size, 0, size.length() - 2, 10) * 1024 * 1024;
+    }
+    if (size.endsWith("KB")) {
+      return Integer.parseInt(size, 0, size.length() - 2, 10) * 1024;
+    }
+    if (size.endsWith("B")) {
+      return Integer.parseInt(size, 0, size.length() - 1, 10);
+    }
+    throw new IllegalArgumentException("invalid size " + size);
+  }
+  
+  /**
+   * Generates a valid expression of at least {@code size} characters.
+   * The generation is deterministic, two calls with the same arguments return the same text.
+   * 
+   * @param size the minimum size of the text.
+   * @param shape the shape of the expression.
+   * @return a valid arithmetic expression.
+   */
+  static String generate(int size, Shape shape) {
+    var builder = new StringBuilder(size + 16);
+    var counter = 0;
+    switch(shape) {
+    case SHALLOW:
+      builder.append(number(counter++));
+      while(builder.length() < size) {
+        builder.append(operator(counter)).append(number(counter++));
+      }
+      return builder.toString();
+    case NESTED:
+      while(builder.length() < size) {
+        if (builder.length() != 0) {
+          builder.append(" + ");
+        }
+        var depth = Math.max(1, Math.min(MAX_DEPTH, (size - builder.length()) / 8));
+        for(var i = 0; i < depth - 1; i++) {
+          builder.append('(').append(number(counter++)).append(operator(counter));
+        }
+        builder.append(number(counter++));
+        for(var i = 0; i < depth - 1; i++) {
+          builder.append(')');
+        }
+      }
+      return builder.toString();
+    default:
+      throw new AssertionError();
+    }
+  }
+  
+  private static String operator(int counter) {
+    return (counter & 1) == 0? " + ": " * ";
+  }
+  
+  private static int number(int counter) {
+    return counter % 1000;
+  }
+}
@@ -0,0 +1,36 @@
+package com.github.forax.pratt_parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all the benchmarks with the GC profiler and writes the results as JSON,
+ * so they can be compared between two versions.
+ * 
+ * Usage: {@code Benchmarks [result.json] [regex]}, by default the results are written
+ * in {@code target/bench/results.json} and all the benchmarks ({@code .*Benchmark}) are run.
+ */
+public class Benchmarks {
+  public static void main(String[] args) throws IOException, RunnerException {
+    var result = Path.of(args.length > 0? args[0]: "target/bench/results.json");
+    var include = args.length > 1? args[1]: ".*Benchmark";
+    var parent = result.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    var options = new OptionsBuilder()
+        .include(include)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result(result.toString())
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,131 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.Token.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.forax.pratt_parser.Arithmetic.Token;
+
+@SuppressWarnings("static-method")
+class DeferredTests {
+  // the number of expressions between parenthesis that have been parsed
+  private static final AtomicInteger PARSE_COUNT = new AtomicInteger();
+
+  // the right operand of a multiplication is not evaluated if the left operand is 0
+  private static final IntGrammar<IntSupplier, Token> GRAMMAR = IntGrammar.create(
+      token -> token == PLUS? 1: token == STAR? 2: 0,
+      Map.of(
+          LPAR, (p, lexer) -> group(lexer),
+          NUM,  (p, lexer) -> { var value = Integer.parseInt(lexer.value()); return () -> value; }),
+      Map.of(
+          PLUS, (p, lexer, left) -> { var right = p.parseExpr(1); return () -> left.getAsInt() + right.getAsInt(); },
+          STAR, (p, lexer, left) -> { var right = p.parseExpr(2); return () -> { var value = left.getAsInt(); return value == 0? 0: value * right.getAsInt(); }; }));
+
+  private static IntSupplier group(Lexer<Token> lexer) {
+    var deferred = Deferred.skip(lexer, LPAR, RPAR, EOF, LEXER_FACTORY, l -> {
+      PARSE_COUNT.incrementAndGet();
+      return GRAMMAR.parser(l).parseExpr(0);
+    });
+    return () -> deferred.get().getAsInt();
+  }
+
+  private static IntSupplier parse(String text) {
+    return GRAMMAR.parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+  }
+
+  @Test
+  void parsedWhenEvaluated() {
+    PARSE_COUNT.set(0);
+    var expr = parse("1 + (2 * (3 + 4))");
+    assertEquals(0, PARSE_COUNT.get());
+    assertEquals(15, expr.getAsInt());
+    assertEquals(2, PARSE_COUNT.get());
+    assertEquals(15, expr.getAsInt());
+    assertEquals(2, PARSE_COUNT.get());
+  }
+
+  @Test
+  void onlyTheEvaluatedPartIsParsed() {
+    PARSE_COUNT.set(0);
+    var expr = parse("0 * (1 + (2 * 3) + (4 + 5)) * (6 * 7)");
+    assertEquals(0, expr.getAsInt());
+    assertEquals(0, PARSE_COUNT.get());
+    expr = parse("1 * (2 + (3 * 4)) * 0 * (6 * 7)");
+    assertEquals(0, expr.getAsInt());
+    assertEquals(2, PARSE_COUNT.get());
+  }
+
+  @Test
+  void skip() {
+    var lexer = LEXER_FACTORY.apply("(1 + ((2)) * 3) + 4");
+    lexer.consume(LPAR);
+    var deferred = Deferred.skip(lexer, LPAR, RPAR, EOF, LEXER_FACTORY, l -> GRAMMAR.parser(l).parseExpr(0));
+    assertAll(
+        () -> assertEquals(1, deferred.start()),
+        () -> assertEquals(14, deferred.end()),
+        () -> assertEquals(RPAR, lexer.token()),
+        () -> assertEquals(PLUS, lexer.consume()),
+        () -> assertFalse(deferred.isParsed()),
+        () -> assertEquals("Deferred 1 + ((2)) * 3", deferred.toString())
+        );
+    var expr = deferred.get();
+    assertTrue(deferred.isParsed());
+    assertSame(expr, deferred.get());
+    assertEquals(7, expr.getAsInt());
+  }
+
+  @Test
+  void offsetsInTheWholeText() {
+    var lexer = LEXER_FACTORY.apply("1 + (2 + 3)");
+    lexer.consume(NUM);
+    lexer.consume(PLUS);
+    lexer.consume(LPAR);
+    var deferred = Deferred.skip(lexer, LPAR, RPAR, EOF, LEXER_FACTORY, l -> {
+      var offsets = l.consume() + " " + l.start() + " " + l.end() + " " + l.value();
+      l.consume();
+      l.consume();
+      assertSame(lexer.text(), l.text());
+      return offsets;
+    });
+    assertEquals("NUM 5 6 2", deferred.get());
+  }
+
+  @Test
+  void syntaxErrorOnlyReportedWhenEvaluated() {
+    var expr = parse("1 + (2 3)");
+    var e = assertThrows(IllegalStateException.class, expr::getAsInt);
+    assertEquals("parsing error NUM at offset 7 but should be RPAR", e.getMessage());
+    assertThrows(IllegalStateException.class, expr::getAsInt);
+  }
+
+  @Test
+  void missingClosingToken() {
+    assertThrows(IllegalStateException.class, () -> parse("1 + ((2 + 3)"));
+  }
+
+  @Test
+  void invalidArguments() {
+    var lexer = LEXER_FACTORY.apply("()");
+    Function<Lexer<Token>, String> parseFunction = l -> "";
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> Deferred.skip(null, LPAR, RPAR, EOF, LEXER_FACTORY, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> Deferred.skip(lexer, null, RPAR, EOF, LEXER_FACTORY, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> Deferred.skip(lexer, LPAR, null, EOF, LEXER_FACTORY, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> Deferred.skip(lexer, LPAR, RPAR, EOF, null, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> Deferred.skip(lexer, LPAR, RPAR, null, LEXER_FACTORY, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> Deferred.skip(lexer, LPAR, RPAR, EOF, LEXER_FACTORY, null))
+        );
+  }
+}
@@ -0,0 +1,213 @@
+package com.github.forax.pratt_parser;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class DfaLexerTests {
+  private static List<String> tokens(Function<CharSequence, Lexer<String>> factory, String text) {
+    var lexer = factory.apply(text);
+    var list = new ArrayList<String>();
+    String token;
+    while(!(token = lexer.consume()).equals("$")) {
+      list.add(token + ':' + lexer.value());
+    }
+    return list;
+  }
+  
+  @SafeVarargs
+  @SuppressWarnings("varargs")  // the array is only passed to dfaFactory
+  private static List<String> tokens(String text, Entry<String, String>... regexes) {
+    return tokens(Lexer.dfaFactory("$", regexes), text);
+  }
+  
+  @Test
+  void testWrongConfigurations() {
+    assertThrows(NullPointerException.class, () -> Lexer.dfaFactory(null, Map.entry("token", "[a-z]+")));
+    assertThrows(NullPointerException.class, () -> Lexer.dfaFactory("eof", (Map.Entry<String, String>[])null));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("eof"));
+  }
+  
+  @Test
+  void unsupportedRegexes() {
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "^a")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a$")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "(a)\\1")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a*?")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a++")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "(?=a)")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "[a-z&&[^b]]")));
+  }
+  
+  @Test
+  void invalidRegexes() {
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "(a")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a)")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "[a-")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "*a")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a{3,1}")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a{2")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "a{2,")));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.dfaFactory("$", entry("a", "[z-a]")));
+  }
+  
+  @Test
+  void matchOnlyOneKingOfToken() {
+    var factory = Lexer.dfaFactory("eof", entry("token", "[a-z]+"));
+    var lexer = factory.apply("hello bob");
+    lexer.consume("token");
+    assertEquals("hello", lexer.value());
+    lexer.consume("token");
+    assertEquals("bob", lexer.value());
+    lexer.consume("eof");
+    assertNull(lexer.value());
+  }
+  
+  @Test
+  void matchEmptyText() {
+    var factory = Lexer.dfaFactory("eof", entry("token", "[a-z]+"));
+    var lexer = factory.apply("");
+    lexer.consume("eof");
+    assertNull(lexer.value());
+  }
+  
+  @Test
+  void matchNullText() {
+    var factory = Lexer.dfaFactory("$", entry("token", "[0-9]+"));
+    assertThrows(NullPointerException.class, () -> factory.apply(null));
+  }
+  
+  @Test
+  void matchFirstRegex() {
+    assertEquals(List.of("goto:goto"), tokens("goto", entry("goto", "goto"), entry("token", "[a-z]+")));
+  }
+  
+  @Test
+  void matchFirstRegex2() {
+    assertEquals(List.of("token:goto"), tokens("goto", entry("token", "[a-z]+"), entry("goto", "goto")));
+  }
+  
+  @Test
+  void matchFirstRegexEvenIfShorter() {
+    assertEquals(List.of("a:a", "a:a", "b:b"), tokens("aab", entry("a", "a"), entry("ab", "a+b"), entry("b", "b")));
+  }
+  
+  @Test
+  void lookhead() {
+    var lexer = Lexer.dfaFactory("$", entry("id", "[a-z]+"), entry("num", "[0-9]+")).apply("a 1");
+    assertEquals("id", lexer.lookhead());
+    assertEquals("id", lexer.lookhead());
+    lexer.consume("id");
+    assertEquals("a", lexer.value());
+    assertEquals("num", lexer.lookhead());
+    lexer.consume("num");
+    assertEquals("1", lexer.value());
+    assertEquals("$", lexer.lookhead());
+    lexer.consume("$");
+    lexer.consume("$");
+  }
+  
+  @Test
+  void skipUnmatchedCharacters() {
+    assertEquals(List.of("id:hello", "id:boy"), tokens("  hello, boy !", entry("id", "[a-z]+")));
+  }
+  
+  @Test
+  void characterClasses() {
+    assertEquals(List.of("num:12", "id:_a1", "other:%", "num:3"),
+        tokens("12 _a1%3", entry("num", "\\d+"), entry("id", "\\w+"), entry("other", "[^\\s\\w]")));
+    assertEquals(List.of("hexa:0x1F", "hexa:0Xab"),
+        tokens("0x1F 0Xab", entry("hexa", "0[xX][0-9a-fA-F]+")));
+    assertEquals(List.of("any:a-b", "any:c"), tokens("a-b\nc", entry("any", ".+")));
+    assertEquals(List.of("op:-", "op:+", "op:]"), tokens("- + ]", entry("op", "[+\\]-]")));
+  }
+  
+  @Test
+  void alternationsAndGroups() {
+    assertEquals(List.of("kw:if", "kw:else", "kw:if", "id:f"),
+        tokens("if else iff", entry("kw", "(?:if|else)"), entry("id", "[a-z]+")));
+    assertEquals(List.of("ab:ababab", "ab:ab"), tokens("ababab ab", entry("ab", "(ab)+")));
+  }
+  
+  @Test
+  void repetitions() {
+    assertEquals(List.of("n:123", "n:45"), tokens("123 45", entry("n", "[0-9]{1,3}")));
+    assertEquals(List.of("n:12", "n:34", "n:56"), tokens("123456", entry("n", "[0-9]{2}")));
+    assertEquals(List.of("n:123456"), tokens("123456", entry("n", "[0-9]{2,}")));
+    assertEquals(List.of("f:1.5", "f:2", "f:3.25"), tokens("1.5 2 3.25", entry("f", "[0-9]+(\\.[0-9]+)?")));
+    assertEquals(List.of("s:\"a\\\"b\"", "s:\"\""), tokens("\"a\\\"b\" \"\"", entry("s", "\"([^\"\\\\]|\\\\.)*\"")));
+  }
+  
+  @Test
+  void unicodeEscapes() {
+    assertEquals(List.of("e:\u00e9\u00e9", "a:a"), tokens("\u00e9\u00e9a", entry("e", "\\u00e9+"), entry("a", "\\x61")));
+  }
+  
+  @Test
+  void sameTokensAsRegexFactory() {
+    @SuppressWarnings("unchecked")
+    Entry<String, String>[] regexes = (Entry<String, String>[]) new Entry<?, ?>[] {
+        entry("+",   "\\+"),
+        entry("-",   "\\-"),
+        entry("*",   "\\*"),
+        entry("(",   "\\("),
+        entry(")",   "\\)"),
+        entry("num", "[0-9]+")
+    };
+    var text = BenchmarkInputs.generate(10_000, BenchmarkInputs.Shape.NESTED) + " - +" + BenchmarkInputs.generate(10_000, BenchmarkInputs.Shape.SHALLOW);
+    assertEquals(tokens(Lexer.factory("$", regexes), text), tokens(Lexer.dfaFactory("$", regexes), text));
+  }
+  
+  @Test
+  void offsets() {
+    var factory = Lexer.dfaFactory("$", entry("id", "[a-z]+"), entry("num", "[0-9]+"));
+    var text = "foo 42";
+    var lexer = factory.apply(text);
+    assertSame(text, lexer.text());
+    assertEquals(-1, lexer.start());
+    assertEquals(-1, lexer.end());
+    lexer.consume("id");
+    assertEquals(0, lexer.start());
+    assertEquals(3, lexer.end());
+    assertEquals("num", lexer.lookhead());
+    assertEquals(4, lexer.start());
+    assertEquals(6, lexer.end());
+    lexer.consume("num");
+    assertEquals(42, Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10));
+    assertEquals("42", lexer.value());
+    lexer.consume("$");
+    assertEquals(-1, lexer.start());
+    assertEquals(-1, lexer.end());
+    assertNull(lexer.value());
+  }
+  
+  @Test
+  void reset() {
+    var lexer = Lexer.dfaFactory("$", entry("id", "[a-z]+"), entry("num", "[0-9]+")).apply("foo 42");
+    lexer.consume("id");
+    assertEquals("num", lexer.lookhead());
+    lexer.reset("12 bar");
+    assertNull(lexer.token());
+    assertEquals(-1, lexer.start());
+    lexer.consume("num");
+    assertEquals("12", lexer.value());
+    lexer.consume("id");
+    assertEquals("bar", lexer.value());
+    lexer.consume("$");
+    lexer.reset("baz");
+    lexer.consume("id");
+    assertEquals("baz", lexer.value());
+    assertThrows(NullPointerException.class, () -> lexer.reset(null));
+  }
+}
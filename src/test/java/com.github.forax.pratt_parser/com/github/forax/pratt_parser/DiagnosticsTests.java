@@ -0,0 +1,158 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.AST_GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.STRING_LEXER_FACTORY;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class DiagnosticsTests {
+  private static final Set<String> SYNC_TOKENS = Set.of(";", ")");
+
+  private static String parse(String text, Diagnostics<String> diagnostics) {
+    return AST_GRAMMAR.parser(STRING_LEXER_FACTORY.apply(text), "$", SYNC_TOKENS, "?", diagnostics).parseExpr(0);
+  }
+
+  private static List<String> messages(Diagnostics<String> diagnostics) {
+    var list = new ArrayList<String>();
+    for(var i = 0; i < diagnostics.size(); i++) {
+      list.add(diagnostics.start(i) + ":" + diagnostics.end(i) + " " + diagnostics.expected(i) + " " + diagnostics.found(i));
+    }
+    return list;
+  }
+
+  @Test
+  void noError() {
+    var diagnostics = Diagnostics.<String>create(4);
+    assertEquals("(1 + (2 * 3))", parse("1 + 2 * 3", diagnostics));
+    assertEquals(0, diagnostics.size());
+    assertEquals(0, diagnostics.reportCount());
+  }
+
+  @Test
+  void missingExpression() {
+    var diagnostics = Diagnostics.<String>create(4);
+    assertEquals("(1 + ?)", parse("1 + ", diagnostics));
+    assertEquals(List.of("-1:-1 null $"), messages(diagnostics));
+  }
+
+  @Test
+  void missingExpressionInAGroup() {
+    var diagnostics = Diagnostics.<String>create(4);
+    assertEquals("((1 * ?) + 2)", parse("(1 * ) + 2", diagnostics));
+    assertEquals(List.of("5:6 null )"), messages(diagnostics));
+  }
+
+  @Test
+  void missingClosingToken() {
+    var diagnostics = Diagnostics.<String>create(4);
+    assertEquals("(1 + 2)", parse("(1 + 2", diagnostics));
+    assertEquals(List.of("-1:-1 ) $"), messages(diagnostics));
+  }
+
+  @Test
+  void skipToTheClosingToken() {
+    var diagnostics = Diagnostics.<String>create(4);
+    assertEquals("((1 + 2) * 4)", parse("(1 + 2 3 3) * 4", diagnostics));
+    assertEquals(List.of("7:8 ) num"), messages(diagnostics));
+  }
+
+  @Test
+  void stream() {
+    var diagnostics = Diagnostics.<String>create(4);
+    var lexer = STRING_LEXER_FACTORY.apply("1 + 2; 3 * ; (4; 5 6 7; 8");
+    var parser = AST_GRAMMAR.parser(lexer, "$", SYNC_TOKENS, "?", diagnostics);
+    assertEquals(List.of("(1 + 2)", "(3 * ?)", "4", "5", "8"), parser.stream(lexer, 0, ";", "$").collect(toList()));
+    assertEquals(List.of("11:12 null ;", "15:16 ) ;", "19:20 ; num"), messages(diagnostics));
+  }
+
+  @Test
+  void sinkFull() {
+    var diagnostics = Diagnostics.<String>create(1);
+    assertEquals("((? * ?) * ?)", parse("(+) * () * )", diagnostics));
+    assertAll(
+        () -> assertEquals(1, diagnostics.size()),
+        () -> assertEquals(3, diagnostics.reportCount()),
+        () -> assertEquals(List.of("1:2 null +"), messages(diagnostics)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> diagnostics.found(1))
+        );
+    diagnostics.clear();
+    assertEquals(0, diagnostics.size());
+    assertEquals(0, diagnostics.reportCount());
+    assertThrows(IndexOutOfBoundsException.class, () -> diagnostics.found(0));
+  }
+
+  @Test
+  void lexerWithoutOffsets() {
+    // a lexer that keeps the default start() and end()
+    var tokens = List.of("(", "num", "num", "num", ")", "+", "num");
+    var values = List.of("(", "1", "2", "3", ")", "+", "4");
+    var lexer = new Lexer<String>() {
+      private int index = -1;
+      private boolean lookhead;
+
+      @Override
+      public String token() { return index < tokens.size()? tokens.get(index): "$"; }
+      @Override
+      public String value() { return index < tokens.size()? values.get(index): null; }
+      @Override
+      public String consume() {
+        if (!lookhead) {
+          index++;
+        }
+        lookhead = false;
+        return token();
+      }
+      @Override
+      public String lookhead() {
+        if (!lookhead) {
+          index++;
+          lookhead = true;
+        }
+        return token();
+      }
+    };
+    var diagnostics = Diagnostics.<String>create(4);
+    assertEquals("(1 + 4)", AST_GRAMMAR.parser(lexer, "$", SYNC_TOKENS, "?", diagnostics).parseExpr(0));
+    assertEquals(1, diagnostics.size());
+    assertEquals("num", diagnostics.found(0));
+  }
+
+  @Test
+  void monitoredGrammar() {
+    var monitored = IntGrammar.create(
+        token -> token.equals("+")? 1: 0,
+        Map.of("num", (IntGrammar.PrefixParselet<String, String>) (p, lexer) -> lexer.value()),
+        Map.of("+", (p, lexer, left) -> left + "+" + p.parseExpr(1)),
+        ParserMonitor.create());
+    var diagnostics = Diagnostics.<String>create(2);
+    assertEquals("1+?", monitored.parser(STRING_LEXER_FACTORY.apply("1 + ;"), "$", SYNC_TOKENS, "?", diagnostics).parseExpr(0));
+    assertEquals(1, diagnostics.size());
+    assertNull(diagnostics.expected(0));
+  }
+
+  @Test
+  void invalidArguments() {
+    var lexer = STRING_LEXER_FACTORY.apply("1");
+    var diagnostics = Diagnostics.<String>create(0);
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> Diagnostics.create(-1)),
+        () -> assertThrows(NullPointerException.class, () -> AST_GRAMMAR.parser(null, "$", SYNC_TOKENS, "?", diagnostics)),
+        () -> assertThrows(NullPointerException.class, () -> AST_GRAMMAR.parser(lexer, null, SYNC_TOKENS, "?", diagnostics)),
+        () -> assertThrows(NullPointerException.class, () -> AST_GRAMMAR.parser(lexer, "$", null, "?", diagnostics)),
+        () -> assertThrows(NullPointerException.class, () -> AST_GRAMMAR.parser(lexer, "$", SYNC_TOKENS, "?", null)),
+        () -> assertThrows(UnsupportedOperationException.class,
+            () -> ((IntGrammar<String, String>) l -> null).parser(lexer, "$", SYNC_TOKENS, "?", diagnostics))
+        );
+  }
+}
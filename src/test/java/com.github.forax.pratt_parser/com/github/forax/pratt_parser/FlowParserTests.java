@@ -0,0 +1,300 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.INT_GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.STRING_LEXER_FACTORY;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class FlowParserTests {
+  private static Flow.Processor<CharBuffer, Integer> processor() {
+    return FlowParser.create(STRING_LEXER_FACTORY, "$", ";", Map.of("(", ")"), lexer -> INT_GRAMMAR.parser(lexer).parseExpr(0));
+  }
+
+  // a publisher that sends its chunks synchronously when they are requested
+  private static final class ChunkPublisher implements Flow.Publisher<CharBuffer> {
+    private final List<String> chunks;
+    private int index;
+    private int requestCount;
+    private boolean cancelled;
+
+    private ChunkPublisher(List<String> chunks) {
+      this.chunks = chunks;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super CharBuffer> subscriber) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          requestCount++;
+          for(var i = 0L; i < n && !cancelled && index <= chunks.size(); i++) {
+            if (index == chunks.size()) {
+              index++;
+              subscriber.onComplete();
+              return;
+            }
+            subscriber.onNext(CharBuffer.wrap(chunks.get(index++)));
+          }
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+  }
+
+  private static final class Collector implements Flow.Subscriber<Integer> {
+    private final long initialRequest;
+    private Flow.Subscription subscription;
+    private final List<Integer> values = new ArrayList<>();
+    private Throwable failure;
+    private boolean completed;
+
+    private Collector(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (initialRequest != 0) {
+        subscription.request(initialRequest);
+      }
+    }
+    @Override
+    public void onNext(Integer item) {
+      values.add(item);
+    }
+    @Override
+    public void onError(Throwable throwable) {
+      failure = throwable;
+    }
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  private static Collector parse(List<String> chunks) {
+    var processor = processor();
+    var collector = new Collector(Long.MAX_VALUE);
+    processor.subscribe(collector);
+    new ChunkPublisher(chunks).subscribe(processor);
+    return collector;
+  }
+
+  private static List<String> split(String text, int chunkSize) {
+    var chunks = new ArrayList<String>();
+    for(var i = 0; i < text.length(); i += chunkSize) {
+      chunks.add(text.substring(i, Math.min(text.length(), i + chunkSize)));
+    }
+    return chunks;
+  }
+
+  @Test
+  void tokensAndExpressionsAcrossChunks() {
+    var text = "12 + 34; (5 +\n 6) * 7;; 8 * 100";
+    for(var chunkSize = 1; chunkSize <= text.length(); chunkSize++) {
+      var collector = parse(split(text, chunkSize));
+      assertEquals(List.of(46, 77, 800), collector.values, "chunk size " + chunkSize);
+      assertTrue(collector.completed);
+      assertNull(collector.failure);
+    }
+  }
+
+  @Test
+  void separatorBetweenBracketsIsNotASeparator() {
+    var collector = parse(List.of("1; (2 ; 3); 4"));
+    assertEquals(List.of(1), collector.values);
+    assertEquals("parsing error at offset 6", collector.failure.getMessage());
+  }
+
+  @Test
+  void emptyText() {
+    var collector = parse(List.of("", " ;; ", ""));
+    assertEquals(List.of(), collector.values);
+    assertTrue(collector.completed);
+  }
+
+  @Test
+  void backpressure() {
+    var processor = processor();
+    var collector = new Collector(1);
+    processor.subscribe(collector);
+    var publisher = new ChunkPublisher(List.of("1; 2; 3; ", "4;"));
+    publisher.subscribe(processor);
+    assertAll(
+        () -> assertEquals(List.of(1), collector.values),
+        () -> assertEquals(1, publisher.requestCount)
+        );
+    collector.subscription.request(2);
+    assertAll(
+        () -> assertEquals(List.of(1, 2, 3), collector.values),
+        () -> assertEquals(1, publisher.requestCount)
+        );
+    // the last separator is only known to be a separator when the text is complete
+    collector.subscription.request(1);
+    assertAll(
+        () -> assertEquals(List.of(1, 2, 3, 4), collector.values),
+        () -> assertEquals(3, publisher.requestCount),
+        () -> assertTrue(collector.completed)
+        );
+  }
+
+  @Test
+  void errorWithTextOffset() {
+    var publisher = new ChunkPublisher(List.of("1 + 2;", " 3 4; 5"));
+    var processor = processor();
+    var collector = new Collector(Long.MAX_VALUE);
+    processor.subscribe(collector);
+    publisher.subscribe(processor);
+    assertAll(
+        () -> assertEquals(List.of(3), collector.values),
+        () -> assertEquals("parsing error num at offset 9 but should be ;", collector.failure.getMessage()),
+        () -> assertTrue(publisher.cancelled),
+        () -> assertFalse(collector.completed)
+        );
+  }
+
+  @Test
+  void errorAtTheEndOfTheText() {
+    var collector = parse(List.of("1;", "2 *"));
+    assertEquals(List.of(1), collector.values);
+    assertEquals("parsing error at offset 5", collector.failure.getMessage());
+    assertTrue(collector.failure.getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  void offsetsInTheWholeText() {
+    var processor = FlowParser.<String, String>create(STRING_LEXER_FACTORY, "$", ";", Map.of(), lexer -> {
+      var token = lexer.consume();
+      return token + "@" + lexer.start() + ":" + lexer.text().subSequence(lexer.start(), lexer.end());
+    });
+    var collector = new ArrayList<String>();
+    processor.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+      @Override
+      public void onNext(String item) {
+        assertFalse(Thread.holdsLock(processor));
+        collector.add(item);
+      }
+      @Override
+      public void onError(Throwable throwable) {
+        collector.add(throwable.toString());
+      }
+      @Override
+      public void onComplete() {
+        assertFalse(Thread.holdsLock(processor));
+        collector.add("complete");
+      }
+    });
+    new ChunkPublisher(List.of("12; 3", "4;  56", ";7")).subscribe(processor);
+    assertEquals(List.of("num@0:12", "num@4:34", "num@9:56", "num@12:7", "complete"), collector);
+  }
+
+  @Test
+  void cancel() {
+    var processor = processor();
+    var collector = new Collector(1);
+    processor.subscribe(collector);
+    var publisher = new ChunkPublisher(List.of("1; 2;"));
+    publisher.subscribe(processor);
+    collector.subscription.cancel();
+    collector.subscription.request(1);
+    assertEquals(List.of(1), collector.values);
+    assertTrue(publisher.cancelled);
+  }
+
+  @Test
+  void asynchronousPublisher() throws Exception {
+    var processor = processor();
+    var future = new CompletableFuture<List<Integer>>();
+    processor.subscribe(new Flow.Subscriber<>() {
+      private final List<Integer> values = new ArrayList<>();
+      private Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+      @Override
+      public void onNext(Integer item) {
+        values.add(item);
+        subscription.request(1);
+      }
+      @Override
+      public void onError(Throwable throwable) {
+        future.completeExceptionally(throwable);
+      }
+      @Override
+      public void onComplete() {
+        future.complete(values);
+      }
+    });
+    try(var publisher = new SubmissionPublisher<CharBuffer>()) {
+      publisher.subscribe(processor);
+      for(var chunk: split("1000 + 1; 2 * (3 + 4); 5;".repeat(100), 7)) {
+        publisher.submit(CharBuffer.wrap(chunk));
+      }
+    }
+    var values = future.get(10, TimeUnit.SECONDS);
+    assertEquals(300, values.size());
+    assertEquals(List.of(1001, 14, 5), values.subList(0, 3));
+  }
+
+  @Test
+  void onlyOneSubscriber() {
+    var processor = processor();
+    processor.subscribe(new Collector(0));
+    var collector = new Collector(0);
+    processor.subscribe(collector);
+    assertTrue(collector.failure instanceof IllegalStateException);
+  }
+
+  @Test
+  void invalidRequest() {
+    var processor = processor();
+    var collector = new Collector(0);
+    processor.subscribe(collector);
+    var publisher = new ChunkPublisher(List.of("1"));
+    publisher.subscribe(processor);
+    collector.subscription.request(0);
+    assertTrue(collector.failure instanceof IllegalArgumentException);
+    assertTrue(publisher.cancelled);
+  }
+
+  @Test
+  void invalidArguments() {
+    Function<Lexer<String>, Integer> parseFunction = lexer -> 0;
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> FlowParser.create(null, "$", ";", Map.of(), parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> FlowParser.create(STRING_LEXER_FACTORY, null, ";", Map.of(), parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> FlowParser.create(STRING_LEXER_FACTORY, "$", null, Map.of(), parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> FlowParser.create(STRING_LEXER_FACTORY, "$", ";", null, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> FlowParser.create(STRING_LEXER_FACTORY, "$", ";", Map.of(), null))
+        );
+  }
+}
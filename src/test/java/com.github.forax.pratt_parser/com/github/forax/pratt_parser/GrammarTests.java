@@ -0,0 +1,91 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.eval;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_NONE;
+import static java.util.Map.entry;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class GrammarTests {
+  @Test
+  void enumTokens() {
+    assertEquals(14, eval("+ 2 + + 3 * - (- 4)"));
+    assertEquals(20, eval("(2 + 3) * 4"));
+    assertEquals(14, eval("2 + 3 * 4"));
+  }
+  
+  @Test
+  void sameGrammarSeveralInputs() {
+    var parser1 = GRAMMAR.parser(LEXER_FACTORY.apply("1 + 2"));
+    var parser2 = GRAMMAR.parser(LEXER_FACTORY.apply("3 * 4"));
+    assertEquals(12, (int) parser2.parseExpr(P_NONE));
+    assertEquals(3, (int) parser1.parseExpr(P_NONE));
+  }
+  
+  @Test
+  void sharedBetweenThreads() {
+    var results = IntStream.range(0, 10_000).parallel()
+        .mapToObj(i -> eval(i + " * 2 + (" + i + ")"))
+        .collect(toList());
+    assertEquals(IntStream.range(0, 10_000).mapToObj(i -> i * 3).collect(toList()), results);
+  }
+  
+  @Test
+  void stringTokens() {
+    Grammar<List<String>, String, Integer> grammar = Grammar.create(
+        Map.of("$", 0, ",", 1)::get,
+        Integer::compareTo,
+        Map.of(
+            "id", (p, lexer) -> new ArrayList<>(List.of(lexer.value()))),
+        Map.of(
+            ",", (p, lexer, left) -> { left.addAll(p.parseExpr(1)); return left; }));
+    var lexer = Lexer.factory("$", entry(",", ","), entry("id", "[a-z]+")).apply("a, b, c");
+    assertEquals(List.of("a", "b", "c"), grammar.parser(lexer).parseExpr(0));
+  }
+  
+  @Test
+  void nullArguments() {
+    assertThrows(NullPointerException.class, () -> Grammar.create(null   , Integer::compareTo, Map.of(), Map.of()));
+    assertThrows(NullPointerException.class, () -> Grammar.create(__ -> 0, null              , Map.of(), Map.of()));
+    assertThrows(NullPointerException.class, () -> Grammar.create(__ -> 0, Integer::compareTo, null    , Map.of()));
+    assertThrows(NullPointerException.class, () -> Grammar.create(__ -> 0, Integer::compareTo, Map.of(), null    ));
+    assertThrows(NullPointerException.class, () -> GRAMMAR.parser(null));
+    assertThrows(NullPointerException.class, () -> GRAMMAR.parser(LEXER_FACTORY.apply("1")).parseExpr(null));
+  }
+  
+  @Test
+  void unknownToken() {
+    Grammar<Integer, String, Integer> grammar = Grammar.create(
+        __ -> 0,
+        Integer::compareTo,
+        Map.of(
+            "b", (p, lexer) -> fail("should not reach here")),
+        Map.of());
+    var lexer = Lexer.factory("$", entry("a", "a")).apply("a");
+    assertThrows(IllegalStateException.class, () -> grammar.parser(lexer).parseExpr(0));
+  }
+  
+  @Test
+  void noSuffix() {
+    Grammar<Integer, String, Integer> grammar = Grammar.create(
+        __ -> 1,
+        Integer::compareTo,
+        Map.of(
+            "a", (p, lexer) -> 1),
+        Map.of());
+    var lexer = Lexer.factory("$", entry("a", "a")).apply("a a");
+    assertThrows(IllegalStateException.class, () -> grammar.parser(lexer).parseExpr(0));
+  }
+}
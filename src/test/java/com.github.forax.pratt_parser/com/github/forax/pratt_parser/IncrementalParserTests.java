@@ -0,0 +1,155 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.AST_GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.STRING_LEXER_FACTORY;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class IncrementalParserTests {
+  private static IncrementalParser<String> parser(String text) {
+    return IncrementalParser.create(text, STRING_LEXER_FACTORY, ";", "$", lexer -> AST_GRAMMAR.parser(lexer).parseExpr(0));
+  }
+
+  @Test
+  void parse() {
+    var parser = parser("1 + 2; 3 * 4;; 5");
+    assertEquals(List.of("(1 + 2)", "(3 * 4)", "5"), parser.expressions());
+    assertEquals("1 + 2; 3 * 4;; 5", parser.text());
+  }
+
+  @Test
+  void offsetsInTheWholeText() {
+    Function<Lexer<String>, String> parseFunction = lexer -> {
+      lexer.lookhead();
+      var start = lexer.start();
+      return lexer.text().charAt(start) + "@" + start + " " + AST_GRAMMAR.parser(lexer).parseExpr(0);
+    };
+    var parser = IncrementalParser.create("1 + 2; 3 * 4; 5", STRING_LEXER_FACTORY, ";", "$", parseFunction);
+    assertEquals(List.of("1@0 (1 + 2)", "3@7 (3 * 4)", "5@14 5"), parser.expressions());
+    parser.edit(14, 1, "6 + 7");
+    assertEquals(List.of("1@0 (1 + 2)", "3@7 (3 * 4)", "6@14 (6 + 7)"), parser.expressions());
+  }
+
+  @Test
+  void editReparsesOnlyTheDamagedExpression() {
+    var parser = parser("1 + 2; 3 * 4; 5 + 6");
+    var before = parser.expressions();
+    parser.edit(7, 1, "30");  // 3 -> 30
+    var after = parser.expressions();
+    assertAll(
+        () -> assertEquals("1 + 2; 30 * 4; 5 + 6", parser.text()),
+        () -> assertEquals(List.of("(1 + 2)", "(30 * 4)", "(5 + 6)"), after),
+        () -> assertSame(before.get(0), after.get(0)),
+        () -> assertNotSame(before.get(1), after.get(1)),
+        () -> assertSame(before.get(2), after.get(2))
+        );
+  }
+
+  @Test
+  void insertAndRemoveSeparators() {
+    var parser = parser("1 + 2 * 3; 4");
+    parser.edit(2, 1, ";");
+    assertEquals(List.of("1", "(2 * 3)", "4"), parser.expressions());
+    parser.edit(2, 1, "*");
+    assertEquals(List.of("((1 * 2) * 3)", "4"), parser.expressions());
+    parser.edit(9, 1, " +");
+    assertEquals("1 * 2 * 3 + 4", parser.text());
+    assertEquals(List.of("(((1 * 2) * 3) + 4)"), parser.expressions());
+  }
+
+  @Test
+  void editAtTheEnds() {
+    var parser = parser("1; 2");
+    parser.edit(0, 0, "7 * ");
+    parser.edit(parser.text().length(), 0, " + 8;");
+    assertEquals(List.of("(7 * 1)", "(2 + 8)"), parser.expressions());
+    parser.edit(0, parser.text().length(), "");
+    assertEquals(List.of(), parser.expressions());
+  }
+
+  @Test
+  void parseErrorLeavesTheDocumentUnchanged() {
+    var parser = parser("1 + 2; 3");
+    var before = parser.expressions();
+    assertThrows(IllegalStateException.class, () -> parser.edit(4, 1, "*"));
+    assertThrows(IllegalStateException.class, () -> parser.edit(0, 0, "("));
+    assertEquals("1 + 2; 3", parser.text());
+    assertSame(before.get(0), parser.expressions().get(0));
+    assertThrows(IllegalStateException.class, () -> parser("1 2"));
+  }
+
+  @Test
+  void sameResultAsFullParse() {
+    var random = new Random(0);
+    var pieces = new String[] { "1", "23", " ", "+", "*", ";", "(", ")", "4" };
+    var parser = parser("1 + 2; 3 * (4 + 5); 6; 7 * 8 + 9");
+    for(var i = 0; i < 2_000; i++) {
+      var text = parser.text();
+      var offset = random.nextInt(text.length() + 1);
+      var removedLength = random.nextInt(Math.min(3, text.length() - offset) + 1);
+      var inserted = pieces[random.nextInt(pieces.length)];
+      var newText = text.substring(0, offset) + inserted + text.substring(offset + removedLength);
+      IncrementalParser<String> expected;
+      try {
+        expected = parser(newText);
+      } catch(IllegalStateException e) {
+        assertThrows(IllegalStateException.class, () -> parser.edit(offset, removedLength, inserted), newText);
+        assertEquals(text, parser.text());
+        continue;
+      }
+      parser.edit(offset, removedLength, inserted);
+      assertEquals(newText, parser.text());
+      assertEquals(expected.expressions(), parser.expressions(), newText);
+    }
+  }
+
+  @Test
+  void editsAllOverALargeDocument() {
+    var numbers = new ArrayList<String>();
+    for(var i = 0; i < 1_000; i++) {
+      numbers.add(String.valueOf(i));
+    }
+    var parser = parser(String.join(" + 1; ", numbers));
+    var random = new Random(0);
+    for(var i = 0; i < 200; i++) {
+      // replace the number of a random expression
+      var index = random.nextInt(numbers.size());
+      var offset = 0;
+      for(var j = 0; j < index; j++) {
+        offset += numbers.get(j).length() + " + 1; ".length();
+      }
+      var number = String.valueOf(random.nextInt(10_000));
+      parser.edit(offset, numbers.get(index).length(), number);
+      numbers.set(index, number);
+      assertEquals(String.join(" + 1; ", numbers), parser.text());
+    }
+    assertEquals(parser(parser.text()).expressions(), parser.expressions());
+  }
+
+  @Test
+  void invalidArguments() {
+    var parser = parser("1 + 2");
+    Function<Lexer<String>, String> parseFunction = lexer -> AST_GRAMMAR.parser(lexer).parseExpr(0);
+    assertAll(
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(-1, 0, "")),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(3, 3, "")),
+        () -> assertThrows(NullPointerException.class, () -> parser.edit(0, 0, null)),
+        () -> assertThrows(NullPointerException.class, () -> IncrementalParser.create(null, STRING_LEXER_FACTORY, ";", "$", parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> IncrementalParser.create("", null, ";", "$", parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> IncrementalParser.create("", STRING_LEXER_FACTORY, null, "$", parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> IncrementalParser.create("", STRING_LEXER_FACTORY, ";", null, parseFunction)),
+        () -> assertThrows(NullPointerException.class, () -> IncrementalParser.create("", STRING_LEXER_FACTORY, ";", "$", null))
+        );
+  }
+}
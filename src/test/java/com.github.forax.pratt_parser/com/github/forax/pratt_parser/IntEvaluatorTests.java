@@ -0,0 +1,115 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.STRING_LEXER_FACTORY;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class IntEvaluatorTests {
+  private static <C> IntGrammar<IntEvaluator<C>, String> grammar(Function<String, IntEvaluator<C>> variableFun) {
+    return IntGrammar.create(
+        token -> token.equals("+") || token.equals("-")? 1: token.equals("*")? 2: 0,
+        Map.of(
+            "-",   (p, lexer) -> IntEvaluator.negate(p.parseExpr(2)),
+            "(",   (p, lexer) -> { var v = p.parseExpr(0); lexer.consume(")"); return v; },
+            "num", (p, lexer) -> IntEvaluator.constant(Integer.parseInt(lexer.value())),
+            "id",  (p, lexer) -> variableFun.apply(lexer.value())),
+        Map.of(
+            "+",   (p, lexer, left) -> IntEvaluator.add(left, p.parseExpr(1)),
+            "-",   (p, lexer, left) -> IntEvaluator.subtract(left, p.parseExpr(1)),
+            "*",   (p, lexer, left) -> IntEvaluator.multiply(left, p.parseExpr(2))));
+  }
+
+  private static IntEvaluator<int[]> compile(String text, List<String> variables) {
+    var grammar = grammar(name -> IntEvaluator.slot(variables.indexOf(name)));
+    return grammar.parser(STRING_LEXER_FACTORY.apply(text)).parseExpr(0);
+  }
+
+  @Test
+  void slots() {
+    var evaluator = compile("x * 2 + y * (3 - z)", List.of("x", "y", "z"));
+    assertAll(
+        () -> assertEquals(2, evaluator.evaluate(new int[] { 1, 0, 0 })),
+        () -> assertEquals(6, evaluator.evaluate(new int[] { 0, 2, 0 })),
+        () -> assertEquals(-4, evaluator.evaluate(new int[] { 0, 1, 7 })),
+        () -> assertEquals(10, evaluator.evaluate(new int[] { 2, 3, 1 }))
+        );
+  }
+
+  @Test
+  void evaluateManyTimes() {
+    var evaluator = compile("- a * a + b - 1", List.of("a", "b"));
+    for(var a = -100; a <= 100; a++) {
+      for(var b = -100; b <= 100; b++) {
+        assertEquals(- a * a + b - 1, evaluator.evaluate(new int[] { a, b }));
+      }
+    }
+  }
+
+  static class Point {
+    final int x;
+    final int y;
+
+    Point(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  @Test
+  void contextObject() {
+    var getters = Map.<String, ToIntFunction<Point>>of("x", p -> p.x, "y", p -> p.y);
+    var grammar = grammar(name -> IntEvaluator.variable(getters.get(name)));
+    var evaluator = grammar.parser(STRING_LEXER_FACTORY.apply("x * x + y * y")).parseExpr(0);
+    assertEquals(25, evaluator.evaluate(new Point(3, 4)));
+    assertEquals(2, evaluator.evaluate(new Point(-1, 1)));
+  }
+
+  @Test
+  void constantsAreFolded() {
+    var evaluator = compile("(2 + 3) * - 4 + x", List.of("x"));
+    assertEquals(-20, evaluator.evaluate(new int[] { 0 }));
+    var counter = new int[] { 0 };
+    var constant = IntEvaluator.binary((a, b) -> { counter[0]++; return a - b; },
+        IntEvaluator.constant(7), IntEvaluator.constant(3));
+    IntEvaluator<Object> unary = IntEvaluator.unary(v -> { counter[0]++; return v * 10; }, constant);
+    assertEquals(2, counter[0]);
+    assertEquals(40, unary.evaluate(null));
+    assertEquals(40, unary.evaluate(null));
+    assertEquals(2, counter[0]);
+  }
+
+  @Test
+  void operators() {
+    IntEvaluator<int[]> x = IntEvaluator.slot(0);
+    var evaluator = IntEvaluator.binary(Math::max, IntEvaluator.unary(Math::abs, x), IntEvaluator.constant(5));
+    assertAll(
+        () -> assertEquals(5, evaluator.evaluate(new int[] { 3 })),
+        () -> assertEquals(7, evaluator.evaluate(new int[] { -7 }))
+        );
+  }
+
+  @Test
+  void invalidArguments() {
+    IntEvaluator<int[]> x = IntEvaluator.slot(0);
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> IntEvaluator.slot(-1)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.variable(null)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.unary(null, x)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.unary(v -> v, null)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.binary(null, x, x)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.negate(null)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.add(x, null)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.subtract(null, x)),
+        () -> assertThrows(NullPointerException.class, () -> IntEvaluator.multiply(x, null))
+        );
+  }
+}
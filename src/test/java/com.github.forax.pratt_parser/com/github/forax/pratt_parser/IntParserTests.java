@@ -0,0 +1,211 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.IntParserTests.Token.*;
+import static java.util.Map.entry;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class IntParserTests {
+  enum Token {
+    PLUS(1), MINUS(0), STAR(2), POW(3), LPAR(0), RPAR(0), NUM(0), EOF(0);
+    
+    final int precedence;
+    
+    Token(int precedence) {
+      this.precedence = precedence;
+    }
+  }
+  
+  @Test
+  void example() {
+    var text = "+ 2 + + 3 * - (- 4)";
+    var lexer = Lexer.factory("$",
+        entry("+",   "\\+"),
+        entry("-",   "\\-"),
+        entry("*",   "\\*"),
+        entry("(",   "\\("),
+        entry(")",   "\\)"),
+        entry("num", "[0-9]+")
+      ).apply(text);
+
+    var precedences = Map.of("+", 1, "*", 2);
+    IntParser<Integer> parser = IntParser.create(lexer, 
+        token -> precedences.getOrDefault(token, 0),
+        Map.of(
+            "+",   p -> p.parseExpr(0),
+            "-",   p -> - p.parseExpr(0),
+            "(",   p -> { int v = p.parseExpr(0); lexer.consume(")"); return v; }, 
+            "num", p -> Integer.parseInt(lexer.value())),
+        Map.of(
+            "+",   (p, left) -> left + p.parseExpr(1),
+            "*",   (p, left) -> left * p.parseExpr(2)));
+
+    int result = parser.parseExpr(0);
+    assertEquals(14, result);
+  }
+  
+  @Test
+  void commaSeperatedList() {
+    var lexer = Lexer.factory("$",
+        entry(",",   ","),
+        entry("id", "[a-z]+")
+      ).apply("a, b, c");
+
+    IntParser<List<String>> parser = IntParser.create(lexer, 
+        token -> token.equals(",")? 1: 0,
+        Map.of(
+            "id", p -> new ArrayList<>(List.of(lexer.value()))),
+        Map.of(
+            ",", (p, left) -> { left.addAll(p.parseExpr(1)); return left; })
+        );
+
+    var result = parser.parseExpr(0);
+    assertEquals(List.of("a", "b", "c"), result);
+  }
+  
+  @Test
+  void nullArguments() {
+    var lexer = Lexer.factory("$", Map.entry("a", "a")).apply("a");
+    assertThrows(NullPointerException.class, () -> IntParser.create(null , __ -> 0, Map.of(), Map.of()));
+    assertThrows(NullPointerException.class, () -> IntParser.create(lexer, null   , Map.of(), Map.of()));
+    assertThrows(NullPointerException.class, () -> IntParser.create(lexer, __ -> 0, null    , Map.of()));
+    assertThrows(NullPointerException.class, () -> IntParser.create(lexer, __ -> 0, Map.of(), null    ));
+    assertThrows(NullPointerException.class, () -> IntGrammar.create(null   , Map.of(), Map.of()));
+    assertThrows(NullPointerException.class, () -> IntGrammar.create(__ -> 0, null    , Map.of()));
+    assertThrows(NullPointerException.class, () -> IntGrammar.create(__ -> 0, Map.of(), null    ));
+  }
+  
+  @Test
+  void unknownToken() {
+    var lexer = Lexer.factory("$", entry("a", "a")).apply("a");
+    IntParser<Integer> parser = IntParser.create(lexer, 
+        __ -> 0,
+        Map.of(
+            "b",   p -> fail("should not reach here")),
+        Map.of()
+        );
+    assertThrows(IllegalStateException.class, () -> parser.parseExpr(0));
+  }
+  
+  private static final Function<CharSequence, Lexer<Token>> LEXER_FACTORY = Lexer.dfaFactory(EOF,
+      entry(PLUS,  "\\+"),
+      entry(MINUS, "\\-"),
+      entry(POW,   "\\*\\*"),
+      entry(STAR,  "\\*"),
+      entry(LPAR,  "\\("),
+      entry(RPAR,  "\\)"),
+      entry(NUM,   "[0-9]+"));
+  
+  private static final Map<Token, IntGrammar.PrefixParselet<Integer, Token>> PREFIXES = Map.of(
+      PLUS,  (p, lexer) -> p.parseExpr(0),
+      MINUS, (p, lexer) -> - p.parseExpr(0),
+      LPAR,  (p, lexer) -> { int v = p.parseExpr(0); lexer.consume(RPAR); return v; }, 
+      NUM,   (p, lexer) -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10));
+  private static final Map<Token, IntGrammar.SuffixParselet<Integer, Token>> SUFFIXES = Map.of(
+      PLUS,  (p, lexer, left) -> left + p.parseExpr(PLUS.precedence),
+      STAR,  (p, lexer, left) -> left * p.parseExpr(STAR.precedence),
+      POW,   (p, lexer, left) -> (int) Math.pow(left, p.parseExpr(POW.precedence - 1)));  // right associative
+
+  private static final IntGrammar<Integer, Token> GRAMMAR = IntGrammar.create(token -> token.precedence, PREFIXES, SUFFIXES);
+  private static final IntGrammar<Integer, Token> COMPILED_GRAMMAR = IntGrammar.compile(token -> token.precedence, PREFIXES, SUFFIXES);
+  
+  private static int eval(String text) {
+    return GRAMMAR.parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+  }
+  
+  @Test
+  void grammar() {
+    assertEquals(14, eval("+ 2 + + 3 * - (- 4)"));
+    assertEquals(20, eval("(2 + 3) * 4"));
+    assertEquals(14, eval("2 + 3 * 4"));
+    assertEquals(512, eval("2 ** 3 ** 2"));
+    assertEquals(128, eval("2 * 2 ** 3 * 8"));
+  }
+  
+  @Test
+  void grammarSharedBetweenThreads() {
+    var results = IntStream.range(0, 10_000).parallel()
+        .mapToObj(i -> eval(i + " * 2 + (" + i + ")"))
+        .collect(toList());
+    assertEquals(IntStream.range(0, 10_000).mapToObj(i -> i * 3).collect(toList()), results);
+  }
+  
+  @Test
+  void grammarNoPrefix() {
+    assertThrows(IllegalStateException.class, () -> eval("* 2"));
+  }
+  
+  private static int evalCompiled(String text) {
+    return COMPILED_GRAMMAR.parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+  }
+  
+  @Test
+  void compiledGrammar() {
+    assertEquals(14, evalCompiled("+ 2 + + 3 * - (- 4)"));
+    assertEquals(20, evalCompiled("(2 + 3) * 4"));
+    assertEquals(14, evalCompiled("2 + 3 * 4"));
+    assertEquals(512, evalCompiled("2 ** 3 ** 2"));
+    assertEquals(128, evalCompiled("2 * 2 ** 3 * 8"));
+  }
+  
+  @Test
+  void compiledGrammarSameResultAsGrammar() {
+    for(var text: List.of("1", "((1))", "1 + 2 * 3 ** 2 ** 1 * 4 + 5", "- 1 * (2 + - 3) ** 2", "1 * 2 + 3 * 4 ** 0")) {
+      assertEquals(eval(text), evalCompiled(text), text);
+    }
+  }
+  
+  @Test
+  void compiledGrammarSharedBetweenThreads() {
+    var results = IntStream.range(0, 10_000).parallel()
+        .mapToObj(i -> evalCompiled(i + " * 2 + (" + i + ")"))
+        .collect(toList());
+    assertEquals(IntStream.range(0, 10_000).mapToObj(i -> i * 3).collect(toList()), results);
+  }
+  
+  @Test
+  void compiledGrammarErrors() {
+    assertThrows(IllegalStateException.class, () -> evalCompiled("* 2"));
+    assertThrows(IllegalStateException.class, () -> evalCompiled("(2 + 3"));
+    assertThrows(IllegalStateException.class, () -> COMPILED_GRAMMAR.parser(LEXER_FACTORY.apply("2 2")).parseExpr(-1));
+    assertThrows(NullPointerException.class, () -> COMPILED_GRAMMAR.parser(null));
+  }
+  
+  @Test
+  void compiledGrammarNotEnumTokens() {
+    var lexer = Lexer.factory("$", entry("+", "\\+"), entry("num", "[0-9]+")).apply("1 + 2 + 3");
+    IntGrammar<Integer, String> grammar = IntGrammar.compile(
+        token -> token.equals("+")? 1: 0,
+        Map.of("num", (p, l) -> Integer.parseInt(l.value())),
+        Map.of("+",   (p, l, left) -> left + p.parseExpr(1)));
+    assertEquals(6, (int) grammar.parser(lexer).parseExpr(0));
+  }
+  
+  @Test
+  void streamFromAReader() {
+    var lexer = Lexer.readerFactory(16, "$",
+        entry("\\n", "\n"),
+        entry("+",   "\\+"),
+        entry("num", "[0-9]+")
+      ).apply(new StringReader("1 + 2\n\n3\n4 + 5 + 6\n"));
+    IntParser<Integer> parser = IntParser.create(lexer, 
+        token -> token.equals("+")? 1: 0,
+        Map.of(
+            "num", p -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10)),
+        Map.of(
+            "+",   (p, left) -> left + p.parseExpr(1)));
+    assertEquals(List.of(3, 3, 15), parser.stream(lexer, 0, "\\n", "$").collect(toList()));
+  }
+}
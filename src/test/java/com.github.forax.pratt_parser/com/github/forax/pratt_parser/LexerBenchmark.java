@@ -0,0 +1,100 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Main.Token.*;
+import static java.util.Map.entry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.forax.pratt_parser.BenchmarkInputs.Shape;
+import com.github.forax.pratt_parser.Main.Token;
+
+/**
+ * Measures the number of tokens per second of {@link Lexer#factory(Object, java.util.Map.Entry...)}
+ * and {@link Lexer#dfaFactory(Object, java.util.Map.Entry...)}.
+ * 
+ * The primary score is the number of texts lexed per second, the secondary score {@code tokens}
+ * is the number of tokens per second. Run with the GC profiler ({@code -prof gc}) to get
+ * the bytes allocated per text ({@code gc.alloc.rate.norm}),
+ * the bytes allocated per token are {@code gc.alloc.rate.norm * score / tokens}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+  @Param({"10B", "10KB", "10MB"})
+  public String size;
+  
+  @Param({"SHALLOW", "NESTED"})
+  public Shape shape;
+  
+  private String text;
+  private Function<CharSequence, Lexer<Token>> factory;
+  private Function<CharSequence, Lexer<Token>> dfaFactory;
+  
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class TokenCounter {
+    public long tokens;
+    
+    @Setup(Level.Iteration)
+    public void reset() {
+      tokens = 0;
+    }
+  }
+  
+  @Setup
+  public void setup() {
+    text = BenchmarkInputs.generate(BenchmarkInputs.parseSize(size), shape);
+    factory = Lexer.factory(EOF,
+        entry(PLUS,  "\\+"),
+        entry(MINUS, "\\-"),
+        entry(STAR,  "\\*"),
+        entry(LPAR,  "\\("),
+        entry(RPAR,  "\\)"),
+        entry(NUM,   "[0-9]+"));
+    dfaFactory = Lexer.dfaFactory(EOF,
+        entry(PLUS,  "\\+"),
+        entry(MINUS, "\\-"),
+        entry(STAR,  "\\*"),
+        entry(LPAR,  "\\("),
+        entry(RPAR,  "\\)"),
+        entry(NUM,   "[0-9]+"));
+  }
+  
+  private static int count(Lexer<Token> lexer, TokenCounter counter) {
+    var count = 0;
+    while(lexer.consume() != EOF) {
+      count++;
+    }
+    counter.tokens += count;
+    return count;
+  }
+  
+  @Benchmark
+  public int lex(TokenCounter counter) {
+    return count(factory.apply(text), counter);
+  }
+  
+  @Benchmark
+  public int lexDfa(TokenCounter counter) {
+    return count(dfaFactory.apply(text), counter);
+  }
+}
@@ -3,9 +3,11 @@ package com.github.forax.pratt_parser;
 import static java.util.Map.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -78,4 +80,165 @@ class LexerTests {
     assertEquals("goto", lexer.value());
     lexer.consume("$");
   }
+  
+  @Test
+  void offsets() {
+    var factory = Lexer.factory("$", entry("id", "[a-z]+"), entry("num", "[0-9]+"));
+    var text = "foo 42";
+    var lexer = factory.apply(text);
+    assertSame(text, lexer.text());
+    assertEquals(-1, lexer.start());
+    assertEquals(-1, lexer.end());
+    lexer.consume("id");
+    assertEquals(0, lexer.start());
+    assertEquals(3, lexer.end());
+    assertEquals("num", lexer.lookhead());
+    assertEquals(4, lexer.start());
+    assertEquals(6, lexer.end());
+    lexer.consume("num");
+    assertEquals(42, Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10));
+    assertEquals("42", lexer.value());
+    lexer.consume("$");
+    assertEquals(-1, lexer.start());
+    assertEquals(-1, lexer.end());
+    assertNull(lexer.value());
+  }
+  
+  @Test
+  void reset() {
+    var lexer = Lexer.factory("$", entry("id", "[a-z]+"), entry("num", "[0-9]+")).apply("foo 42");
+    lexer.consume("id");
+    assertEquals("num", lexer.lookhead());
+    lexer.reset("12 bar");
+    assertNull(lexer.token());
+    assertEquals(-1, lexer.start());
+    lexer.consume("num");
+    assertEquals("12", lexer.value());
+    lexer.consume("id");
+    assertEquals("bar", lexer.value());
+    lexer.consume("$");
+    lexer.reset("baz");
+    lexer.consume("id");
+    assertEquals("baz", lexer.value());
+    assertThrows(NullPointerException.class, () -> lexer.reset(null));
+  }
+
+  @Test
+  void defaultOffsets() {
+    // a lexer that only implements the abstract methods
+    var lexer = new Lexer<String>() {
+      @Override
+      public String token() { return "$"; }
+      @Override
+      public String value() { return null; }
+      @Override
+      public String consume() { return "$"; }
+      @Override
+      public String lookhead() { return "$"; }
+    };
+    assertEquals(-1, lexer.start());
+    assertEquals(-1, lexer.end());
+    assertThrows(UnsupportedOperationException.class, lexer::text);
+  }
+
+  @Test
+  void literals() {
+    assertEquals("+", LiteralTrie.literal("\\+"));
+    assertEquals("goto", LiteralTrie.literal("goto"));
+    assertEquals("(", LiteralTrie.literal("\\("));
+    assertNull(LiteralTrie.literal("[0-9]+"));
+    assertNull(LiteralTrie.literal("\\d"));
+    assertNull(LiteralTrie.literal("a|b"));
+    assertNull(LiteralTrie.literal(""));
+  }
+  
+  @Test
+  void matchFirstLiteralEvenIfShorter() {
+    var lexer = Lexer.factory("$", entry("a", "a"), entry("ab", "ab"), entry("id", "[a-z]+")).apply("ab b");
+    lexer.consume("a");
+    lexer.consume("id");
+    assertEquals("b", lexer.value());
+    lexer.consume("id");
+    assertEquals(3, lexer.start());
+    lexer.consume("$");
+  }
+  
+  @Test
+  void matchLiteralsWithoutRegex() {
+    var lexer = Lexer.factory("$", entry("+", "\\+"), entry("+=", "\\+="), entry("(", "\\(")).apply(" +=( + ");
+    lexer.consume("+");
+    assertEquals(1, lexer.start());
+    assertEquals(2, lexer.end());
+    lexer.consume("(");
+    lexer.consume("+");
+    assertEquals(5, lexer.start());
+    lexer.consume("$");
+  }
+  
+  @Test
+  void sameTokensAsRegex() {
+    // the same entries, but the literals are hidden in a group so they are matched by the regex engine
+    var entries = new String[][] {
+      { "goto", "goto" }, { "id", "[a-z]+" }, { "+", "\\+" }, { "++", "\\+\\+" },
+      { "num", "[0-9]+" }, { "dot", "\\." }, { "is", "is" }
+    };
+    @SuppressWarnings("unchecked")
+    Map.Entry<String, String>[] literalEntries = (Map.Entry<String, String>[]) new Map.Entry<?, ?>[entries.length];
+    @SuppressWarnings("unchecked")
+    Map.Entry<String, String>[] regexEntries = (Map.Entry<String, String>[]) new Map.Entry<?, ?>[entries.length];
+    for(var i = 0; i < entries.length; i++) {
+      literalEntries[i] = entry(entries[i][0], entries[i][1]);
+      regexEntries[i] = entry(entries[i][0], "(?:" + entries[i][1] + ")");
+    }
+    var random = new Random(0);
+    var pieces = new String[] { "goto", "is", "a", "+", "++", "1", "23", ".", " ", "!", "\u00e9" };
+    for(var i = 0; i < 200; i++) {
+      var builder = new StringBuilder();
+      for(var j = random.nextInt(20); j > 0; j--) {
+        builder.append(pieces[random.nextInt(pieces.length)]);
+      }
+      var text = builder.toString();
+      var lexer = Lexer.factory("$", literalEntries).apply(text);
+      var expected = Lexer.factory("$", regexEntries).apply(text);
+      String token;
+      do {
+        token = lexer.consume();
+        assertEquals(expected.consume(), token, text);
+        assertEquals(expected.start(), lexer.start(), text);
+        assertEquals(expected.end(), lexer.end(), text);
+      } while(!token.equals("$"));
+    }
+  }
+  
+  @Test
+  void regexWithAGroup() {
+    var lexer = Lexer.factory("$", entry("+", "\\+"), entry("num", "([0-9])+"), entry("dot", "\\.")).apply("12.+");
+    lexer.consume("num");
+    lexer.consume("dot");
+    lexer.consume("+");
+    lexer.consume("$");
+  }
+  
+  @Test
+  void regexesWithNestedGroupsWithoutLiteral() {
+    var lexer = Lexer.factory("$", entry("num", "(([0-9])+)"), entry("id", "([a-z])+"), entry("dot", "[.]")).apply("12.ab 3");
+    lexer.consume("num");
+    lexer.consume("dot");
+    lexer.consume("id");
+    assertEquals("ab", lexer.value());
+    lexer.consume("num");
+    lexer.consume("$");
+  }
+
+  @Test
+  void emptyRegexMatches() {
+    var lexer = Lexer.factory("$", entry("+", "\\+"), entry("b", "b*")).apply("+a");
+    var expected = Lexer.factory("$", entry("+", "(?:\\+)"), entry("b", "b*")).apply("+a");
+    String token;
+    do {
+      token = lexer.consume();
+      assertEquals(expected.consume(), token);
+      assertEquals(expected.start(), lexer.start());
+    } while(!token.equals("$"));
+  }
 }
@@ -0,0 +1,125 @@
+package com.github.forax.pratt_parser;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class MappedInputTests {
+  private interface IOConsumer<T> {
+    void accept(T t) throws IOException;
+  }
+
+  private static void withFile(String content, IOConsumer<Path> consumer) throws IOException {
+    var path = Files.createTempFile("mapped", ".txt");
+    try {
+      Files.write(path, content.getBytes(StandardCharsets.ISO_8859_1));
+      consumer.accept(path);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private static List<String> tokens(CharSequence text) {
+    var lexer = Lexer.factory("$", entry("+", "\\+"), entry("num", "[0-9]+"), entry("id", "[a-z\u00e9]+")).apply(text);
+    var tokens = new ArrayList<String>();
+    String token;
+    while(!(token = lexer.consume()).equals("$")) {
+      tokens.add(token + ':' + lexer.value() + '@' + lexer.start());
+    }
+    return tokens;
+  }
+
+  @Test
+  void map() throws IOException {
+    var content = "foo + 12 + caf\u00e9";
+    withFile(content, path -> {
+      var text = MappedInput.map(path);
+      assertAll(
+          () -> assertEquals(content.length(), text.length()),
+          () -> assertEquals('\u00e9', text.charAt(14)),
+          () -> assertEquals(content, text.toString()),
+          () -> assertEquals("12", text.subSequence(6, 8).toString()),
+          () -> assertEquals(tokens(content), tokens(text))
+          );
+    });
+  }
+
+  @Test
+  void mapEmptyFile() throws IOException {
+    withFile("", path -> {
+      var text = MappedInput.map(path);
+      assertEquals(0, text.length());
+      assertEquals("", text.toString());
+      assertEquals(List.of(), tokens(text));
+    });
+  }
+
+  @Test
+  void mapSeveralWindows() throws IOException {
+    var builder = new StringBuilder();
+    for(var i = 0; i < 100; i++) {
+      builder.append(i).append(" + abc");
+    }
+    var content = builder.toString();
+    withFile(content, path -> {
+      try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        var text = MappedCharSequence.map(channel, 3, content.length() - 3, 4);  // windows of 16 bytes
+        var expected = content.substring(3);
+        assertAll(
+            () -> assertEquals(expected, text.toString()),
+            () -> assertEquals(expected.substring(10, 50), text.subSequence(10, 50).toString()),
+            () -> assertEquals(expected.substring(20, 21), text.subSequence(10, 50).subSequence(10, 11).toString()),
+            () -> assertEquals(tokens(expected), tokens(text)),
+            () -> assertEquals(tokens(expected), tokens(text.toString()))
+            );
+      }
+    });
+  }
+
+  @Test
+  void mapARegionInTheMiddle() throws IOException {
+    var content = "1 + 2 + 3 + 4 + 5 + 6 + 42 + xyz + 7 + 8 + 9";
+    withFile(content, path -> {
+      try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        // the region starts in the second window of 16 bytes and ends before the end of the file
+        var position = content.indexOf("42");
+        var text = MappedCharSequence.map(channel, position, "42 + xyz".length(), 4);
+        assertAll(
+            () -> assertEquals("42 + xyz", text.toString()),
+            () -> assertEquals('x', text.charAt(5)),
+            () -> assertEquals(List.of("num:42@0", "+:+@3", "id:xyz@5"), tokens(text))
+            );
+      }
+    });
+  }
+
+  @Test
+  void invalidArguments() throws IOException {
+    withFile("1", path -> {
+      try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        var text = MappedInput.map(channel, 0, 1);
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> MappedInput.map(null)),
+            () -> assertThrows(NullPointerException.class, () -> MappedInput.map(null, 0, 1)),
+            () -> assertThrows(IllegalArgumentException.class, () -> MappedInput.map(channel, -1, 1)),
+            () -> assertThrows(IllegalArgumentException.class, () -> MappedInput.map(channel, 0, -1)),
+            () -> assertThrows(IndexOutOfBoundsException.class, () -> text.charAt(1)),
+            () -> assertThrows(IndexOutOfBoundsException.class, () -> text.subSequence(0, 2))
+            );
+      }
+    });
+  }
+}
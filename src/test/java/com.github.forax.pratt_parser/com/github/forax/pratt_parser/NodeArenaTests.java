@@ -0,0 +1,164 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.Token.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.forax.pratt_parser.Arithmetic.Token;
+
+@SuppressWarnings("static-method")
+class NodeArenaTests {
+  private static IntGrammar<NodeArena<Token>, Token> grammar(NodeArena<Token> arena) {
+    return IntGrammar.create(
+        token -> token == PLUS? 1: token == STAR? 2: 0,
+        Map.of(
+            PLUS,  (p, lexer) -> { var start = lexer.start(); var end = lexer.end(); p.parseExpr(0); return arena.node(PLUS, start, end, 1); },
+            MINUS, (p, lexer) -> { var start = lexer.start(); var end = lexer.end(); p.parseExpr(0); return arena.node(MINUS, start, end, 1); },
+            LPAR,  (p, lexer) -> { var expr = p.parseExpr(0); lexer.consume(RPAR); return expr; },
+            NUM,   (p, lexer) -> arena.node(NUM, lexer.start(), lexer.end(), 0)),
+        Map.of(
+            PLUS,  (p, lexer, left) -> { var start = lexer.start(); var end = lexer.end(); p.parseExpr(1); return arena.node(PLUS, start, end, 2); },
+            STAR,  (p, lexer, left) -> { var start = lexer.start(); var end = lexer.end(); p.parseExpr(2); return arena.node(STAR, start, end, 2); }));
+  }
+
+  // the nodes are in post order, so the children are evaluated before their parent
+  private static int evaluate(NodeArena<Token> arena, CharSequence text) {
+    var stack = new int[arena.size()];
+    var top = 0;
+    for(var node = 0; node < arena.size(); node++) {
+      switch(arena.kind(node)) {
+      case NUM:
+        stack[top++] = Integer.parseInt(text.subSequence(arena.start(node), arena.end(node)).toString());
+        break;
+      case MINUS:
+        stack[top - 1] = -stack[top - 1];
+        break;
+      case PLUS:
+        if (arena.childCount(node) == 2) {
+          top--;
+          stack[top - 1] += stack[top];
+        }
+        break;
+      case STAR:
+        top--;
+        stack[top - 1] *= stack[top];
+        break;
+      default:
+        throw new AssertionError();
+      }
+    }
+    return stack[top - 1];
+  }
+
+  private static String toString(NodeArena.Cursor<Token> cursor) {
+    var builder = new StringBuilder().append(cursor.kind());
+    if (cursor.firstChild()) {
+      builder.append('(');
+      var separator = "";
+      do {
+        builder.append(separator).append(toString(cursor));
+        separator = " ";
+      } while(cursor.nextSibling());
+      cursor.parent();
+      builder.append(')');
+    }
+    return builder.toString();
+  }
+
+  @Test
+  void evaluateInPostOrder() {
+    var text = "+ 2 + + 3 * - (- 4)";
+    var arena = NodeArena.<Token>create(0);
+    grammar(arena).parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+    assertEquals(9, arena.size());
+    assertEquals(14, evaluate(arena, text));
+  }
+
+  @Test
+  void cursor() {
+    var text = "1 + 2 * 3 + 4";
+    var arena = NodeArena.<Token>create(16);
+    grammar(arena).parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+    var root = arena.root();
+    var cursor = arena.cursor(root);
+    assertAll(
+        () -> assertEquals(arena.size() - 1, root),
+        () -> assertEquals(PLUS, cursor.kind()),
+        () -> assertEquals(10, cursor.start()),
+        () -> assertEquals(11, cursor.end()),
+        () -> assertEquals(2, cursor.childCount()),
+        () -> assertFalse(cursor.parent()),
+        () -> assertFalse(cursor.nextSibling()),
+        () -> assertEquals(root, cursor.node()),
+        () -> assertEquals("PLUS(PLUS(NUM STAR(NUM NUM)) NUM)", toString(cursor)),
+        () -> assertEquals(root, cursor.node())
+        );
+  }
+
+  @Test
+  void links() {
+    var arena = NodeArena.<String>create(2);
+    arena.node("a", 0, 1, 0).node("b", 2, 3, 0).node("c", 4, 5, 0).node("f", 6, 7, 3);
+    assertAll(
+        () -> assertEquals(4, arena.size()),
+        () -> assertEquals(3, arena.root()),
+        () -> assertEquals("f", arena.kind(3)),
+        () -> assertEquals(0, arena.firstChild(3)),
+        () -> assertEquals(1, arena.nextSibling(0)),
+        () -> assertEquals(2, arena.nextSibling(1)),
+        () -> assertEquals(-1, arena.nextSibling(2)),
+        () -> assertEquals(3, arena.parent(1)),
+        () -> assertEquals(-1, arena.parent(3)),
+        () -> assertEquals(-1, arena.firstChild(2)),
+        () -> assertEquals(6, arena.start(3)),
+        () -> assertEquals(7, arena.end(3))
+        );
+  }
+
+  @Test
+  void clearAndReuse() {
+    var arena = NodeArena.<Token>create(4);
+    var parser = grammar(arena).parser(LEXER_FACTORY.apply("1 + 2"));
+    parser.parseExpr(0);
+    assertEquals(3, arena.size());
+    arena.clear();
+    assertEquals(0, arena.size());
+    assertEquals(-1, arena.root());
+    var text = "3 * (4 + 5)";
+    grammar(arena).parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+    assertEquals(27, evaluate(arena, text));
+  }
+
+  @Test
+  void largeExpression() {
+    var text = "1" + " + 1".repeat(100_000);
+    var arena = NodeArena.<Token>create(0);
+    grammar(arena).parser(LEXER_FACTORY.apply(text)).parseExpr(0);
+    assertEquals(200_001, arena.size());
+    assertEquals(100_001, evaluate(arena, text));
+    assertTrue(arena.cursor(arena.root()).firstChild());
+  }
+
+  @Test
+  void invalidArguments() {
+    var arena = NodeArena.<String>create(0);
+    arena.node("a", 0, 1, 0);
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> NodeArena.create(-1)),
+        () -> assertThrows(NullPointerException.class, () -> arena.node(null, 0, 0, 0)),
+        () -> assertThrows(IllegalArgumentException.class, () -> arena.node("b", 0, 0, -1)),
+        () -> assertThrows(IllegalStateException.class, () -> arena.node("b", 0, 0, 2)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> arena.kind(1)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> arena.start(-1)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> arena.cursor(1))
+        );
+  }
+}
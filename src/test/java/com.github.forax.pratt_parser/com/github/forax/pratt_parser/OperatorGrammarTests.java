@@ -0,0 +1,170 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.Token.*;
+import static java.util.Map.entry;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.forax.pratt_parser.Arithmetic.Token;
+import com.github.forax.pratt_parser.OperatorGrammar.Prefix;
+import com.github.forax.pratt_parser.OperatorGrammar.Suffix;
+
+@SuppressWarnings("static-method")
+class OperatorGrammarTests {
+  private static final OperatorGrammar<Integer, Token> GRAMMAR = OperatorGrammar.create(
+      Map.of(
+          PLUS,  Prefix.operator(0, v -> v),
+          MINUS, Prefix.operator(0, v -> -v),
+          LPAR,  Prefix.group(0, RPAR),
+          NUM,   Prefix.atom(lexer -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10))),
+      Map.of(
+          PLUS,  Suffix.infix(1, (a, b) -> a + b),
+          STAR,  Suffix.infix(2, (a, b) -> a * b),
+          POW,   Suffix.infixRight(3, (a, b) -> (int) Math.pow(a, b))));
+
+  private static int eval(String text) {
+    return GRAMMAR.parser(LEXER_FACTORY.apply(text), 1_000).parseExpr(0);
+  }
+
+  @Test
+  void evaluate() {
+    assertEquals(14, eval("+ 2 + + 3 * - (- 4)"));
+    assertEquals(20, eval("(2 + 3) * 4"));
+    assertEquals(14, eval("2 + 3 * 4"));
+    assertEquals(512, eval("2 ** 3 ** 2"));
+    assertEquals(128, eval("2 * 2 ** 3 * 8"));
+  }
+
+  private static final Function<CharSequence, Lexer<String>> AST_LEXER_FACTORY = Lexer.dfaFactory("$",
+      entry("+",  "\\+"),
+      entry("-",  "\\-"),
+      entry("^",  "\\^"),
+      entry("*",  "\\*"),
+      entry("!",  "!"),
+      entry("(",  "\\("),
+      entry(")",  "\\)"),
+      entry("id", "[a-z]+"));
+
+  private static final OperatorGrammar<String, String> AST_GRAMMAR = OperatorGrammar.create(
+      Map.of(
+          "-",  Prefix.operator(3, v -> "(-" + v + ")"),
+          "(",  Prefix.group(0, ")"),
+          "id", Prefix.atom(Lexer::value)),
+      Map.of(
+          "+",  Suffix.infix(1, (a, b) -> "(" + a + " + " + b + ")"),
+          "*",  Suffix.infix(2, (a, b) -> "(" + a + " * " + b + ")"),
+          "^",  Suffix.infixRight(4, (a, b) -> "(" + a + " ^ " + b + ")"),
+          "!",  Suffix.postfix(5, v -> "(" + v + "!)")));
+
+  private static String ast(String text) {
+    return AST_GRAMMAR.parser(AST_LEXER_FACTORY.apply(text), 1_000).parseExpr(0);
+  }
+
+  @Test
+  void ast() {
+    assertAll(
+        () -> assertEquals("((a + b) + c)", ast("a + b + c")),
+        () -> assertEquals("(a ^ (b ^ c))", ast("a ^ b ^ c")),
+        () -> assertEquals("(a + (b * c))", ast("a + b * c")),
+        () -> assertEquals("((-a) * b)", ast("- a * b")),
+        () -> assertEquals("(-(a ^ b))", ast("- a ^ b")),
+        () -> assertEquals("((a!) ^ (b!))", ast("a ! ^ b !")),
+        () -> assertEquals("((a + b) * c)", ast("(a + b) * c"))
+        );
+  }
+
+  @Test
+  void sameResultAsRecursiveParser() {
+    var recursive = AST_GRAMMAR.toIntGrammar();
+    var texts = List.of(
+        "a", "a + b * c ^ d ^ e ! * f + g", "- - a ! ^ - b * (c + - d) !",
+        "((a)) * (b + (c * (d ^ (e))))", "a * b + c * d ^ e + f !", "- (a + b) ^ c ^ - d * e");
+    for(var text: texts) {
+      assertEquals(recursive.parser(AST_LEXER_FACTORY.apply(text)).parseExpr(0), ast(text), text);
+    }
+  }
+
+  @Test
+  void deeplyNestedGroups() {
+    var depth = 100_000;
+    var text = "(".repeat(depth) + "1" + " + 1)".repeat(depth);
+    assertEquals(depth + 1, (int) GRAMMAR.parser(LEXER_FACTORY.apply(text), Integer.MAX_VALUE).parseExpr(0));
+  }
+
+  @Test
+  void deeplyNestedOperators() {
+    var depth = 100_000;
+    assertEquals(1, (int) GRAMMAR.parser(LEXER_FACTORY.apply("- ".repeat(depth) + "1"), Integer.MAX_VALUE).parseExpr(0));
+    assertEquals(1, (int) GRAMMAR.parser(LEXER_FACTORY.apply("1 ** ".repeat(depth) + "1"), Integer.MAX_VALUE).parseExpr(0));
+  }
+
+  @Test
+  void maxDepth() {
+    var parser = GRAMMAR.parser(LEXER_FACTORY.apply("((((1))))"), 4);
+    assertThrows(IllegalStateException.class, () -> parser.parseExpr(0));
+    assertEquals(1, (int) GRAMMAR.parser(LEXER_FACTORY.apply("((((1))))"), 5).parseExpr(0));
+  }
+
+  @Test
+  void parseErrors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> eval("* 2")),
+        () -> assertThrows(IllegalStateException.class, () -> eval("(2 + 3")),
+        () -> assertThrows(IllegalStateException.class, () -> eval("2 +"))
+        );
+  }
+
+  @Test
+  void parserReusedAfterAnError() {
+    var lexer = LEXER_FACTORY.apply("1 + (2 * (3 + )");
+    var parser = GRAMMAR.parser(lexer, 1_000);
+    assertThrows(IllegalStateException.class, () -> parser.parseExpr(0));
+    lexer.reset("(1 + 2) * 3");
+    assertEquals(9, (int) parser.parseExpr(0));
+  }
+
+  @Test
+  void reuseParserAfterReset() {
+    var lexer = LEXER_FACTORY.apply("1 + 2");
+    var parser = GRAMMAR.parser(lexer, 1_000);
+    assertEquals(3, (int) parser.parseExpr(0));
+    lexer.reset("(3 * 4)");
+    assertEquals(12, (int) parser.parseExpr(0));
+  }
+
+  @Test
+  void stream() {
+    var lexer = Lexer.dfaFactory("$",
+        entry(";",   ";"),
+        entry("+",   "\\+"),
+        entry("num", "[0-9]+")
+      ).apply("1 + 2; 3; 4 + 5 + 6");
+    var grammar = OperatorGrammar.<Integer, String>create(
+        Map.of("num", Prefix.atom(l -> Integer.parseInt(l.value()))),
+        Map.of("+", Suffix.infix(1, Integer::sum)));
+    assertEquals(List.of(3, 3, 15), grammar.parser(lexer, 100).stream(lexer, 0, ";", "$").collect(toList()));
+  }
+
+  @Test
+  void invalidArguments() {
+    var lexer = LEXER_FACTORY.apply("1");
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> OperatorGrammar.create(null, Map.of())),
+        () -> assertThrows(NullPointerException.class, () -> OperatorGrammar.create(Map.of(), null)),
+        () -> assertThrows(NullPointerException.class, () -> GRAMMAR.parser(null, 10)),
+        () -> assertThrows(IllegalArgumentException.class, () -> GRAMMAR.parser(lexer, 0)),
+        () -> assertThrows(NullPointerException.class, () -> Prefix.atom(null)),
+        () -> assertThrows(NullPointerException.class, () -> Prefix.group(0, null)),
+        () -> assertThrows(IllegalArgumentException.class, () -> Suffix.infixRight(Integer.MIN_VALUE, Integer::sum))
+        );
+  }
+}
@@ -0,0 +1,119 @@
+package com.github.forax.pratt_parser;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+
+@SuppressWarnings("static-method")
+class ParseCacheTests {
+  @Test
+  void hitsAndMisses() {
+    var calls = new AtomicInteger();
+    var cache = ParseCache.create(10, text -> { calls.incrementAndGet(); return new ArrayList<>(); });
+    var list = cache.parse("1 + 2");
+    assertSame(list, cache.parse("1 + 2"));
+    cache.parse("3");
+    assertAll(
+        () -> assertEquals(2, calls.get()),
+        () -> assertEquals(1, cache.hitCount()),
+        () -> assertEquals(2, cache.missCount()),
+        () -> assertEquals(0, cache.evictionCount()),
+        () -> assertEquals(2, cache.size())
+        );
+  }
+
+  @Test
+  void evictLeastRecentlyUsed() {
+    var cache = ParseCache.create(1, Arithmetic::eval);
+    assertEquals(3, (int) cache.parse("1 + 2"));
+    assertEquals(12, (int) cache.parse("3 * 4"));
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.evictionCount());
+    assertEquals(3, (int) cache.parse("1 + 2"));
+    assertEquals(3, cache.missCount());
+    assertEquals(0, cache.hitCount());
+  }
+
+  @Test
+  void bounded() {
+    var cache = ParseCache.create(100, Arithmetic::eval);
+    for(var i = 0; i < 1_000; i++) {
+      assertEquals(i + 1, (int) cache.parse(i + " + 1"));
+    }
+    // all the capacity is used whatever the number of segments
+    assertEquals(100, cache.size());
+    assertEquals(900, cache.evictionCount());
+  }
+
+  @Test
+  void smallCacheRetainsItsCapacity() {
+    for(var capacity: new int[] { 1, 7, 13, 100, 333 }) {
+      var cache = ParseCache.create(capacity, Arithmetic::eval);
+      for(var i = 0; i < capacity * 20; i++) {
+        cache.parse(String.valueOf(i));
+      }
+      assertEquals(capacity, cache.size(), "capacity " + capacity);
+    }
+  }
+
+  @Test
+  void recentlyUsedTextsAreRetained() {
+    // a few texts used again and again are not evicted by each other
+    var cache = ParseCache.create(100, Arithmetic::eval);
+    for(var round = 0; round < 10; round++) {
+      for(var i = 0; i < 4; i++) {
+        cache.parse(i + " * 3");
+      }
+    }
+    assertEquals(4, cache.missCount());
+    assertEquals(36, cache.hitCount());
+  }
+
+  @Test
+  void clear() {
+    var cache = ParseCache.create(10, Arithmetic::eval);
+    cache.parse("1");
+    cache.parse("2");
+    cache.clear();
+    assertEquals(0, cache.size());
+    cache.parse("1");
+    assertEquals(3, cache.missCount());
+  }
+
+  @Test
+  void parseErrorIsNotCached() {
+    var cache = ParseCache.create(10, Arithmetic::eval);
+    assertThrows(IllegalStateException.class, () -> cache.parse("* 2"));
+    assertThrows(IllegalStateException.class, () -> cache.parse("* 2"));
+    assertEquals(0, cache.size());
+    assertThrows(NullPointerException.class, () -> ParseCache.create(10, text -> null).parse("1"));
+  }
+
+  @Test
+  void sharedBetweenThreads() {
+    var cache = ParseCache.create(64, Arithmetic::eval);
+    var results = IntStream.range(0, 100_000).parallel()
+        .mapToObj(i -> cache.parse((i % 100) + " * 2"))
+        .collect(toList());
+    assertEquals(IntStream.range(0, 100_000).mapToObj(i -> (i % 100) * 2).collect(toList()), results);
+    assertEquals(100_000, cache.hitCount() + cache.missCount());
+  }
+
+  @Test
+  void invalidArguments() {
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> ParseCache.create(0, Arithmetic::eval)),
+        () -> assertThrows(NullPointerException.class, () -> ParseCache.create(10, null)),
+        () -> assertThrows(NullPointerException.class, () -> ParseCache.create(10, Arithmetic::eval).parse(null))
+        );
+  }
+}
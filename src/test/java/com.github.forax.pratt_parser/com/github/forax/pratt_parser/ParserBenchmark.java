@@ -0,0 +1,172 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Main.Precedence.P_ADD;
+import static com.github.forax.pratt_parser.Main.Precedence.P_MUL;
+import static com.github.forax.pratt_parser.Main.Precedence.P_NONE;
+import static com.github.forax.pratt_parser.Main.Token.*;
+import static java.util.Map.entry;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.forax.pratt_parser.BenchmarkInputs.Shape;
+import com.github.forax.pratt_parser.Main.Precedence;
+import com.github.forax.pratt_parser.Main.Token;
+import com.github.forax.pratt_parser.ParserExample2Tests.Expr;
+import com.github.forax.pratt_parser.ParserExample2Tests.Expr.BinOp;
+import com.github.forax.pratt_parser.ParserExample2Tests.Expr.Literal;
+import com.github.forax.pratt_parser.ParserExample2Tests.Expr.UnOp;
+
+/**
+ * Measures the number of expressions per second of {@link Parser#create} followed by
+ * {@link Parser#parseExpr(Object)}, using the grammar of {@link Main} that evaluates the expression
+ * and the grammar of {@link ParserExample2Tests} that creates an AST.
+ * {@code evaluateOffsets} is {@code evaluate} that parses the numbers from the offsets of the tokens
+ * in the text instead of creating a {@link Lexer#value()}.
+ * {@code evaluateGrammar}, {@code evaluateIntGrammar} and {@code evaluateCompiledIntGrammar} use
+ * the grammar of {@link Main} created once as a {@link Grammar}, as an {@link IntGrammar} or
+ * as an {@link IntGrammar#compile compiled IntGrammar}.
+ * {@code evaluatePipelinedIntGrammar} lexes the text in another thread using a {@link TokenBuffer}.
+ * The time to lex the text is included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+  @Param({"10B", "10KB", "10MB"})
+  public String size;
+  
+  @Param({"SHALLOW", "NESTED"})
+  public Shape shape;
+  
+  private String text;
+  private Function<CharSequence, Lexer<Token>> factory;
+  
+  private static final Grammar<Integer, Token, Precedence> GRAMMAR = Grammar.create(
+      Map.of(EOF, P_NONE, RPAR, P_NONE, PLUS, P_ADD, STAR, P_MUL)::get,
+      Precedence::compareTo,
+      Map.of(
+          PLUS,  (p, lexer) -> p.parseExpr(P_NONE),
+          MINUS, (p, lexer) -> - p.parseExpr(P_NONE),
+          LPAR,  (p, lexer) -> { int v = p.parseExpr(P_NONE); lexer.consume(RPAR); return v; }, 
+          NUM,   (p, lexer) -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10)),
+      Map.of(
+          PLUS,  (p, lexer, left) -> left + p.parseExpr(P_ADD),
+          STAR,  (p, lexer, left) -> left * p.parseExpr(P_MUL)));
+  
+  private static final Map<Token, IntGrammar.PrefixParselet<Integer, Token>> INT_PREFIXES = Map.of(
+      PLUS,  (p, lexer) -> p.parseExpr(0),
+      MINUS, (p, lexer) -> - p.parseExpr(0),
+      LPAR,  (p, lexer) -> { int v = p.parseExpr(0); lexer.consume(RPAR); return v; }, 
+      NUM,   (p, lexer) -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10));
+  private static final Map<Token, IntGrammar.SuffixParselet<Integer, Token>> INT_SUFFIXES = Map.of(
+      PLUS,  (p, lexer, left) -> left + p.parseExpr(1),
+      STAR,  (p, lexer, left) -> left * p.parseExpr(2));
+  
+  private static final IntGrammar<Integer, Token> INT_GRAMMAR = IntGrammar.create(
+      token -> token == PLUS? 1: token == STAR? 2: 0, INT_PREFIXES, INT_SUFFIXES);
+  
+  private static final IntGrammar<Integer, Token> COMPILED_INT_GRAMMAR = IntGrammar.compile(
+      token -> token == PLUS? 1: token == STAR? 2: 0, INT_PREFIXES, INT_SUFFIXES);
+  
+  @Setup
+  public void setup() {
+    text = BenchmarkInputs.generate(BenchmarkInputs.parseSize(size), shape);
+    factory = Lexer.factory(EOF,
+        entry(PLUS,  "\\+"),
+        entry(MINUS, "\\-"),
+        entry(STAR,  "\\*"),
+        entry(LPAR,  "\\("),
+        entry(RPAR,  "\\)"),
+        entry(NUM,   "[0-9]+"));
+  }
+  
+  @Benchmark
+  public Integer evaluate() {
+    var lexer = factory.apply(text);
+    Parser<Integer, Precedence> parser = Parser.create(lexer, 
+        Map.of(EOF, P_NONE, RPAR, P_NONE, PLUS, P_ADD, STAR, P_MUL)::get,
+        Precedence::compareTo,
+        Map.of(
+            PLUS,  p -> p.parseExpr(P_NONE),
+            MINUS, p -> - p.parseExpr(P_NONE),
+            LPAR,  p -> { int v = p.parseExpr(P_NONE); lexer.consume(RPAR); return v; }, 
+            NUM,   p -> Integer.parseInt(lexer.value())),
+        Map.of(
+            PLUS,  (p, left) -> left + p.parseExpr(P_ADD),
+            STAR,  (p, left) -> left * p.parseExpr(P_MUL)));
+    return parser.parseExpr(P_NONE);
+  }
+  
+  @Benchmark
+  public Integer evaluateOffsets() {
+    var lexer = factory.apply(text);
+    Parser<Integer, Precedence> parser = Parser.create(lexer, 
+        Map.of(EOF, P_NONE, RPAR, P_NONE, PLUS, P_ADD, STAR, P_MUL)::get,
+        Precedence::compareTo,
+        Map.of(
+            PLUS,  p -> p.parseExpr(P_NONE),
+            MINUS, p -> - p.parseExpr(P_NONE),
+            LPAR,  p -> { int v = p.parseExpr(P_NONE); lexer.consume(RPAR); return v; }, 
+            NUM,   p -> Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10)),
+        Map.of(
+            PLUS,  (p, left) -> left + p.parseExpr(P_ADD),
+            STAR,  (p, left) -> left * p.parseExpr(P_MUL)));
+    return parser.parseExpr(P_NONE);
+  }
+  
+  @Benchmark
+  public Integer evaluateGrammar() {
+    return GRAMMAR.parser(factory.apply(text)).parseExpr(P_NONE);
+  }
+  
+  @Benchmark
+  public Integer evaluateIntGrammar() {
+    return INT_GRAMMAR.parser(factory.apply(text)).parseExpr(0);
+  }
+  
+  @Benchmark
+  public Integer evaluateCompiledIntGrammar() {
+    return COMPILED_INT_GRAMMAR.parser(factory.apply(text)).parseExpr(0);
+  }
+  
+  @Benchmark
+  public Integer evaluatePipelinedIntGrammar() {
+    var buffer = TokenBuffer.pipelined(factory.apply(text), EOF, ForkJoinPool.commonPool());
+    return INT_GRAMMAR.parser(buffer.lexer()).parseExpr(0);
+  }
+  
+  @Benchmark
+  public Expr ast() {
+    var lexer = factory.apply(text);
+    Parser<Expr, Precedence> parser = Parser.create(lexer, 
+        Map.of(EOF, P_NONE, RPAR, P_NONE, PLUS, P_ADD, STAR, P_MUL)::get,
+        Precedence::compareTo,
+        Map.of(
+            PLUS,  p -> new UnOp(x -> x, p.parseExpr(P_NONE)),
+            MINUS, p -> new UnOp(x -> -x, p.parseExpr(P_NONE)),
+            LPAR,  p -> { Expr expr = p.parseExpr(P_NONE); lexer.consume(RPAR); return expr; }, 
+            NUM,   p -> new Literal(Integer.parseInt(lexer.value()))),
+        Map.of(
+            PLUS,  (p, left) -> new BinOp((a, b) -> a + b, left, p.parseExpr(P_ADD)),
+            STAR,  (p, left) -> new BinOp((a, b) -> a * b, left, p.parseExpr(P_MUL))));
+    return parser.parseExpr(P_NONE);
+  }
+}
@@ -96,4 +96,42 @@ class ParserExample2Tests {
     
     assertEquals(14, result);
   }
+  
+  @Test
+  void compileOnceEvaluateMany() {
+    var text = "+ 2 + + 3 * - (- 4)";
+    var lexer = Lexer.factory(EOF,
+        entry(PLUS,  "\\+"),
+        entry(MINUS, "\\-"),
+        entry(STAR,  "\\*"),
+        entry(LPAR,  "\\("),
+        entry(RPAR,  "\\)"),
+        entry(NUM,   "[0-9]+")
+      ).apply(text);
+
+    Parser<Expr, Precedence> parser = Parser.create(lexer, 
+        Map.of(EOF, P_NONE, RPAR, P_NONE, PLUS, P_ADD, STAR, P_MUL)::get,
+        Precedence::compareTo,
+        Map.of(
+            PLUS,  p -> new UnOp(x -> x, p.parseExpr(P_NONE)),
+            MINUS, p -> new UnOp(x -> -x, p.parseExpr(P_NONE)),
+            LPAR,  p -> { Expr expr = p.parseExpr(P_NONE); lexer.consume(RPAR); return expr; }, 
+            NUM,   p -> new Literal(Integer.parseInt(lexer.value()))),
+        Map.of(
+            PLUS,  (p, left) -> new BinOp((a, b) -> a + b, left, p.parseExpr(P_ADD)),
+            STAR,  (p, left) -> new BinOp((a, b) -> a * b, left, p.parseExpr(P_MUL))));
+    var expr = parser.parseExpr(P_NONE);
+    
+    // the visitor is only used once to compile the tree to closures
+    Visitor<IntEvaluator<Object>> compiler = Visitor.create(registry -> registry
+       .when(Literal.class, (v, literal) -> IntEvaluator.constant(literal.value))
+       .when(UnOp.class,    (v, unOp)    -> IntEvaluator.unary(unOp.op, v.visit(unOp.expr)))
+       .when(BinOp.class,   (v, binOp)   -> IntEvaluator.binary(binOp.op, v.visit(binOp.left), v.visit(binOp.right)))
+       );
+    var evaluator = compiler.visit(expr);
+    
+    for(var i = 0; i < 1_000; i++) {
+      assertEquals(14, evaluator.evaluate(null));
+    }
+  }
 }
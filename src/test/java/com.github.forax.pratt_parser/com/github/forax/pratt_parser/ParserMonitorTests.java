@@ -0,0 +1,158 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.grammar;
+import static com.github.forax.pratt_parser.Arithmetic.intGrammar;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_NONE;
+import static com.github.forax.pratt_parser.Arithmetic.Token.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.forax.pratt_parser.Arithmetic.Token;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+@SuppressWarnings("static-method")
+class ParserMonitorTests {
+  @Test
+  void metrics() {
+    var monitor = ParserMonitor.<Token>create();
+    var grammar = grammar(monitor);
+    assertEquals(20, (int) grammar.parser(LEXER_FACTORY.apply("2 * (3 + - 1) * 5")).parseExpr(P_NONE));
+    assertAll(
+        () -> assertEquals(1, monitor.parseCount()),
+        () -> assertEquals(10, monitor.tokenCount()),
+        () -> assertEquals(Map.of(NUM, 4L, STAR, 2L, LPAR, 1L, PLUS, 1L, MINUS, 1L), monitor.parseletInvocations()),
+        () -> assertEquals(5, monitor.maxDepth()),
+        () -> assertTrue(monitor.lexingNanos() > 0),
+        () -> assertTrue(monitor.parseletNanos() > 0)
+        );
+  }
+
+  @Test
+  void intGrammarMetrics() {
+    var monitor = ParserMonitor.<Token>create();
+    var parser = intGrammar(monitor).parser(LEXER_FACTORY.apply("1 + 2 + 3"));
+    assertEquals(6, (int) parser.parseExpr(0));
+    assertAll(
+        () -> assertEquals(1, monitor.parseCount()),
+        () -> assertEquals(5, monitor.tokenCount()),
+        () -> assertEquals(Map.of(NUM, 3L, PLUS, 2L), monitor.parseletInvocations()),
+        () -> assertEquals(2, monitor.maxDepth())
+        );
+  }
+
+  @Test
+  void metricsOfSeveralParses() {
+    var monitor = ParserMonitor.<Token>create();
+    var grammar = intGrammar(monitor);
+    var lexer = LEXER_FACTORY.apply("((1))");
+    var parser = grammar.parser(lexer);
+    assertEquals(1, (int) parser.parseExpr(0));
+    lexer.reset("2 * 3");
+    assertEquals(6, (int) parser.parseExpr(0));
+    assertEquals(2, monitor.parseCount());
+    assertEquals(Map.of(NUM, 3L, LPAR, 2L, STAR, 1L), monitor.parseletInvocations());
+    assertEquals(3, monitor.maxDepth());
+    monitor.reset();
+    assertAll(
+        () -> assertEquals(0, monitor.parseCount()),
+        () -> assertEquals(0, monitor.tokenCount()),
+        () -> assertEquals(Map.of(), monitor.parseletInvocations()),
+        () -> assertEquals(0, monitor.maxDepth()),
+        () -> assertEquals(0, monitor.lexingNanos())
+        );
+  }
+
+  @Test
+  void metricsOfAFailedParse() {
+    var monitor = ParserMonitor.<Token>create();
+    var parser = grammar(monitor).parser(LEXER_FACTORY.apply("1 + * 2"));
+    assertThrows(IllegalStateException.class, () -> parser.parseExpr(P_NONE));
+    assertEquals(1, monitor.parseCount());
+    assertEquals(Map.of(NUM, 1L, PLUS, 1L), monitor.parseletInvocations());
+  }
+
+  @Test
+  void disabled() {
+    var monitor = ParserMonitor.<Token>create();
+    monitor.setEnabled(false);
+    var grammar = grammar(monitor);
+    assertEquals(7, (int) grammar.parser(LEXER_FACTORY.apply("1 + 2 * 3")).parseExpr(P_NONE));
+    assertAll(
+        () -> assertEquals(false, monitor.isEnabled()),
+        () -> assertEquals(0, monitor.parseCount()),
+        () -> assertEquals(0, monitor.tokenCount()),
+        () -> assertEquals(Map.of(), monitor.parseletInvocations())
+        );
+    monitor.setEnabled(true);
+    assertEquals(7, (int) grammar.parser(LEXER_FACTORY.apply("1 + 2 * 3")).parseExpr(P_NONE));
+    assertEquals(1, monitor.parseCount());
+  }
+
+  @Test
+  void flightRecorderEvent() throws IOException {
+    var monitor = ParserMonitor.<Token>create();
+    monitor.setEnabled(false);
+    var grammar = intGrammar(monitor);
+    var file = Files.createTempFile("parse", ".jfr");
+    try {
+      try(var recording = new Recording()) {
+        recording.enable("com.github.forax.pratt_parser.Parse");
+        recording.start();
+        assertEquals(-4, (int) grammar.parser(LEXER_FACTORY.apply("(-(4))")).parseExpr(0));
+        recording.stop();
+        recording.dump(file);
+      }
+      var events = RecordingFile.readAllEvents(file);
+      assertEquals(1, events.size());
+      var event = events.get(0);
+      assertAll(
+          () -> assertEquals(6L, event.getLong("tokens")),
+          () -> assertEquals(4L, event.getLong("parseletInvocations")),
+          () -> assertEquals(4, event.getInt("maxDepth")),
+          () -> assertTrue(event.getDuration("lexingTime").toNanos() > 0),
+          () -> assertEquals(0, monitor.parseCount())
+          );
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void invalidMonitor() {
+    var monitor = new ParserMonitor<Token>() {
+      @Override
+      public boolean isEnabled() { return true; }
+      @Override
+      public void setEnabled(boolean enabled) { /* empty */ }
+      @Override
+      public long parseCount() { return 0; }
+      @Override
+      public long tokenCount() { return 0; }
+      @Override
+      public Map<Token, Long> parseletInvocations() { return Map.of(); }
+      @Override
+      public int maxDepth() { return 0; }
+      @Override
+      public long lexingNanos() { return 0; }
+      @Override
+      public long parseletNanos() { return 0; }
+      @Override
+      public void reset() { /* empty */ }
+    };
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> grammar(monitor)),
+        () -> assertThrows(NullPointerException.class, () -> intGrammar(null))
+        );
+  }
+}
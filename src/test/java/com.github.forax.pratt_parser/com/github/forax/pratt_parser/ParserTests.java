@@ -1,6 +1,7 @@
 package com.github.forax.pratt_parser;
 
 import static java.util.Map.entry;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -87,4 +88,76 @@ class ParserTests {
     int result = parser.parseExpr(0);
     assertEquals(3, result);
   }
+  
+  private static Parser<Integer, Integer> sumParser(Lexer<String> lexer) {
+    return Parser.create(lexer, 
+        Map.of("$", 0, ";", 0, "+", 1)::get,
+        Integer::compareTo,
+        Map.of(
+            "num", p -> Integer.parseInt(lexer.value())),
+        Map.of(
+            "+",   (p, left) -> left + p.parseExpr(1)));
+  }
+  
+  @Test
+  void streamOfExpressions() {
+    var lexer = Lexer.factory("$",
+        entry(";",   ";"),
+        entry("+",   "\\+"),
+        entry("num", "[0-9]+")
+      ).apply(";1 + 2; 3;; 4 + 5 + 6;");
+    var parser = sumParser(lexer);
+    assertEquals(List.of(3, 3, 15), parser.stream(lexer, 0, ";", "$").collect(toList()));
+  }
+  
+  @Test
+  void streamIsLazy() {
+    var lexer = Lexer.factory("$",
+        entry(";",   ";"),
+        entry("+",   "\\+"),
+        entry("num", "[0-9]+"),
+        entry("error", "!")
+      ).apply("1; 2 + 3; !");
+    var parser = sumParser(lexer);
+    var iterator = parser.stream(lexer, 0, ";", "$").iterator();
+    assertEquals(1, (int) iterator.next());
+    assertEquals(5, (int) iterator.next());
+    assertThrows(IllegalStateException.class, iterator::next);
+  }
+  
+  @Test
+  void streamMissingSeparator() {
+    var lexer = Lexer.factory("$",
+        entry(";",   ";"),
+        entry(",",   ","),
+        entry("+",   "\\+"),
+        entry("num", "[0-9]+")
+      ).apply("1; 2 , 3");
+    Parser<Integer, Integer> parser = Parser.create(lexer, 
+        __ -> 0,
+        Integer::compareTo,
+        Map.of(
+            "num", p -> Integer.parseInt(lexer.value())),
+        Map.of());
+    assertThrows(IllegalStateException.class, () -> parser.stream(lexer, 0, ";", "$").collect(toList()));
+  }
+  
+  @Test
+  void streamEmpty() {
+    var lexer = Lexer.factory("$", entry(";", ";"), entry("num", "[0-9]+")).apply(" ;; ");
+    assertEquals(0, sumParser(lexer).stream(lexer, 0, ";", "$").count());
+  }
+  
+  @Test
+  void reuseParserAfterReset() {
+    var lexer = Lexer.factory("$",
+        entry(";",   ";"),
+        entry("+",   "\\+"),
+        entry("num", "[0-9]+")
+      ).apply("1 + 2");
+    var parser = sumParser(lexer);
+    assertEquals(3, (int) parser.parseExpr(0));
+    lexer.reset("3 + 4 + 5");
+    assertEquals(12, (int) parser.parseExpr(0));
+  }
 }
@@ -0,0 +1,73 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_NONE;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+
+@SuppressWarnings("static-method")
+class PoolTests {
+  @Test
+  void borrowAndRelease() {
+    var counter = new AtomicInteger();
+    var pool = Pool.create(1, counter::incrementAndGet);
+    var first = pool.borrow();
+    var second = pool.borrow();
+    assertNotSame(first, second);
+    pool.release(first);
+    pool.release(second);  // dropped, capacity is 1
+    assertSame(first, pool.borrow());
+    assertEquals(3, (int) pool.borrow());
+  }
+  
+  @Test
+  void apply() {
+    var pool = Pool.create(4, StringBuilder::new);
+    var builder = pool.apply(b -> b);
+    assertSame(builder, pool.borrow());
+  }
+  
+  @Test
+  void releaseEvenIfFailure() {
+    var pool = Pool.create(4, Object::new);
+    var objects = new Object[1];
+    assertThrows(IllegalStateException.class, () -> pool.apply(o -> { objects[0] = o; throw new IllegalStateException(); }));
+    assertSame(objects[0], pool.borrow());
+  }
+  
+  @Test
+  void wrongArguments() {
+    assertThrows(IllegalArgumentException.class, () -> Pool.create(0, Object::new));
+    assertThrows(NullPointerException.class, () -> Pool.create(4, null));
+    assertThrows(NullPointerException.class, () -> Pool.create(4, () -> null).borrow());
+    assertThrows(NullPointerException.class, () -> Pool.create(4, Object::new).release(null));
+  }
+  
+  @Test
+  void poolOfLexers() {
+    var created = new AtomicInteger();
+    var pool = Pool.create(16, () -> {
+      created.incrementAndGet();
+      return LEXER_FACTORY.apply("");
+    });
+    var results = IntStream.range(0, 10_000).parallel()
+        .mapToObj(i -> pool.apply(lexer -> {
+          lexer.reset(i + " * 2 + (" + i + ")");
+          return GRAMMAR.parser(lexer).parseExpr(P_NONE);
+        }))
+        .collect(toList());
+    assertEquals(IntStream.range(0, 10_000).mapToObj(i -> i * 3).collect(toList()), results);
+    assertTrue(created.get() < 10_000);
+  }
+}
@@ -0,0 +1,126 @@
+package com.github.forax.pratt_parser;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class ReaderLexerTests {
+  private static List<String> tokens(Lexer<String> lexer) {
+    var list = new ArrayList<String>();
+    String token;
+    while(!(token = lexer.consume()).equals("$")) {
+      list.add(token + ':' + lexer.value());
+    }
+    return list;
+  }
+  
+  @SuppressWarnings("unchecked")
+  private static final Entry<String, String>[] REGEXES = (Entry<String, String>[]) new Entry<?, ?>[] {
+      entry("+",   "\\+"),
+      entry("-",   "\\-"),
+      entry("*",   "\\*"),
+      entry("(",   "\\("),
+      entry(")",   "\\)"),
+      entry("num", "[0-9]+")
+  };
+  
+  @Test
+  void testWrongConfigurations() {
+    assertThrows(NullPointerException.class, () -> Lexer.readerFactory(16, null, Map.entry("token", "[a-z]+")));
+    assertThrows(NullPointerException.class, () -> Lexer.readerFactory(16, "eof", (Map.Entry<String, String>[])null));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.readerFactory(16, "eof"));
+    assertThrows(IllegalArgumentException.class, () -> Lexer.readerFactory(0, "eof", Map.entry("token", "[a-z]+")));
+  }
+  
+  @Test
+  void matchNullReader() {
+    var factory = Lexer.readerFactory(16, "$", entry("token", "[0-9]+"));
+    assertThrows(NullPointerException.class, () -> factory.apply(null));
+  }
+  
+  @Test
+  void matchEmptyText() {
+    var lexer = Lexer.readerFactory(16, "$", entry("token", "[a-z]+")).apply(new StringReader(""));
+    lexer.consume("$");
+    assertNull(lexer.value());
+    lexer.consume("$");
+  }
+  
+  @Test
+  void tokensSpanningSeveralReads() {
+    var lexer = Lexer.readerFactory(5, "$", entry("id", "[a-z]+"), entry("num", "[0-9]+"))
+        .apply(new StringReader("ab cd1234efg h"));
+    assertEquals(List.of("id:ab", "id:cd", "num:1234", "id:efg", "id:h"), tokens(lexer));
+  }
+  
+  @Test
+  void offsetsInTheBuffer() {
+    var lexer = Lexer.readerFactory(4, "$", entry("num", "[0-9]+")).apply(new StringReader("1  23   456"));
+    var values = new ArrayList<Integer>();
+    while(lexer.consume() != "$") {
+      values.add(Integer.parseInt(lexer.text(), lexer.start(), lexer.end(), 10));
+    }
+    assertEquals(List.of(1, 23, 456), values);
+  }
+  
+  @Test
+  void tokenTooLong() {
+    var lexer = Lexer.readerFactory(4, "$", entry("id", "[a-z]+")).apply(new StringReader("abc abcde"));
+    lexer.consume("id");
+    assertThrows(IllegalStateException.class, lexer::consume);
+  }
+  
+  @Test
+  void readerError() {
+    var reader = new Reader() {
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        throw new IOException("oops");
+      }
+      @Override
+      public void close() {
+        // empty
+      }
+    };
+    var lexer = Lexer.readerFactory(4, "$", entry("id", "[a-z]+")).apply(reader);
+    assertThrows(UncheckedIOException.class, lexer::consume);
+  }
+  
+  @Test
+  void sameTokensAsDfaFactory() {
+    var text = BenchmarkInputs.generate(100_000, BenchmarkInputs.Shape.NESTED) + " - +" + BenchmarkInputs.generate(10_000, BenchmarkInputs.Shape.SHALLOW);
+    var expected = tokens(Lexer.dfaFactory("$", REGEXES).apply(text));
+    for(var bufferSize: new int[] { 4, 7, 64, 8192 }) {
+      assertEquals(expected, tokens(Lexer.readerFactory(bufferSize, "$", REGEXES).apply(new StringReader(text))));
+    }
+  }
+  
+  @Test
+  void fromAChannel() {
+    var channel = Channels.newChannel(new ByteArrayInputStream("2 * (\u00e9t\u00e9 + 3)".getBytes(UTF_8)));
+    var lexer = Lexer.readerFactory(8, "$", REGEXES).apply(Channels.newReader(channel, UTF_8));
+    assertEquals(List.of("num:2", "*:*", "(:(", "+:+", "num:3", "):)"), tokens(lexer));
+  }
+  
+  @Test
+  void resetNotSupported() {
+    var lexer = Lexer.readerFactory(16, "$", entry("id", "[a-z]+")).apply(new StringReader("foo"));
+    assertThrows(UnsupportedOperationException.class, () -> lexer.reset("bar"));
+  }
+}
@@ -0,0 +1,161 @@
+package com.github.forax.pratt_parser;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class StringTableTests {
+  @Test
+  void sameInstance() {
+    var table = StringTable.create(16);
+    var text = "foo bar foo bar";
+    var foo = table.intern(text, 0, 3);
+    var bar = table.intern(text, 4, 7);
+    assertAll(
+        () -> assertEquals("foo", foo),
+        () -> assertEquals("bar", bar),
+        () -> assertSame(foo, table.intern(text, 8, 11)),
+        () -> assertSame(bar, table.intern(text, 12, 15)),
+        () -> assertSame(foo, table.intern(CharBuffer.wrap("(foo)"), 1, 4)),
+        () -> assertEquals("", table.intern(text, 3, 3))
+        );
+  }
+
+  @Test
+  void bounded() {
+    var table = StringTable.create(1);
+    var text = "ab cd";
+    var ab = table.intern(text, 0, 2);
+    assertEquals("cd", table.intern(text, 3, 5));
+    var ab2 = table.intern(text, 0, 2);
+    assertEquals("ab", ab2);
+    assertNotSame(ab, ab2);
+    assertSame(ab2, table.intern(text, 0, 2));
+  }
+
+  @Test
+  void sameHash() {
+    var table = StringTable.create(8);
+    var text = "Aa BB";  // "Aa".hashCode() == "BB".hashCode()
+    assertEquals("Aa", table.intern(text, 0, 2));
+    assertEquals("BB", table.intern(text, 3, 5));
+    assertEquals("Aa", table.intern(text, 0, 2));
+  }
+
+  @Test
+  void lexer() {
+    var table = StringTable.create(64);
+    var factory = Lexer.factory("$", entry("id", "[a-z]+"), entry("+", "\\+"));
+    var values = new ArrayList<String>();
+    for(var text: List.of("x + y + x", "y + x")) {
+      var lexer = table.lexer(factory.apply(text));
+      while(!lexer.consume().equals("$")) {
+        values.add(lexer.value());
+      }
+      assertNull(lexer.value());
+    }
+    assertEquals(List.of("x", "+", "y", "+", "x", "y", "+", "x"), values);
+    assertAll(
+        () -> assertSame(values.get(0), values.get(4)),
+        () -> assertSame(values.get(0), values.get(7)),
+        () -> assertSame(values.get(2), values.get(5)),
+        () -> assertSame(values.get(1), values.get(6))
+        );
+  }
+
+  @Test
+  void valueInternedOncePerToken() {
+    var table = StringTable.create(64);
+    var counter = new AtomicInteger();
+    StringTable countingTable = (text, start, end) -> {
+      counter.incrementAndGet();
+      return table.intern(text, start, end);
+    };
+    var lexer = countingTable.lexer(Lexer.factory("$", entry("id", "[a-z]+")).apply("foo bar"));
+    lexer.consume("id");
+    assertSame(lexer.value(), lexer.value());
+    assertEquals(1, counter.get());
+    assertEquals("id", lexer.lookhead());
+    assertEquals("bar", lexer.value());
+    lexer.consume("id");
+    assertEquals("bar", lexer.value());
+    assertEquals(3, counter.get());
+  }
+
+  @Test
+  void utf8Lexer() {
+    var table = StringTable.create(64);
+    var factory = Lexer.utf8Factory("$", "num", "id", entry("+", "+"));
+    var text = "caf\u00e9 + x + caf\u00e9 + \u00e9t\u00e9";
+    var lexer = table.lexer(factory.apply(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))));
+    var values = new ArrayList<String>();
+    while(!lexer.consume().equals("$")) {
+      values.add(lexer.value());
+    }
+    assertEquals(List.of("caf\u00e9", "+", "x", "+", "caf\u00e9", "+", "\u00e9t\u00e9"), values);
+    assertSame(values.get(0), values.get(4));
+  }
+
+  @Test
+  void parse() {
+    var table = StringTable.create(64);
+    var factory = Lexer.factory("$", entry("id", "[a-z]+"), entry("+", "\\+"));
+    var grammar = IntGrammar.<List<String>, String>create(
+        token -> token.equals("+")? 1: 0,
+        Map.of("id", (p, lexer) -> List.of(lexer.value())),
+        Map.of("+", (p, lexer, left) -> {
+          var list = new ArrayList<>(left);
+          list.addAll(p.parseExpr(1));
+          return list;
+        }));
+    var ids = grammar.parser(table.lexer(factory.apply("abc + def + abc"))).parseExpr(0);
+    assertEquals(List.of("abc", "def", "abc"), ids);
+    assertSame(ids.get(0), ids.get(2));
+  }
+
+  @Test
+  void sharedByThreads() {
+    var table = StringTable.create(1024);
+    var text = IntStream.range(0, 100).mapToObj(i -> "id" + i).reduce("", (a, b) -> a + b + " ");
+    var factory = Lexer.factory("$", entry("id", "[a-z0-9]+"));
+    var values = ConcurrentHashMap.<String>newKeySet();
+    IntStream.range(0, 64).parallel().forEach(__ -> {
+      var lexer = table.lexer(factory.apply(text));
+      while(!lexer.consume().equals("$")) {
+        values.add(lexer.value());
+      }
+    });
+    assertEquals(100, values.size());
+  }
+
+  @Test
+  void invalidArguments() {
+    var table = StringTable.create(4);
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> StringTable.create(0)),
+        () -> assertThrows(IllegalArgumentException.class, () -> StringTable.create(-1)),
+        () -> assertThrows(IllegalArgumentException.class, () -> StringTable.create((1 << 30) + 1)),
+        () -> assertThrows(NullPointerException.class, () -> table.intern(null, 0, 0)),
+        () -> assertThrows(NullPointerException.class, () -> table.lexer(null)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> table.intern("foo", 2, 1)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> table.intern("foo", 0, 4))
+        );
+  }
+}
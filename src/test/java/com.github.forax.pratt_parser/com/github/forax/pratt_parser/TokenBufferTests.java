@@ -0,0 +1,172 @@
+package com.github.forax.pratt_parser;
+
+import static com.github.forax.pratt_parser.Arithmetic.GRAMMAR;
+import static com.github.forax.pratt_parser.Arithmetic.LEXER_FACTORY;
+import static com.github.forax.pratt_parser.Arithmetic.Precedence.P_NONE;
+import static com.github.forax.pratt_parser.Arithmetic.Token.*;
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.forax.pratt_parser.Arithmetic.Token;
+
+@SuppressWarnings("static-method")
+class TokenBufferTests {
+  @Test
+  void columns() {
+    var buffer = TokenBuffer.of(LEXER_FACTORY.apply("12 + (3)"), EOF);
+    assertAll(
+        () -> assertEquals(5, buffer.size()),
+        () -> assertEquals(List.of(NUM, PLUS, LPAR, NUM, RPAR),
+            List.of(buffer.token(0), buffer.token(1), buffer.token(2), buffer.token(3), buffer.token(4))),
+        () -> assertEquals(0, buffer.start(0)),
+        () -> assertEquals(2, buffer.end(0)),
+        () -> assertEquals(6, buffer.start(3)),
+        () -> assertEquals(7, buffer.end(3)),
+        () -> assertEquals(EOF, buffer.token(5)),
+        () -> assertEquals(-1, buffer.start(5)),
+        () -> assertEquals(-1, buffer.end(100)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> buffer.token(-1))
+        );
+  }
+
+  @Test
+  void lexer() {
+    var lexer = TokenBuffer.of(LEXER_FACTORY.apply("12 + 3"), EOF).lexer();
+    assertNull(lexer.token());
+    assertEquals(NUM, lexer.consume());
+    assertEquals("12", lexer.value());
+    assertEquals(PLUS, lexer.lookhead());
+    assertEquals(PLUS, lexer.consume());
+    assertEquals(NUM, lexer.consume());
+    assertEquals("3", lexer.value());
+    assertEquals(EOF, lexer.consume());
+    assertEquals(-1, lexer.start());
+    assertEquals(EOF, lexer.consume());
+  }
+
+  @Test
+  void lookahead() {
+    var lexer = TokenBuffer.of(LEXER_FACTORY.apply("1 + (2)"), EOF).lexer();
+    assertAll(
+        () -> assertEquals(NUM, lexer.lookahead(1)),
+        () -> assertEquals(PLUS, lexer.lookahead(2)),
+        () -> assertEquals(RPAR, lexer.lookahead(5)),
+        () -> assertEquals(EOF, lexer.lookahead(6)),
+        () -> assertEquals(EOF, lexer.lookahead(Integer.MAX_VALUE)),
+        () -> assertThrows(IllegalArgumentException.class, () -> lexer.lookahead(0))
+        );
+    lexer.consume();
+    assertEquals(LPAR, lexer.lookahead(2));
+  }
+
+  @Test
+  void lookaheadOfALexer() {
+    var lexer = LEXER_FACTORY.apply("1 + 2");
+    assertEquals(NUM, lexer.lookahead(1));
+    assertThrows(UnsupportedOperationException.class, () -> lexer.lookahead(2));
+    assertThrows(IllegalArgumentException.class, () -> lexer.lookahead(0));
+  }
+
+  @Test
+  void parseABuffer() {
+    var text = "+ 2 + + 3 * - (- 4)";
+    var buffer = TokenBuffer.of(LEXER_FACTORY.apply(text), EOF);
+    assertEquals(14, (int) GRAMMAR.parser(buffer.lexer()).parseExpr(P_NONE));
+    assertEquals(14, (int) GRAMMAR.parser(buffer.lexer()).parseExpr(P_NONE));
+  }
+
+  @Test
+  void stringTokens() {
+    var lexer = Lexer.factory("$", entry("id", "[a-z]+"), entry("num", "[0-9]+")).apply("a 1 b 2");
+    var buffer = TokenBuffer.of(lexer, "$");
+    var tokens = new ArrayList<String>();
+    var values = new ArrayList<String>();
+    var bufferLexer = buffer.lexer();
+    String token;
+    while(!(token = bufferLexer.consume()).equals("$")) {
+      tokens.add(token);
+      values.add(bufferLexer.value());
+    }
+    assertEquals(List.of("id", "num", "id", "num"), tokens);
+    assertEquals(List.of("a", "1", "b", "2"), values);
+  }
+
+  @Test
+  void pipelined() {
+    var text = new StringBuilder();
+    var expected = 0;
+    for(var i = 0; i < 100_000; i++) {
+      text.append(i % 10).append(" + ");
+      expected += i % 10;
+    }
+    text.append("(1)");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      var buffer = TokenBuffer.pipelined(LEXER_FACTORY.apply(text), EOF, executor);
+      assertEquals(expected + 1, (int) GRAMMAR.parser(buffer.lexer()).parseExpr(P_NONE));
+      assertEquals(200_003, buffer.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void pipelinedFailure() {
+    var lexer = LEXER_FACTORY.apply("1 + 2 + 3");
+    var failing = new Lexer<Token>() {
+      private int count;
+      @Override
+      public Token token() { return lexer.token(); }
+      @Override
+      public String value() { return lexer.value(); }
+      @Override
+      public CharSequence text() { return lexer.text(); }
+      @Override
+      public int start() { return lexer.start(); }
+      @Override
+      public int end() { return lexer.end(); }
+      @Override
+      public Token consume() {
+        if (count++ == 3) {
+          throw new IllegalArgumentException("oops");
+        }
+        return lexer.consume();
+      }
+      @Override
+      public Token lookhead() { return lexer.lookhead(); }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      var buffer = TokenBuffer.pipelined(failing, EOF, executor);
+      assertEquals(PLUS, buffer.token(1));
+      assertEquals(NUM, buffer.token(2));
+      var e = assertThrows(IllegalStateException.class, () -> buffer.token(3));
+      assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+      assertThrows(IllegalStateException.class, () -> buffer.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void invalidArguments() {
+    var lexer = LEXER_FACTORY.apply("1");
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> TokenBuffer.of(null, EOF)),
+        () -> assertThrows(NullPointerException.class, () -> TokenBuffer.of(lexer, null)),
+        () -> assertThrows(NullPointerException.class, () -> TokenBuffer.pipelined(null, EOF, Runnable::run)),
+        () -> assertThrows(NullPointerException.class, () -> TokenBuffer.pipelined(lexer, null, Runnable::run)),
+        () -> assertThrows(NullPointerException.class, () -> TokenBuffer.pipelined(lexer, EOF, null))
+        );
+  }
+}
@@ -0,0 +1,209 @@
+package com.github.forax.pratt_parser;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("static-method")
+class Utf8LexerTests {
+  private static final Function<ByteBuffer, Lexer<String>> LEXER_FACTORY = Lexer.utf8Factory("$", "num", "id",
+      entry("goto", "goto"),
+      entry("++",   "++"),
+      entry("+",    "+"),
+      entry("*",    "*"),
+      entry("(",    "("),
+      entry(")",    ")"),
+      entry("dot",  "."));
+
+  private static Lexer<String> lexer(String text) {
+    return LEXER_FACTORY.apply(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void tokens() {
+    var lexer = lexer("foo + 12*(bar)");
+    assertAll(
+        () -> assertEquals("id", lexer.consume()),
+        () -> assertEquals("foo", lexer.value()),
+        () -> assertEquals("+", lexer.consume()),
+        () -> assertEquals("num", lexer.consume()),
+        () -> assertEquals("12", lexer.value()),
+        () -> assertEquals("*", lexer.consume()),
+        () -> assertEquals("(", lexer.consume()),
+        () -> assertEquals("id", lexer.consume()),
+        () -> assertEquals("bar", lexer.value()),
+        () -> assertEquals(")", lexer.consume()),
+        () -> assertEquals("$", lexer.consume()),
+        () -> assertNull(lexer.value()),
+        () -> assertEquals(-1, lexer.start())
+        );
+  }
+
+  @Test
+  void offsetsInBytes() {
+    var lexer = lexer("caf\u00e9 + \u00e9t\u00e9");
+    lexer.consume("id");
+    assertEquals("caf\u00e9", lexer.value());
+    assertEquals(0, lexer.start());
+    assertEquals(5, lexer.end());
+    lexer.consume("+");
+    assertEquals(6, lexer.start());
+    lexer.consume("id");
+    assertEquals("\u00e9t\u00e9", lexer.value());
+    assertEquals(8, lexer.start());
+    assertEquals(13, lexer.end());
+    assertEquals(13, lexer.text().length());
+    lexer.consume("$");
+  }
+
+  @Test
+  void longRuns() {
+    var lexer = lexer("   \t\n          12345678901234567890 abcdefghijklm_NOPQRSTU_9876543210xyz                  +");
+    lexer.consume("num");
+    assertEquals("12345678901234567890", lexer.value());
+    lexer.consume("id");
+    assertEquals("abcdefghijklm_NOPQRSTU_9876543210xyz", lexer.value());
+    lexer.consume("+");
+    lexer.consume("$");
+  }
+
+  @Test
+  void nonAsciiInALongIdentifier() {
+    var lexer = lexer("abcdefgh\u00e9ijklmnop\u20acqrstuvwxyz\u00e9");
+    lexer.consume("id");
+    assertEquals("abcdefgh\u00e9ijklmnop", lexer.value());
+    lexer.consume("id");
+    assertEquals("qrstuvwxyz\u00e9", lexer.value());
+    lexer.consume("$");
+  }
+
+  @Test
+  void keywords() {
+    var lexer = lexer("goto gotox xgoto got goto");
+    lexer.consume("goto");
+    lexer.consume("id");
+    lexer.consume("id");
+    lexer.consume("id");
+    lexer.consume("goto");
+    lexer.consume("$");
+  }
+
+  @Test
+  void nonAsciiLiterals() {
+    var lexer = Lexer.utf8Factory("$", "num", "id", entry("euro", "\u20ac"), entry("\u00e9t\u00e9", "\u00e9t\u00e9"))
+        .apply(ByteBuffer.wrap("1\u20ac \u00e9t\u00e9 \u00e9t\u00e9s".getBytes(StandardCharsets.UTF_8)));
+    lexer.consume("num");
+    lexer.consume("euro");
+    assertEquals(1, lexer.start());
+    assertEquals(4, lexer.end());
+    lexer.consume("\u00e9t\u00e9");
+    lexer.consume("id");
+    lexer.consume("$");
+  }
+
+  private static String tokens(byte... bytes) {
+    var lexer = LEXER_FACTORY.apply(ByteBuffer.wrap(bytes));
+    var builder = new StringBuilder();
+    String token;
+    while(!(token = lexer.consume()).equals("$")) {
+      builder.append(token).append('@').append(lexer.start()).append(' ');
+    }
+    return builder.toString();
+  }
+
+  @Test
+  void malformedOrTruncatedSequences() {
+    assertAll(
+        () -> assertEquals("num@0 +@1 ", tokens((byte) '1', (byte) '+', (byte) 0xE2)),
+        () -> assertEquals("num@0 +@1 ", tokens((byte) '1', (byte) '+', (byte) 0xF0, (byte) 0x9F, (byte) 0x98)),
+        () -> assertEquals("num@0 +@2 num@3 ", tokens((byte) '1', (byte) 0xC3, (byte) '+', (byte) '2')),
+        () -> assertEquals("id@0 +@3 ", tokens((byte) 'a', (byte) 'b', (byte) 0xC3, (byte) '+')),
+        () -> assertEquals("num@1 num@3 ", tokens((byte) 0x80, (byte) '1', (byte) 0xFF, (byte) '2')),
+        () -> assertEquals("id@0 id@3 ", tokens((byte) 'a', (byte) 0xE2, (byte) 0x82, (byte) 'b'))
+        );
+  }
+
+  @Test
+  void bufferPositionAndLimit() {
+    var buffer = ByteBuffer.wrap("xx 1 + 2 yy".getBytes(StandardCharsets.UTF_8)).position(3).limit(8);
+    var lexer = LEXER_FACTORY.apply(buffer);
+    lexer.consume("num");
+    assertEquals(0, lexer.start());
+    lexer.consume("+");
+    lexer.consume("num");
+    assertEquals("2", lexer.value());
+    lexer.consume("$");
+    assertEquals(3, buffer.position());
+    assertEquals(8, buffer.limit());
+  }
+
+  @Test
+  void sameTokensAsRegex() {
+    var expectedFactory = Lexer.factory("$",
+        entry("num", "[0-9]+"), entry("id", "[A-Za-z_][A-Za-z0-9_]*"), entry("++", "\\+\\+"), entry("+", "\\+"),
+        entry("*", "\\*"), entry("(", "\\("), entry(")", "\\)"), entry("dot", "\\."));
+    var random = new Random(0);
+    var pieces = new String[] {
+        "goto", "a", "_", "Z", "+", "++", "*", "(", ")", ".", "1", "2345678", " ", "\t", "\n", "        ", "!", "\0" };
+    for(var i = 0; i < 500; i++) {
+      var builder = new StringBuilder();
+      for(var j = random.nextInt(40); j > 0; j--) {
+        builder.append(pieces[random.nextInt(pieces.length)]);
+      }
+      var text = builder.toString();
+      var lexer = lexer(text);
+      var expected = expectedFactory.apply(text);
+      String token;
+      do {
+        token = lexer.consume();
+        var expectedToken = expected.consume();
+        if (expectedToken.equals("id") && expected.value().equals("goto")) {
+          expectedToken = "goto";
+        }
+        assertEquals(expectedToken, token, text);
+        assertEquals(expected.start(), lexer.start(), text);
+        assertEquals(expected.end(), lexer.end(), text);
+      } while(!token.equals("$"));
+    }
+  }
+
+  @Test
+  void parse() {
+    var grammar = IntGrammar.<Integer, String>create(
+        token -> token.equals("+")? 1: token.equals("*")? 2: 0,
+        Map.of(
+            "num", (p, lexer) -> Integer.parseInt(lexer.value()),
+            "(",   (p, lexer) -> { var expr = p.parseExpr(0); lexer.consume(")"); return expr; }),
+        Map.of(
+            "+", (p, lexer, left) -> left + p.parseExpr(1),
+            "*", (p, lexer, left) -> left * p.parseExpr(2)));
+    assertEquals(23, (int) grammar.parser(lexer("3 + 4 * (2 + 3)")).parseExpr(0));
+  }
+
+  @Test
+  void invalidArguments() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> Lexer.utf8Factory(null, "num", "id")),
+        () -> assertThrows(NullPointerException.class, () -> Lexer.utf8Factory("$", null, "id")),
+        () -> assertThrows(NullPointerException.class, () -> Lexer.utf8Factory("$", "num", null)),
+        () -> assertThrows(NullPointerException.class, () -> Lexer.utf8Factory("$", "num", "id", (Map.Entry<String, String>[]) null)),
+        () -> assertThrows(NullPointerException.class, () -> LEXER_FACTORY.apply(null)),
+        () -> assertThrows(IllegalArgumentException.class, () -> Lexer.utf8Factory("$", "num", "id", entry("empty", ""))),
+        () -> assertThrows(IllegalArgumentException.class, () -> Lexer.utf8Factory("$", "num", "id", entry("space", " +"))),
+        () -> assertThrows(IllegalArgumentException.class, () -> Lexer.utf8Factory("$", "num", "id", entry("digit", "1a"))),
+        () -> assertThrows(IllegalArgumentException.class, () -> Lexer.utf8Factory("$", "num", "id", entry("inc", "a++"))),
+        () -> assertThrows(IllegalArgumentException.class, () -> Lexer.utf8Factory("$", "num", "id", entry("dot", "x.y"))),
+        () -> assertThrows(UnsupportedOperationException.class, () -> lexer("").reset(""))
+        );
+  }
+}
@@ -1,3 +1,4 @@
 open module com.github.forax.pratt_parser {
   requires org.junit.jupiter.api;
+  requires org.openjdk.jmh;
 }